@@ -1,6 +1,13 @@
 package com.prishedko;
 
+import com.prishedko.config.AppConfig;
+import com.prishedko.filter.CompressionFilter;
+import com.prishedko.filter.MetricsFilter;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.repository.Repositories;
 import com.prishedko.servlet.CourseServlet;
+import com.prishedko.servlet.EnrollmentServlet;
+import com.prishedko.servlet.MetricsServlet;
 import com.prishedko.servlet.SchoolServlet;
 import com.prishedko.servlet.StudentServlet;
 import com.prishedko.servlet.TeacherServlet;
@@ -8,55 +15,145 @@ import org.apache.catalina.Context;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.connector.Connector;
 import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
 
 import java.io.File;
 
 public class App {
 
     public static void main(String[] args) throws LifecycleException {
+        int port = AppConfig.getInt("server.port", 8080);
+        boolean virtualThreads = "virtual".equalsIgnoreCase(AppConfig.getString("server.executor", "platform"));
+
+        // Запускаем сервер
+        Tomcat tomcat = start(port, virtualThreads);
+        System.out.println("Tomcat started on http://localhost:" + port + "/school-service/api/schools"
+                + (virtualThreads ? " (virtual threads)" : ""));
+
+        if (AppConfig.getBoolean("server.exitAfterStart", false)) {
+            // Обучающий запуск для архива AppCDS (профиль appcds): классы запуска и прогрева
+            // уже загружены, архив записывается при выходе из JVM
+            tomcat.stop();
+            System.exit(0);
+        }
+
+        // Держим сервер запущенным
+        tomcat.getServer().await();
+    }
+
+    /**
+     * Создает и запускает Tomcat; при virtualThreads запросы обрабатываются в виртуальных потоках.
+     * При warmup.enabled сервер сначала прогревается через временный коннектор на 127.0.0.1,
+     * и порт открывается только после окончания прогрева, когда счетчики метрик уже обнулены
+     */
+    public static Tomcat start(int port, boolean virtualThreads) throws LifecycleException {
         // Создаем экземпляр Tomcat
         Tomcat tomcat = new Tomcat();
         tomcat.setBaseDir("temp");
 
-        // Настраиваем коннектор
-        Connector conn = new Connector();
-        conn.setPort(8080);
-        tomcat.setConnector(conn);
-
         startUpContext(tomcat);
 
-        // Запускаем сервер
+        if (AppConfig.getBoolean("warmup.enabled", false)) {
+            // Порт 0 - любой свободный; коннектор доступен только локально и удаляется после прогрева
+            Connector warmUpConnector = connector(0, virtualThreads);
+            warmUpConnector.setProperty("address", "127.0.0.1");
+            tomcat.setConnector(warmUpConnector);
+            tomcat.start();
+
+            WarmUp warmUp = WarmUp.run(warmUpConnector.getLocalPort());
+            // Синтетические запросы прогрева не должны попадать в метрики запросов, кэшей и загрузок
+            MetricsRegistry.resetAll();
+            MetricsRegistry.register("warmup", warmUp);
+            System.out.println("Warm-up finished in " + warmUp.getDuration().toMillis() + " ms: "
+                    + warmUp.getRequests() + " requests, " + warmUp.getFailures() + " failed");
+            tomcat.getService().removeConnector(warmUpConnector);
+            // Сервис уже запущен - добавленный коннектор стартует сразу
+            tomcat.setConnector(connector(port, virtualThreads));
+            return tomcat;
+        }
+
+        tomcat.setConnector(connector(port, virtualThreads));
         tomcat.start();
-        System.out.println("Tomcat started on http://localhost:8080/school-service/api/schools");
+        return tomcat;
+    }
 
-        // Держим сервер запущенным
-        tomcat.getServer().await();
+    private static Connector connector(int port, boolean virtualThreads) {
+        Connector conn = new Connector();
+        conn.setPort(port);
+        if (virtualThreads) {
+            // Обработчики почти все время ждут JDBC, поэтому поток на запрос дешевле держать виртуальным;
+            // конкуренцию за БД ограничивает семафор в DatabaseConfig
+            conn.setProperty("useVirtualThreads", "true");
+        }
+        return conn;
     }
 
     private static void startUpContext(Tomcat tomcat) {
         // Устанавливаем контекст приложения
-        String webappDir = new File("src/main/webapp").getAbsolutePath();
-        Context context = tomcat.addWebapp("/school-service", webappDir);
+        Context context;
+        if (AppConfig.getBoolean("server.lean", false)) {
+            // Все сервлеты и фильтры регистрируются программно: без web.xml, сканирования jar
+            // и аннотаций, без Jasper и сервлета статических файлов
+            context = tomcat.addContext("/school-service", null);
+        } else {
+            String webappDir = new File("src/main/webapp").getAbsolutePath();
+            context = tomcat.addWebapp("/school-service", webappDir);
+        }
 
         // Регистрируем SchoolServlet
-        Tomcat.addServlet(context, "SchoolServlet", new SchoolServlet());
+        Tomcat.addServlet(context, "SchoolServlet", new SchoolServlet()).setAsyncSupported(true);
         context.addServletMappingDecoded("/api/schools", "SchoolServlet");
         context.addServletMappingDecoded("/api/schools/*", "SchoolServlet");
 
         // Регистрация TeacherServlet
-        Tomcat.addServlet(context, "TeacherServlet", new TeacherServlet());
+        Tomcat.addServlet(context, "TeacherServlet", new TeacherServlet()).setAsyncSupported(true);
         context.addServletMappingDecoded("/api/teachers", "TeacherServlet");
         context.addServletMappingDecoded("/api/teachers/*", "TeacherServlet");
 
         // Регистрация StudentServlet
-        Tomcat.addServlet(context, "StudentServlet", new StudentServlet());
+        Tomcat.addServlet(context, "StudentServlet", new StudentServlet()).setAsyncSupported(true);
         context.addServletMappingDecoded("/api/students", "StudentServlet");
         context.addServletMappingDecoded("/api/students/*", "StudentServlet");
 
         // Регистрация CourseServlet
-        Tomcat.addServlet(context, "CourseServlet", new CourseServlet());
+        Tomcat.addServlet(context, "CourseServlet", new CourseServlet()).setAsyncSupported(true);
         context.addServletMappingDecoded("/api/courses", "CourseServlet");
         context.addServletMappingDecoded("/api/courses/*", "CourseServlet");
+
+        // Множественные запросы к индексу записей на курсы; индекс строится при загрузке сервлета,
+        // до того как коннектор начнет принимать запросы
+        if (Repositories.isIndexEnabled()) {
+            Tomcat.addServlet(context, "EnrollmentServlet", new EnrollmentServlet()).setLoadOnStartup(1);
+            context.addServletMappingDecoded("/api/enrollments/*", "EnrollmentServlet");
+        }
+
+        // Метрики запросов к API и их выдача в формате Prometheus
+        FilterDef metricsFilter = new FilterDef();
+        metricsFilter.setFilterName("MetricsFilter");
+        metricsFilter.setFilter(new MetricsFilter());
+        metricsFilter.setAsyncSupported("true");
+        context.addFilterDef(metricsFilter);
+        FilterMap metricsMapping = new FilterMap();
+        metricsMapping.setFilterName("MetricsFilter");
+        metricsMapping.addURLPatternDecoded("/api/*");
+        context.addFilterMap(metricsMapping);
+
+        // Сжатие ответов API; фильтр стоит после MetricsFilter, поэтому время сжатия входит в латентность
+        if (AppConfig.getBoolean("compression.enabled", true)) {
+            FilterDef compressionFilter = new FilterDef();
+            compressionFilter.setFilterName("CompressionFilter");
+            compressionFilter.setFilter(new CompressionFilter());
+            compressionFilter.setAsyncSupported("true");
+            context.addFilterDef(compressionFilter);
+            FilterMap compressionMapping = new FilterMap();
+            compressionMapping.setFilterName("CompressionFilter");
+            compressionMapping.addURLPatternDecoded("/api/*");
+            context.addFilterMap(compressionMapping);
+        }
+
+        Tomcat.addServlet(context, "MetricsServlet", new MetricsServlet());
+        context.addServletMappingDecoded("/metrics", "MetricsServlet");
     }
 
 }
@@ -0,0 +1,229 @@
+package com.prishedko;
+
+import com.prishedko.config.AppConfig;
+import com.prishedko.config.DatabaseConfig;
+import com.prishedko.dto.IdList;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.metrics.MetricsSource;
+import com.prishedko.metrics.PrometheusWriter;
+import com.prishedko.repository.Repositories;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Прогрев перед открытием порта (warmup.enabled): пул соединений заполняется до minimumIdle,
+ * самые крупные школы с их учителями и студентами и первые курсы загружаются в кэши
+ * (без кэша - хотя бы в буферы PostgreSQL), затем все GET-маршруты вызываются по HTTP через
+ * временный коннектор на 127.0.0.1, чтобы JIT скомпилировал путь запроса до прихода клиентов.
+ * Изменяющие запросы не выполняются - прогрев не трогает данные. Ошибки прогрева только
+ * записываются в лог: сервер все равно запускается
+ */
+final class WarmUp implements MetricsSource {
+    private static final Logger log = Logger.getLogger(WarmUp.class.getName());
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] ACCEPT = {"application/json", "application/cbor", "application/x-jackson-smile"};
+
+    private final int rounds = AppConfig.getInt("warmup.rounds", 200);
+    private final long deadlineNanos = AppConfig.getLong("warmup.maxSeconds", 30) * 1_000_000_000L;
+    private final int preloadSize = AppConfig.getInt("warmup.preload", 100);
+    private final int memberLimit = AppConfig.getInt("cache.maxSize", 10_000);
+
+    private Long schoolId;
+    private Long teacherId;
+    private Long studentId;
+    private Long courseId;
+    private long requests;
+    private long failures;
+    private long durationNanos;
+
+    @FunctionalInterface
+    private interface BatchLoader<T> {
+        List<T> load(Collection<Long> ids) throws SQLException;
+    }
+
+    private WarmUp() {
+    }
+
+    /**
+     * Выполняет прогрев через коннектор, слушающий localPort
+     */
+    static WarmUp run(int localPort) {
+        WarmUp warmUp = new WarmUp();
+        long start = System.nanoTime();
+        try {
+            warmUp.fillPool();
+            warmUp.preload();
+            warmUp.exerciseRoutes(localPort, start);
+        } catch (SQLException e) {
+            log.log(Level.WARNING, "Warm-up stopped: database error", e);
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Warm-up stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        warmUp.durationNanos = System.nanoTime() - start;
+        return warmUp;
+    }
+
+    /**
+     * Одновременно занимает minimumIdle соединений, чтобы Hikari открыл их сейчас, а не на первых запросах
+     */
+    private void fillPool() throws SQLException {
+        HikariDataSource dataSource = DatabaseConfig.getDataSource();
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < dataSource.getMinimumIdle(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private void preload() throws SQLException {
+        long[] schoolIds = Repositories.schools().findLargestIds(preloadSize);
+        IdList teacherIds = new IdList();
+        IdList studentIds = new IdList();
+        for (School school : loadAll(Repositories.schools()::findAllByIds, IdList.of(schoolIds))) {
+            for (Teacher teacher : school.getTeachers()) {
+                if (teacherIds.size() < memberLimit) {
+                    teacherIds.addLong(teacher.getId());
+                }
+            }
+            for (Student student : school.getStudents()) {
+                if (studentIds.size() < memberLimit) {
+                    studentIds.addLong(student.getId());
+                }
+            }
+        }
+        loadAll(Repositories.teachers()::findAllByIds, teacherIds);
+        loadAll(Repositories.students()::findAllByIds, studentIds);
+
+        IdList courseIds = new IdList();
+        for (Course course : Repositories.courses().findPage(0L, preloadSize)) {
+            courseIds.addLong(course.getId());
+        }
+        loadAll(Repositories.courses()::findAllByIds, courseIds);
+
+        // Для маршрутов берется самая маленькая из загруженных школ, чтобы прогрев не растягивался
+        schoolId = schoolIds.length > 0 ? schoolIds[schoolIds.length - 1] : null;
+        teacherId = first(teacherIds);
+        studentId = first(studentIds);
+        courseId = first(courseIds);
+    }
+
+    private static <T> List<T> loadAll(BatchLoader<T> loader, IdList ids) throws SQLException {
+        List<T> loaded = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            loaded.addAll(loader.load(ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE))));
+        }
+        return loaded;
+    }
+
+    private static Long first(IdList ids) {
+        return ids.isEmpty() ? null : ids.getLong(0);
+    }
+
+    private void exerciseRoutes(int localPort, long start) throws InterruptedException {
+        List<String> paths = routes();
+        if (paths.isEmpty()) {
+            return;
+        }
+        String base = "http://127.0.0.1:" + localPort + "/school-service/api";
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build()) {
+            for (int round = 0; round < rounds && System.nanoTime() - start < deadlineNanos; round++) {
+                for (String path : paths) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Accept", ACCEPT[round % ACCEPT.length])
+                            .header("Accept-Encoding", "gzip")
+                            .GET()
+                            .build();
+                    requests++;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            failures++;
+                        }
+                    } catch (IOException e) {
+                        failures++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * По одному запросу на каждый GET-маршрут сервлетов; маршруты без данных в БД пропускаются
+     */
+    private List<String> routes() {
+        List<String> paths = new ArrayList<>();
+        if (schoolId != null) {
+            paths.add("/schools/" + schoolId);
+            paths.add("/schools?ids=" + schoolId);
+            paths.add("/teachers?schoolId=" + schoolId);
+            paths.add("/students?schoolId=" + schoolId);
+        }
+        if (teacherId != null) {
+            paths.add("/teachers/" + teacherId);
+            paths.add("/teachers?ids=" + teacherId);
+        }
+        if (studentId != null) {
+            paths.add("/students/" + studentId);
+            paths.add("/students?ids=" + studentId);
+        }
+        if (courseId != null) {
+            paths.add("/courses/" + courseId);
+            paths.add("/courses?ids=" + courseId);
+            paths.add("/courses?limit=100");
+            paths.add("/courses?stream=true&limit=100");
+            if (Repositories.isIndexEnabled()) {
+                paths.add("/enrollments/students?any=" + courseId + "&count=true");
+                paths.add("/enrollments/teachers?any=" + courseId);
+            }
+        }
+        return paths;
+    }
+
+    long getRequests() {
+        return requests;
+    }
+
+    long getFailures() {
+        return failures;
+    }
+
+    Duration getDuration() {
+        return Duration.ofNanos(durationNanos);
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("app_warmup_seconds", "gauge", "Duration of the startup warm-up phase");
+        writer.sample("app_warmup_seconds", durationNanos / 1e9);
+        writer.family("app_warmup_requests_total", "counter", "Synthetic requests sent during warm-up");
+        writer.sample("app_warmup_requests_total", requests - failures, "result", "ok");
+        writer.sample("app_warmup_requests_total", failures, "result", "failed");
+    }
+}
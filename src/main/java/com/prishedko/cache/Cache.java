@@ -0,0 +1,43 @@
+package com.prishedko.cache;
+
+/**
+ * Ограниченный кэш сущностей
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Возвращает значение или null, если его нет или срок жизни истек
+     */
+    V get(K key);
+
+    /**
+     * Возвращает значение, не влияя на статистику и порядок вытеснения
+     */
+    V peek(K key);
+
+    void put(K key, V value);
+
+    /**
+     * Номер поколения, который растет при каждой инвалидации; снимается перед загрузкой из базы
+     */
+    long generation();
+
+    /**
+     * Кладет значение, только если с момента generation не было инвалидаций этого ключа или всего кэша.
+     * Так загрузка, начатая до изменения данных, не вернет в кэш устаревшее значение
+     */
+    boolean putIfGeneration(K key, V value, long generation);
+
+    void invalidate(K key);
+
+    void invalidateAll();
+
+    int size();
+
+    CacheStats stats();
+
+    /**
+     * Обнуляет счетчики статистики, не трогая записи
+     */
+    void resetStats();
+}
@@ -0,0 +1,128 @@
+package com.prishedko.cache;
+
+import com.prishedko.config.AppConfig;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.SchoolRoster;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.MetricsSource;
+import com.prishedko.metrics.PrometheusWriter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэши всех сущностей. Общие для репозиториев, чтобы изменение одной сущности
+ * могло инвалидировать связанные с ней записи других
+ */
+public class EntityCaches implements MetricsSource {
+    private static volatile EntityCaches instance;
+
+    private final Cache<Long, School> schools;
+    private final Cache<Long, Teacher> teachers;
+    private final Cache<Long, Student> students;
+    private final Cache<Long, Course> courses;
+    // Составы школ для потоковой выдачи; инвалидируются вместе со школами (invalidateSchool)
+    private final Cache<Long, SchoolRoster> rosters;
+
+    public EntityCaches(Cache<Long, School> schools, Cache<Long, Teacher> teachers,
+                        Cache<Long, Student> students, Cache<Long, Course> courses,
+                        Cache<Long, SchoolRoster> rosters) {
+        this.schools = schools;
+        this.teachers = teachers;
+        this.students = students;
+        this.courses = courses;
+        this.rosters = rosters;
+    }
+
+    public EntityCaches(int maxSize, long ttl, TimeUnit unit) {
+        this(new LruCache<>(maxSize, ttl, unit), new LruCache<>(maxSize, ttl, unit),
+                new LruCache<>(maxSize, ttl, unit), new LruCache<>(maxSize, ttl, unit),
+                new LruCache<>(maxSize, ttl, unit));
+    }
+
+    public static EntityCaches getInstance() {
+        if (instance == null) {
+            synchronized (EntityCaches.class) {
+                if (instance == null) {
+                    instance = new EntityCaches(
+                            AppConfig.getInt("cache.maxSize", 10_000),
+                            AppConfig.getLong("cache.ttlSeconds", 60),
+                            TimeUnit.SECONDS
+                    );
+                    MetricsRegistry.register("cache", instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Счетчики и размер каждого кэша в формате Prometheus
+     */
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        String[] names = {"schools", "teachers", "students", "courses", "rosters"};
+        Cache<?, ?>[] caches = {schools, teachers, students, courses, rosters};
+        CacheStats[] stats = new CacheStats[caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            stats[i] = caches[i].stats();
+        }
+        writer.family("cache_requests_total", "counter", "Cache lookups by result");
+        for (int i = 0; i < caches.length; i++) {
+            writer.sample("cache_requests_total", stats[i].getHits(), "cache", names[i], "result", "hit");
+            writer.sample("cache_requests_total", stats[i].getMisses(), "cache", names[i], "result", "miss");
+        }
+        writer.family("cache_removals_total", "counter", "Entries removed by size limit or TTL");
+        for (int i = 0; i < caches.length; i++) {
+            writer.sample("cache_removals_total", stats[i].getEvictions(), "cache", names[i], "cause", "size");
+            writer.sample("cache_removals_total", stats[i].getExpirations(), "cache", names[i], "cause", "expired");
+        }
+        writer.family("cache_size", "gauge", "Entries currently cached");
+        for (int i = 0; i < caches.length; i++) {
+            writer.sample("cache_size", caches[i].size(), "cache", names[i]);
+        }
+    }
+
+    public Cache<Long, School> schools() {
+        return schools;
+    }
+
+    public Cache<Long, Teacher> teachers() {
+        return teachers;
+    }
+
+    public Cache<Long, Student> students() {
+        return students;
+    }
+
+    public Cache<Long, Course> courses() {
+        return courses;
+    }
+
+    public Cache<Long, SchoolRoster> rosters() {
+        return rosters;
+    }
+
+    /**
+     * Инвалидирует школу и ее состав: оба зависят от одной строки и ее участников
+     */
+    public void invalidateSchool(long id) {
+        schools.invalidate(id);
+        rosters.invalidate(id);
+    }
+
+    /**
+     * Обнуляет статистику всех кэшей; загруженные записи остаются
+     */
+    @Override
+    public void reset() {
+        schools.resetStats();
+        teachers.resetStats();
+        students.resetStats();
+        courses.resetStats();
+        rosters.resetStats();
+    }
+}
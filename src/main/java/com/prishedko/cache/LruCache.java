@@ -0,0 +1,147 @@
+package com.prishedko.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * LRU-кэш с ограничением размера и временем жизни записей
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // Поколение последней инвалидации по ключу; самые давние отметки вытесняются в floor
+    private final LinkedHashMap<K, Long> invalidations;
+
+    private long generation;
+    private long floor;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public LruCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, System::nanoTime);
+    }
+
+    public LruCache(int maxSize, long ttl, TimeUnit unit, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+        // Порядок вставки: get сам переносит запись в конец, а peek порядок не трогает
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    // Забытый ключ считаем инвалидированным не раньше самой давней вытесненной отметки
+                    floor = Math.max(floor, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        entries.remove(key);
+        entries.put(key, entry);
+        return entry.value;
+    }
+
+    @Override
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null || isExpired(entry) ? null : entry.value;
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        entries.remove(key);
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+    }
+
+    @Override
+    public synchronized long generation() {
+        return generation;
+    }
+
+    @Override
+    public synchronized boolean putIfGeneration(K key, V value, long generation) {
+        Long invalidated = invalidations.get(key);
+        if (floor > generation || invalidated != null && invalidated > generation) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    @Override
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+        invalidations.remove(key);
+        invalidations.put(key, generation);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        invalidations.clear();
+        floor = generation;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, expirations);
+    }
+
+    @Override
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        expirations = 0;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return clock.getAsLong() - entry.expiresAt > 0;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.prishedko.config;
+
+/**
+ * Определяет метод, который обратился к DatabaseConfig или UnitOfWork, для учета времени работы с БД
+ */
+final class Callers {
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
+    private Callers() {
+    }
+
+    /**
+     * "Класс.метод" первого кадра стека за пределами DatabaseConfig и UnitOfWork
+     */
+    static String current() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> !isInfrastructure(frame.getClassName()))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                })
+                .orElse("unknown"));
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith(DatabaseConfig.class.getName())
+                || className.startsWith(UnitOfWork.class.getName())
+                || className.equals(Callers.class.getName());
+    }
+}
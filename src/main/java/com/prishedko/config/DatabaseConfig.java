@@ -1,13 +1,42 @@
 package com.prishedko.config;
 
+import com.prishedko.metrics.DbTrace;
+import com.prishedko.metrics.DriverSettingsMetrics;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.PoolMetrics;
+import com.prishedko.metrics.RepositoryMetrics;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.postgresql.PGStatement;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseConfig {
-    private static final HikariDataSource dataSource;
+    // Свойства db.dataSource.* передаются драйверу как есть (prepareThreshold, preparedStatementCacheQueries, ...)
+    private static final String DATA_SOURCE_PREFIX = "db.dataSource.";
+
+    // Метод репозитория для метрик, когда учет по вызывающим отключен
+    private static final String UNATTRIBUTED = "unattributed";
+
+    private static volatile HikariDataSource dataSource;
+    private static volatile ConnectionPool pool;
+    // Учет времени по вызывающему методу (db.trackCallers, включен по умолчанию): обход стека на каждое соединение
+    private static boolean trackCallers;
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+    private static final RepositoryMetrics repositoryMetrics = new RepositoryMetrics();
+    private static DriverSettingsMetrics driverSettingsMetrics;
 
     static {
         Properties props = new Properties();
@@ -18,7 +47,22 @@ public class DatabaseConfig {
             config.setUsername(props.getProperty("db.username"));
             config.setPassword(props.getProperty("db.password"));
             config.setMaximumPoolSize(Integer.parseInt(props.getProperty("db.poolSize")));
-            dataSource = new HikariDataSource(config);
+            config.setMetricsTrackerFactory(poolMetrics);
+            Properties driver = new Properties();
+            for (String name : props.stringPropertyNames()) {
+                if (name.startsWith(DATA_SOURCE_PREFIX)) {
+                    driver.setProperty(name.substring(DATA_SOURCE_PREFIX.length()), props.getProperty(name));
+                }
+            }
+            config.setDataSourceProperties(driver);
+            driverSettingsMetrics = new DriverSettingsMetrics(driver);
+            trackCallers = Boolean.parseBoolean(System.getProperty("db.trackCallers",
+                    props.getProperty("db.trackCallers", "true")));
+            install(new HikariDataSource(config));
+            poolMetrics.setQueuedForPermit(DatabaseConfig::getQueuedThreads);
+            MetricsRegistry.register("db_pool", poolMetrics);
+            MetricsRegistry.register("db_repository", repositoryMetrics);
+            MetricsRegistry.register("db_driver", driverSettingsMetrics);
         } catch (IOException e) {
             throw new RuntimeException("Failed to load database configuration", e);
         }
@@ -27,4 +71,226 @@ public class DatabaseConfig {
     public static HikariDataSource getDataSource() {
         return dataSource;
     }
-}
\ No newline at end of file
+
+    /**
+     * Делает пул текущим (тесты и бенчмарки подменяют им пул из db.properties)
+     */
+    public static synchronized void install(HikariDataSource dataSource) {
+        DatabaseConfig.dataSource = dataSource;
+        pool = new ConnectionPool(dataSource);
+    }
+
+    public static PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    public static RepositoryMetrics getRepositoryMetrics() {
+        return repositoryMetrics;
+    }
+
+    public static DriverSettingsMetrics getDriverSettingsMetrics() {
+        return driverSettingsMetrics;
+    }
+
+    /**
+     * Выдает соединение из пула, предварительно заняв разрешение семафора; разрешение
+     * возвращается при закрытии соединения. Время ожидания и использования соединения
+     * записывается на метод репозитория, который его запросил (при db.trackCallers). Внутри UnitOfWork
+     * возвращается соединение единицы работы
+     */
+    public static Connection getConnection() throws SQLException {
+        Connection bound = UnitOfWork.currentConnection();
+        if (bound != null) {
+            return bound;
+        }
+        return open(caller());
+    }
+
+    /**
+     * Метод, на который записывается время работы с БД: вызывающий при db.trackCallers, иначе общий
+     */
+    static String caller() {
+        return trackCallers ? Callers.current() : UNATTRIBUTED;
+    }
+
+    /**
+     * Берет новое соединение из пула; caller - метод, на который записывается время
+     */
+    static Connection open(String caller) throws SQLException {
+        long requestedAt = System.nanoTime();
+        ConnectionPool pool = pool();
+        Semaphore permits = pool.permits;
+        long timeoutNanos = pool.timeoutNanos;
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                poolMetrics.recordPermitTimeout();
+                throw new SQLTransientConnectionException(
+                        "Database concurrency limit reached, timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+
+        long permitWaitNanos = System.nanoTime() - requestedAt;
+        poolMetrics.recordPermitWait(permitWaitNanos);
+
+        Connection connection;
+        try {
+            // Пулу остается только неизрасходованная на семафоре часть connectionTimeout
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(timeoutNanos - permitWaitNanos);
+            connection = pool.hikariPool != null
+                    ? pool.hikariPool.getConnection(Math.max(remainingMillis, 0))
+                    : pool.dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                DatabaseConfig.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new TrackedConnectionHandler(connection, permits, caller, requestedAt, DbTrace.current()));
+    }
+
+    /**
+     * Число потоков, ожидающих разрешения на соединение
+     */
+    public static int getQueuedThreads() {
+        return pool().permits.getQueueLength();
+    }
+
+    /**
+     * Текущий пул; если dataSource подменили напрямую (тесты), пул с семафором создается заново один раз
+     */
+    private static ConnectionPool pool() {
+        ConnectionPool current = pool;
+        return current != null && current.dataSource == dataSource ? current : resolvePool();
+    }
+
+    private static synchronized ConnectionPool resolvePool() {
+        if (pool == null || pool.dataSource != dataSource) {
+            pool = new ConnectionPool(dataSource);
+        }
+        return pool;
+    }
+
+    /**
+     * Пул с семафором под его размер; все, что нужно на каждую выдачу соединения,
+     * определяется один раз при создании
+     */
+    private static final class ConnectionPool {
+        private final HikariDataSource dataSource;
+        // Пул Hikari, которому передается остаток времени ожидания; null, если пул еще не запущен
+        private final HikariPool hikariPool;
+        // Ограничивает число одновременных обращений к БД размером пула: лишние потоки
+        // (в том числе виртуальные) ждут на семафоре, а не в очереди Hikari
+        private final Semaphore permits;
+        private final long timeoutNanos;
+
+        ConnectionPool(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.hikariPool = (HikariPool) dataSource.getHikariPoolMXBean();
+            this.permits = new Semaphore(dataSource.getMaximumPoolSize(), true);
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(dataSource.getConnectionTimeout());
+        }
+    }
+
+    /**
+     * Передает вызовы соединению пула; при первом close() освобождает разрешение
+     * и записывает время ожидания и использования соединения
+     */
+    private static class TrackedConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final Semaphore permits;
+        private final String caller;
+        private final long requestedAt;
+        private final long acquiredAt = System.nanoTime();
+        private final DbTrace trace;
+        private boolean released;
+
+        TrackedConnectionHandler(Connection target, Semaphore permits, String caller, long requestedAt, DbTrace trace) {
+            this.target = target;
+            this.permits = permits;
+            this.caller = caller;
+            this.requestedAt = requestedAt;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                try {
+                    target.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        permits.release();
+                        long waitNanos = acquiredAt - requestedAt;
+                        long useNanos = System.nanoTime() - acquiredAt;
+                        repositoryMetrics.record(caller, waitNanos, useNanos);
+                        if (trace != null) {
+                            trace.record(caller, waitNanos, useNanos);
+                        }
+                    }
+                }
+                return null;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if ("prepareStatement".equals(method.getName())) {
+                return Proxy.newProxyInstance(
+                        DatabaseConfig.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new PreparedStatementHandler((PreparedStatement) result));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Перед каждым выполнением запроса записывает, подготовлен ли он на сервере
+     * (db_statement_server_prepared_total)
+     */
+    private static class PreparedStatementHandler implements InvocationHandler {
+        private final PreparedStatement target;
+        private PGStatement pgStatement;
+        private boolean unwrapped;
+
+        PreparedStatementHandler(PreparedStatement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().startsWith("execute")) {
+                PGStatement statement = pgStatement();
+                if (statement != null) {
+                    driverSettingsMetrics.recordExecution(statement.isUseServerPrepare());
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Запрос драйвера PostgreSQL под оберткой пула; null, если соединение не от pgjdbc
+         */
+        private PGStatement pgStatement() throws SQLException {
+            if (!unwrapped) {
+                unwrapped = true;
+                if (target.isWrapperFor(PGStatement.class)) {
+                    pgStatement = target.unwrap(PGStatement.class);
+                }
+            }
+            return pgStatement;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.prishedko.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Общий ObjectMapper всех сервлетов. Свойства DTO читаются и пишутся через сгенерированные
+ * Blackbird аксессоры вместо рефлексии (jackson.blackbird в app.properties);
+ * ObjectWriter и ObjectReader с уже найденным корневым сериализатором кэшируются по типу
+ */
+public class JacksonConfig {
+    private static final ObjectMapper objectMapper = configure(JsonMapper.builder()).build();
+    private static final ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public static ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Настройки, общие для JSON и бинарных мапперов. Потоковая запись сама решает, когда сбрасывать
+     * генератор, поэтому flush после каждого значения отключен
+     */
+    public static <M extends ObjectMapper, B extends MapperBuilder<M, B>> B configure(B builder) {
+        builder.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        if (AppConfig.getBoolean("jackson.blackbird", true)) {
+            builder.addModule(new BlackbirdModule());
+        }
+        return builder;
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(objectMapper.constructType(type), objectMapper::writerFor);
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(objectMapper.constructType(type), objectMapper::readerFor);
+    }
+}
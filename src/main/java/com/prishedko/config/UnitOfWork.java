@@ -0,0 +1,199 @@
+package com.prishedko.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Единица работы: все обращения репозиториев внутри inTransaction идут через одно соединение
+ * и фиксируются одним commit. Соединение берется из пула при первом обращении к БД и
+ * привязывается к потоку; вложенные inTransaction присоединяются к внешней
+ */
+public final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final String owner;
+    private Connection connection;
+    private Connection handle;
+    private boolean rollbackOnly;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    /**
+     * Действие внутри единицы работы
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute() throws SQLException;
+    }
+
+    /**
+     * Действие без результата внутри единицы работы
+     */
+    @FunctionalInterface
+    public interface VoidWork {
+        void execute() throws SQLException;
+    }
+
+    private UnitOfWork(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Выполняет work в транзакции: commit при успешном завершении, rollback при исключении.
+     * Вложенный вызов присоединяется к внешней единице и при исключении помечает ее на откат;
+     * единица, помеченная на откат, откатывается, и inTransaction бросает SQLException
+     */
+    public static <T> T inTransaction(Work<T> work) throws SQLException {
+        UnitOfWork outer = CURRENT.get();
+        if (outer != null) {
+            try {
+                return work.execute();
+            } catch (SQLException | RuntimeException | Error e) {
+                // Ошибка вложенного шага откатывает всю внешнюю единицу, даже если исключение перехватят
+                outer.rollbackOnly = true;
+                throw e;
+            }
+        }
+        UnitOfWork unit = new UnitOfWork(DatabaseConfig.caller());
+        CURRENT.set(unit);
+        T result;
+        try {
+            result = work.execute();
+            unit.commit();
+        } catch (SQLException | RuntimeException | Error e) {
+            unit.rollback(e);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.release();
+        }
+        if (unit.rollbackOnly) {
+            // Перехваченная ошибка шага откатила все изменения: успех сообщать нельзя
+            throw new SQLException("Transaction was marked rollback-only and has been rolled back");
+        }
+        unit.afterCommit.forEach(Runnable::run);
+        return result;
+    }
+
+    public static void inTransaction(VoidWork work) throws SQLException {
+        inTransaction(() -> {
+            work.execute();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет action после commit текущей единицы работы (при откате - не выполняет),
+     * а вне единицы работы - сразу
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            unit.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Соединение текущей единицы работы или null, если ее нет
+     */
+    static Connection currentConnection() throws SQLException {
+        UnitOfWork unit = CURRENT.get();
+        return unit != null ? unit.connection() : null;
+    }
+
+    private Connection connection() throws SQLException {
+        if (handle == null) {
+            connection = DatabaseConfig.open(owner);
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                connection.close();
+                connection = null;
+                throw e;
+            }
+            handle = (Connection) Proxy.newProxyInstance(
+                    UnitOfWork.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new BoundConnectionHandler());
+        }
+        return handle;
+    }
+
+    private void commit() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        if (rollbackOnly) {
+            connection.rollback();
+        } else {
+            connection.commit();
+        }
+    }
+
+    private void rollback(Throwable cause) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void release() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(true);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Управление транзакцией и закрытие остаются за единицей работы: close, commit и setAutoCommit
+     * репозиториев игнорируются, rollback помечает единицу на откат
+     */
+    private class BoundConnectionHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close", "commit", "setAutoCommit":
+                    if (method.getParameterCount() <= 1) {
+                        return null;
+                    }
+                    break;
+                case "rollback":
+                    if (method.getParameterCount() == 0) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "getAutoCommit":
+                    return false;
+                case "isClosed":
+                    return connection.isClosed();
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
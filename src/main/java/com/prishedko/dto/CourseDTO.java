@@ -1,13 +1,16 @@
 package com.prishedko.dto;
 
-import java.util.ArrayList;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import java.util.List;
 
 public class CourseDTO {
     private Long id;
     private String name;
-    private List<Long> teacherIds = new ArrayList<>();
-    private List<Long> studentIds = new ArrayList<>();
+    @JsonDeserialize(as = IdList.class)
+    private List<Long> teacherIds = new IdList();
+    @JsonDeserialize(as = IdList.class)
+    private List<Long> studentIds = new IdList();
 
     public CourseDTO() {
 
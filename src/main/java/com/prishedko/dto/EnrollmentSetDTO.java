@@ -0,0 +1,36 @@
+package com.prishedko.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Результат запроса к индексу записей: число участников и их id (при count=true id не передаются)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EnrollmentSetDTO {
+    private long count;
+    private long[] ids;
+
+    public EnrollmentSetDTO() {
+    }
+
+    public EnrollmentSetDTO(long count, long[] ids) {
+        this.count = count;
+        this.ids = ids;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long[] getIds() {
+        return ids;
+    }
+
+    public void setIds(long[] ids) {
+        this.ids = ids;
+    }
+}
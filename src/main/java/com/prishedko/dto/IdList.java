@@ -0,0 +1,203 @@
+package com.prishedko.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.ToLongFunction;
+
+/**
+ * Список id на массиве long: без объекта Long на каждый элемент. Снаружи это обычный List&lt;Long&gt;
+ * (get упаковывает значение), а addLong/getLong и JSON-(де)сериализация работают без упаковки
+ */
+@JsonSerialize(using = IdList.Serializer.class)
+@JsonDeserialize(using = IdList.Deserializer.class)
+public final class IdList extends AbstractList<Long> implements RandomAccess {
+    private static final long[] EMPTY = {};
+
+    private long[] ids;
+    private int size;
+
+    public IdList() {
+        ids = EMPTY;
+    }
+
+    public IdList(int capacity) {
+        ids = capacity > 0 ? new long[capacity] : EMPTY;
+    }
+
+    public static IdList of(long... ids) {
+        IdList list = new IdList(ids.length);
+        System.arraycopy(ids, 0, list.ids, 0, ids.length);
+        list.size = ids.length;
+        return list;
+    }
+
+    /**
+     * Копия произвольной коллекции id; null-элементы не допускаются
+     */
+    public static IdList copyOf(Collection<Long> ids) {
+        if (ids instanceof IdList idList) {
+            return of(idList.toLongArray());
+        }
+        IdList list = new IdList(ids.size());
+        for (Long id : ids) {
+            list.addLong(id);
+        }
+        return list;
+    }
+
+    /**
+     * id всех элементов коллекции, например IdList.collect(course.getStudents(), Student::getId)
+     */
+    public static <T> IdList collect(Collection<T> items, ToLongFunction<T> idOf) {
+        IdList list = new IdList(items.size());
+        for (T item : items) {
+            list.ids[list.size++] = idOf.applyAsLong(item);
+        }
+        return list;
+    }
+
+    public void addLong(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(8, size << 1));
+        }
+        ids[size++] = id;
+        modCount++;
+    }
+
+    public long getLong(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return ids[index];
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long id) {
+        long previous = getLong(index);
+        ids[index] = id;
+        return previous;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        addLong(id);
+        return true;
+    }
+
+    @Override
+    public Long remove(int index) {
+        long removed = getLong(index);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof Long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof IdList other) {
+            return Arrays.equals(ids, 0, size, other.ids, 0, other.size);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // Совпадает с List.hashCode для тех же элементов
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(ids[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Пишет JSON-массив чисел прямо из long[]
+     */
+    public static class Serializer extends StdSerializer<IdList> {
+        public Serializer() {
+            super(IdList.class);
+        }
+
+        @Override
+        public void serialize(IdList value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeArray(value.ids, 0, value.size);
+        }
+    }
+
+    /**
+     * Читает JSON-массив чисел в long[] без промежуточных Long
+     */
+    public static class Deserializer extends StdDeserializer<IdList> {
+        public Deserializer() {
+            super(IdList.class);
+        }
+
+        @Override
+        public IdList deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartArrayToken()) {
+                return (IdList) context.handleUnexpectedToken(IdList.class, parser);
+            }
+            IdList list = new IdList();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.VALUE_NUMBER_INT) {
+                    return (IdList) context.handleUnexpectedToken(IdList.class, token, parser,
+                            "Expected integer id in array");
+                }
+                list.addLong(parser.getLongValue());
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.prishedko.dto;
+
+/**
+ * Результат замены состава участников курса: сколько связей добавлено и сколько удалено
+ */
+public class RosterChangeDTO {
+    private int added;
+    private int removed;
+
+    public RosterChangeDTO() {
+    }
+
+    public RosterChangeDTO(int added, int removed) {
+        this.added = added;
+        this.removed = removed;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public void setAdded(int added) {
+        this.added = added;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(int removed) {
+        this.removed = removed;
+    }
+}
@@ -1,13 +1,15 @@
 package com.prishedko.dto;
 
-import java.util.ArrayList;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import java.util.List;
 
 public class StudentDTO {
     private Long id;
     private String name;
     private Long schoolId;
-    private List<Long> courseIds = new ArrayList<>();
+    @JsonDeserialize(as = IdList.class)
+    private List<Long> courseIds = new IdList();
 
     public StudentDTO() {
     }
@@ -8,6 +8,8 @@ public class Course {
     private String name;
     private List<Teacher> teachers = new ArrayList<>(); // ManyToMany
     private List<Student> students = new ArrayList<>(); // ManyToMany
+    // Колонка version на момент чтения строки; 0, если строка читалась без нее
+    private long version;
 
     public Course(Long id, String name, List<Teacher> teachers, List<Student> students) {
         this.id = id;
@@ -51,4 +53,12 @@ public class Course {
     public void setStudents(List<Student> students) {
         this.students = students;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -8,6 +8,8 @@ public class School {
     private String name;
     private List<Teacher> teachers = new ArrayList<>(); // OneToMany
     private List<Student> students = new ArrayList<>(); // OneToMany
+    // Колонка version на момент чтения строки; 0, если строка читалась без нее
+    private long version;
 
     public School() {
     }
@@ -59,4 +61,12 @@ public class School {
     public void setStudents(List<Student> students) {
         this.students = students;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.prishedko.entity;
+
+/**
+ * Состав школы в компактном виде для кэша потоковой выдачи: имя, версия строки и id участников
+ * в примитивных массивах вместо сущностей учителей и студентов
+ */
+public record SchoolRoster(String name, long version, long[] teacherIds, long[] studentIds) {
+}
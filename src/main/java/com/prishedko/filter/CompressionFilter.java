@@ -0,0 +1,159 @@
+package com.prishedko.filter;
+
+import com.prishedko.config.AppConfig;
+import com.prishedko.metrics.CompressionMetrics;
+import com.prishedko.metrics.MetricsRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Сжатие ответов gzip или deflate по Accept-Encoding. Тело сжимается потоково по мере записи;
+ * ответы меньше minSize и несжимаемые типы содержимого отправляются как есть.
+ * Настройки - compression.* в app.properties
+ */
+public class CompressionFilter implements Filter {
+    /**
+     * Атрибут запроса с выбранным кодированием (gzip, deflate); нет атрибута - ответ не сжимается.
+     * По нему условный GET узнает тег сжатого представления
+     */
+    public static final String ENCODING_ATTRIBUTE = CompressionFilter.class.getName() + ".encoding";
+
+    private final List<String> encodings;
+    private final int minSize;
+    private final int level;
+    private final Set<String> mimeTypes;
+    private final CompressionMetrics metrics;
+
+    public CompressionFilter() {
+        this(List.of(AppConfig.getString("compression.encodings", "gzip,deflate").split("\\s*,\\s*")),
+                AppConfig.getInt("compression.minSize", 2048),
+                AppConfig.getInt("compression.level", 6),
+                Set.of(AppConfig.getString("compression.mimeTypes", "application/json,text/plain").split("\\s*,\\s*")),
+                new CompressionMetrics());
+    }
+
+    /**
+     * encodings - поддерживаемые кодирования в порядке предпочтения сервера (gzip, deflate)
+     */
+    public CompressionFilter(List<String> encodings, int minSize, int level, Set<String> mimeTypes,
+                             CompressionMetrics metrics) {
+        for (String encoding : encodings) {
+            CompressionMetrics.encoding(encoding);
+        }
+        this.encodings = encodings;
+        this.minSize = minSize;
+        this.level = level;
+        this.mimeTypes = mimeTypes;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        MetricsRegistry.register("compression", metrics);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest req) || !(response instanceof HttpServletResponse resp)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Ответ зависит от Accept-Encoding - кэши должны хранить варианты раздельно
+        resp.addHeader("Vary", "Accept-Encoding");
+        String encoding = negotiate(req.getHeader("Accept-Encoding"), encodings);
+        if (encoding == null || "HEAD".equals(req.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        req.setAttribute(ENCODING_ATTRIBUTE, encoding);
+        CompressionResponse compressing = new CompressionResponse(resp, encoding, minSize, level, mimeTypes, metrics);
+        boolean async = false;
+        try {
+            chain.doFilter(req, compressing);
+            async = req.isAsyncStarted();
+        } finally {
+            // Асинхронный ответ дописывает его владелец через finish(response) до AsyncContext.complete()
+            if (!async) {
+                compressing.finish();
+            }
+        }
+    }
+
+    /**
+     * Завершает сжатие ответа, если он (в том числе под другими обертками) сжимается этим фильтром.
+     * Асинхронный обработчик вызывает его до AsyncContext.complete(): после complete() писать в ответ нельзя
+     */
+    public static void finish(ServletResponse response) throws IOException {
+        ServletResponse current = response;
+        while (current instanceof ServletResponseWrapper wrapper) {
+            if (current instanceof CompressionResponse compressing) {
+                compressing.finish();
+                return;
+            }
+            current = wrapper.getResponse();
+        }
+    }
+
+    /**
+     * Выбирает кодирование с наибольшим q из поддерживаемых; при равных q - по порядку encodings.
+     * * относится ко всем не перечисленным явно кодированиям, q=0 запрещает кодирование. null - сжимать нельзя
+     */
+    static String negotiate(String acceptEncoding, List<String> encodings) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double[] weights = new double[encodings.size()];
+        boolean[] explicit = new boolean[encodings.size()];
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("*")) {
+                wildcard = q;
+                continue;
+            }
+            int index = encodings.indexOf(coding);
+            if (index >= 0) {
+                weights[index] = q;
+                explicit[index] = true;
+            }
+        }
+
+        String best = null;
+        double bestWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double weight = explicit[i] ? weights[i] : Math.max(wildcard, 0);
+            if (weight > bestWeight) {
+                best = encodings.get(i);
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,425 @@
+package com.prishedko.filter;
+
+import com.prishedko.metrics.CompressionMetrics;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Ответ, сжимающий тело на лету. Первые minSize байт копятся в буфере: если тело оказалось меньше
+ * или тип содержимого не сжимается, оно уходит как есть с Content-Length; иначе выставляется
+ * Content-Encoding и дальше данные идут через Deflater без накопления всего тела
+ */
+class CompressionResponse extends HttpServletResponseWrapper {
+    private static final int CHUNK_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String encoding;
+    private final int minSize;
+    private final int level;
+    private final Set<String> mimeTypes;
+    private final CompressionMetrics metrics;
+
+    private CompressingStream stream;
+    private PrintWriter writer;
+    private long contentLength = -1;
+    private boolean encodedByServlet;
+
+    CompressionResponse(HttpServletResponse response, String encoding, int minSize, int level,
+                        Set<String> mimeTypes, CompressionMetrics metrics) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.level = level;
+        this.mimeTypes = mimeTypes;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            // Как и контейнер, фиксируем кодировку в Content-Type в момент получения Writer
+            String charset = getCharacterEncoding();
+            setCharacterEncoding(charset);
+            writer = new PrintWriter(new OutputStreamWriter(stream(), charset));
+        }
+        return writer;
+    }
+
+    private CompressingStream stream() throws IOException {
+        if (stream == null) {
+            stream = new CompressingStream(super.getOutputStream());
+        }
+        return stream;
+    }
+
+    /**
+     * Дописывает тело: отправляет буфер или завершает сжатый поток. Повторный вызов ничего не делает
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        // После выставления Content-Encoding ответ нельзя заменить ошибкой, даже если контейнер его еще не отправил
+        return (stream != null && stream.state == State.COMPRESSING) || super.isCommitted();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (stream != null) {
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null) {
+            stream.discard();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        contentLength = -1;
+        encodedByServlet = false;
+        if (stream != null) {
+            stream.discard();
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        discardBuffered();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discardBuffered();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        discardBuffered();
+        super.sendRedirect(location);
+    }
+
+    private void discardBuffered() {
+        if (stream != null) {
+            stream.abandon();
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!intercept(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!intercept(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!intercept(name, Integer.toString(value))) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (!intercept(name, Integer.toString(value))) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    /**
+     * Content-Length откладывается до решения о сжатии; свой Content-Encoding отключает сжатие
+     */
+    private boolean intercept(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            contentLength = value != null ? Long.parseLong(value) : -1;
+            return true;
+        }
+        if ("Content-Encoding".equalsIgnoreCase(name)) {
+            encodedByServlet = true;
+        }
+        return false;
+    }
+
+    private boolean compressible() {
+        if (encodedByServlet || (contentLength >= 0 && contentLength < minSize)) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+        return mimeTypes.contains(mimeType.toLowerCase());
+    }
+
+    private enum State {
+        BUFFERING, IDENTITY, COMPRESSING, FINISHED
+    }
+
+    private final class CompressingStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+        private State state = State.BUFFERING;
+        private byte[] buffer = new byte[0];
+        private int count;
+        private Deflater deflater;
+        private CRC32 crc;
+        private byte[] chunk;
+        private long bytesIn;
+        private long bytesOut;
+        private long deflateNanos;
+
+        CompressingStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (state == State.FINISHED) {
+                throw new IOException("Response body has already been finished");
+            }
+            bytesIn += len;
+            if (state == State.BUFFERING) {
+                if (count + len <= minSize) {
+                    if (count + len > buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.min(minSize, Math.max(count + len, buffer.length * 2)));
+                    }
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                start(compressible());
+            }
+            if (state == State.COMPRESSING) {
+                deflate(b, off, len);
+            } else {
+                writeOut(b, off, len);
+            }
+        }
+
+        /**
+         * Решение принято: переключаемся на сжатие или прямую запись и выгружаем буфер
+         */
+        private void start(boolean compress) throws IOException {
+            if (compress) {
+                state = State.COMPRESSING;
+                boolean gzip = "gzip".equals(encoding);
+                deflater = new Deflater(level, gzip);
+                chunk = new byte[CHUNK_SIZE];
+                CompressionResponse.super.setHeader("Content-Encoding", encoding);
+                tagEncoding();
+                if (gzip) {
+                    crc = new CRC32();
+                    writeOut(GZIP_HEADER, 0, GZIP_HEADER.length);
+                }
+                deflate(buffer, 0, count);
+            } else {
+                state = State.IDENTITY;
+                if (contentLength >= 0) {
+                    CompressionResponse.super.setContentLengthLong(contentLength);
+                }
+                writeOut(buffer, 0, count);
+            }
+            buffer = null;
+            count = 0;
+        }
+
+        /**
+         * Сжатое представление отличается от исходного, поэтому сильный ETag получает суффикс кодирования
+         */
+        private void tagEncoding() {
+            String etag = getHeader("ETag");
+            if (etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")) {
+                CompressionResponse.super.setHeader("ETag",
+                        etag.substring(0, etag.length() - 1) + "-" + encoding + "\"");
+            }
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        /**
+         * Один вызов Deflater.deflate; время записи в сокет в метрику сжатия не входит
+         */
+        private int drain(int flush) throws IOException {
+            long start = System.nanoTime();
+            int n = deflater.deflate(chunk, 0, chunk.length, flush);
+            deflateNanos += System.nanoTime() - start;
+            if (n > 0) {
+                writeOut(chunk, 0, n);
+            }
+            return n;
+        }
+
+        private void writeOut(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesOut += len;
+        }
+
+        /**
+         * Пока копится буфер, flush ничего не отправляет: данных меньше minSize.
+         * Сжатый поток сбрасывается через SYNC_FLUSH, чтобы клиент мог разобрать уже отправленное
+         */
+        @Override
+        public void flush() throws IOException {
+            if (state == State.COMPRESSING) {
+                while (drain(Deflater.SYNC_FLUSH) == chunk.length) {
+                    // Буфер заполнен целиком - в Deflater могут оставаться данные
+                }
+                out.flush();
+            } else if (state == State.IDENTITY) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        void finish() throws IOException {
+            try {
+                if (state == State.BUFFERING) {
+                    if (contentLength < 0 && !CompressionResponse.super.isCommitted()) {
+                        contentLength = count;
+                    }
+                    start(false);
+                }
+                if (state == State.COMPRESSING) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        drain(Deflater.NO_FLUSH);
+                    }
+                    if (crc != null) {
+                        writeTrailer();
+                    }
+                }
+                if (state != State.FINISHED) {
+                    metrics.record(CompressionMetrics.encoding(state == State.COMPRESSING ? encoding : "identity"),
+                            bytesIn, bytesOut, deflateNanos);
+                }
+            } finally {
+                end();
+            }
+        }
+
+        private void writeTrailer() throws IOException {
+            long value = crc.getValue();
+            long size = deflater.getBytesRead();
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (value >>> (8 * i));
+                trailer[4 + i] = (byte) (size >>> (8 * i));
+            }
+            writeOut(trailer, 0, trailer.length);
+        }
+
+        /**
+         * Ответ заменяется ошибкой или сбрасывается: накопленное тело не отправляется
+         */
+        void discard() {
+            if (state == State.BUFFERING) {
+                count = 0;
+                bytesIn = 0;
+            }
+        }
+
+        /**
+         * Тело заменяет контейнер (страница ошибки, редирект): накопленное не отправляется и заголовки не трогаются
+         */
+        void abandon() {
+            if (state == State.BUFFERING) {
+                end();
+            }
+        }
+
+        private void end() {
+            state = State.FINISHED;
+            if (deflater != null) {
+                // Нативная память zlib освобождается явно, не дожидаясь GC
+                deflater.end();
+                deflater = null;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.prishedko.filter;
+
+import com.prishedko.config.AppConfig;
+import com.prishedko.metrics.DbTrace;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.RequestMetrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Замеряет время обработки запросов к API по маршруту и методу. Для асинхронных запросов
+ * замер завершается по окончании AsyncContext. Обращения к БД собираются в DbTrace запроса;
+ * запросы дольше metrics.slowRequestMs пишутся в лог с разбивкой по методам репозиториев
+ */
+public class MetricsFilter implements Filter {
+    private static final Logger log = Logger.getLogger(MetricsFilter.class.getName());
+
+    private final RequestMetrics metrics;
+    private final long slowRequestMicros;
+
+    public MetricsFilter() {
+        this(new RequestMetrics(), AppConfig.getLong("metrics.slowRequestMs", 1000));
+    }
+
+    public MetricsFilter(RequestMetrics metrics, long slowRequestMs) {
+        this.metrics = metrics;
+        this.slowRequestMicros = slowRequestMs * 1000;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        MetricsRegistry.register("http", metrics);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest req) || !(response instanceof HttpServletResponse resp)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int route = RequestMetrics.route(req.getServletPath());
+        int method = RequestMetrics.method(req.getMethod());
+        metrics.started(route);
+        DbTrace trace = new DbTrace();
+        req.setAttribute(DbTrace.ATTRIBUTE, trace);
+        DbTrace previous = DbTrace.bind(trace);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            DbTrace.restore(previous);
+            if (!failed && req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new CompletionListener(req, resp, route, method, start, trace));
+            } else {
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : resp.getStatus();
+                completed(req, route, method, status, start, trace);
+            }
+        }
+    }
+
+    private void completed(HttpServletRequest req, int route, int method, int status, long start, DbTrace trace) {
+        long micros = (System.nanoTime() - start) / 1000;
+        metrics.completed(route, method, status, micros);
+        if (micros >= slowRequestMicros) {
+            log.warning(String.format(Locale.ROOT, "Slow request %s %s: %d ms, status %d, db: %s",
+                    req.getMethod(), req.getRequestURI(), micros / 1000, status, trace));
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final int route;
+        private final int method;
+        private final long start;
+        private final DbTrace trace;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response, int route, int method,
+                           long start, DbTrace trace) {
+            this.request = request;
+            this.response = response;
+            this.route = route;
+            this.method = method;
+            this.start = start;
+            this.trace = trace;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed(request, route, method, response.getStatus(), start, trace);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
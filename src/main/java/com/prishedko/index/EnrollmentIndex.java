@@ -0,0 +1,287 @@
+package com.prishedko.index;
+
+import com.prishedko.config.DatabaseConfig;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.PrometheusWriter;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Индекс участников курсов и школ в сжатых битовых картах (Roaring): курс -> студенты и учителя,
+ * школа -> студенты и учителя. Пересечения, объединения и разности считаются в памяти без БД.
+ * Опубликованная карта не изменяется: запись строит копию и подменяет ее, поэтому чтение идет без блокировок
+ */
+public class EnrollmentIndex {
+    private static volatile EnrollmentIndex instance;
+
+    /**
+     * Вид участников курса
+     */
+    public enum Member {
+        STUDENTS, TEACHERS
+    }
+
+    private final Map<Long, Roaring64Bitmap> courseStudents = new ConcurrentHashMap<>();
+    private final Map<Long, Roaring64Bitmap> courseTeachers = new ConcurrentHashMap<>();
+    private final Map<Long, Roaring64Bitmap> schoolStudents = new ConcurrentHashMap<>();
+    private final Map<Long, Roaring64Bitmap> schoolTeachers = new ConcurrentHashMap<>();
+
+    public static EnrollmentIndex getInstance() {
+        if (instance == null) {
+            synchronized (EnrollmentIndex.class) {
+                if (instance == null) {
+                    try {
+                        instance = load();
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Failed to build enrollment index", e);
+                    }
+                    MetricsRegistry.register("enrollment_index", instance::writeTo);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Строит индекс по students_courses, teachers_courses и принадлежности к школам
+     */
+    public static EnrollmentIndex load() throws SQLException {
+        EnrollmentIndex index = new EnrollmentIndex();
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            // Драйвер PostgreSQL читает курсором порциями (setFetchSize) только внутри транзакции
+            connection.setAutoCommit(false);
+            try {
+                fill(connection, "SELECT course_id, student_id FROM students_courses", index.courseStudents);
+                fill(connection, "SELECT course_id, teacher_id FROM teachers_courses", index.courseTeachers);
+                fill(connection, "SELECT school_id, id FROM students", index.schoolStudents);
+                fill(connection, "SELECT school_id, id FROM teachers", index.schoolTeachers);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return index;
+    }
+
+    private static void fill(Connection connection, String sql, Map<Long, Roaring64Bitmap> target) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setFetchSize(10_000);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                target.computeIfAbsent(rs.getLong(1), key -> new Roaring64Bitmap()).addLong(rs.getLong(2));
+            }
+        }
+        target.values().forEach(Roaring64Bitmap::runOptimize);
+    }
+
+    /**
+     * Участники, записанные на все курсы all, хотя бы на один из any, ни на один из none
+     * и состоящие в школе schoolId. Пустые и null-условия не применяются, но хотя бы одно
+     * из all, any и schoolId должно быть задано. Возвращает новую карту
+     */
+    public Roaring64Bitmap query(Member member, Collection<Long> all, Collection<Long> any,
+                                 Collection<Long> none, Long schoolId) {
+        Map<Long, Roaring64Bitmap> courses = member == Member.STUDENTS ? courseStudents : courseTeachers;
+        Roaring64Bitmap result = null;
+        if (all != null) {
+            for (Long courseId : all) {
+                result = intersect(result, courses.get(courseId));
+            }
+        }
+        if (any != null && !any.isEmpty()) {
+            Roaring64Bitmap union = new Roaring64Bitmap();
+            for (Long courseId : any) {
+                Roaring64Bitmap members = courses.get(courseId);
+                if (members != null) {
+                    union.or(members);
+                }
+            }
+            if (result == null) {
+                result = union;
+            } else {
+                result.and(union);
+            }
+        }
+        if (schoolId != null) {
+            Map<Long, Roaring64Bitmap> schools = member == Member.STUDENTS ? schoolStudents : schoolTeachers;
+            result = intersect(result, schools.get(schoolId));
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("At least one of all, any or schoolId is required");
+        }
+        if (none != null) {
+            for (Long courseId : none) {
+                Roaring64Bitmap members = courses.get(courseId);
+                if (members != null) {
+                    result.andNot(members);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Roaring64Bitmap intersect(Roaring64Bitmap result, Roaring64Bitmap members) {
+        if (members == null) {
+            return new Roaring64Bitmap();
+        }
+        if (result == null) {
+            // Опубликованные карты не изменяются, поэтому первый операнд копируется
+            return members.clone();
+        }
+        result.and(members);
+        return result;
+    }
+
+    /**
+     * Записывает участников нового курса
+     */
+    public synchronized void addCourse(long courseId, Collection<Long> teacherIds, Collection<Long> studentIds) {
+        update(courseTeachers, courseId, bitmap -> teacherIds.forEach(bitmap::addLong));
+        update(courseStudents, courseId, bitmap -> studentIds.forEach(bitmap::addLong));
+    }
+
+    public synchronized void removeCourse(long courseId) {
+        courseTeachers.remove(courseId);
+        courseStudents.remove(courseId);
+    }
+
+    /**
+     * Записывает участников на существующий курс
+     */
+    public synchronized void addMembers(Member member, long courseId, long[] ids) {
+        update(member == Member.STUDENTS ? courseStudents : courseTeachers, courseId, bitmap -> {
+            for (long id : ids) {
+                bitmap.addLong(id);
+            }
+        });
+    }
+
+    public synchronized void removeMembers(Member member, long courseId, long[] ids) {
+        Map<Long, Roaring64Bitmap> courses = member == Member.STUDENTS ? courseStudents : courseTeachers;
+        if (courses.containsKey(courseId)) {
+            update(courses, courseId, bitmap -> {
+                for (long id : ids) {
+                    bitmap.removeLong(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Добавляет студента в школу; при переводе студент убирается из прежней школы
+     */
+    public synchronized void addStudent(long schoolId, long studentId) {
+        removeFromAll(schoolStudents, studentId, schoolId);
+        update(schoolStudents, schoolId, bitmap -> bitmap.addLong(studentId));
+    }
+
+    /**
+     * Добавляет в школу только что созданных студентов: карта школы копируется один раз,
+     * а прежних школ у новых id нет, поэтому поиск по остальным школам не нужен
+     */
+    public synchronized void addStudents(long schoolId, long[] studentIds) {
+        update(schoolStudents, schoolId, bitmap -> bitmap.add(studentIds));
+    }
+
+    /**
+     * Убирает студента из школы и всех курсов
+     */
+    public synchronized void removeStudent(long studentId) {
+        removeFromAll(schoolStudents, studentId, null);
+        removeFromAll(courseStudents, studentId, null);
+    }
+
+    /**
+     * Добавляет учителя в школу; при переводе учитель убирается из прежней школы
+     */
+    public synchronized void addTeacher(long schoolId, long teacherId) {
+        removeFromAll(schoolTeachers, teacherId, schoolId);
+        update(schoolTeachers, schoolId, bitmap -> bitmap.addLong(teacherId));
+    }
+
+    /**
+     * Убирает учителя из школы и всех курсов
+     */
+    public synchronized void removeTeacher(long teacherId) {
+        removeFromAll(schoolTeachers, teacherId, null);
+        removeFromAll(courseTeachers, teacherId, null);
+    }
+
+    /**
+     * Удаление школы каскадно удаляет ее студентов и учителей вместе с записями на курсы
+     */
+    public synchronized void removeSchool(long schoolId) {
+        Roaring64Bitmap students = schoolStudents.remove(schoolId);
+        if (students != null) {
+            removeAllFromAll(courseStudents, students);
+        }
+        Roaring64Bitmap teachers = schoolTeachers.remove(schoolId);
+        if (teachers != null) {
+            removeAllFromAll(courseTeachers, teachers);
+        }
+    }
+
+    /**
+     * Копирует карту по ключу, применяет изменение и публикует копию; пустая карта удаляется
+     */
+    private static void update(Map<Long, Roaring64Bitmap> map, long key, Consumer<Roaring64Bitmap> change) {
+        Roaring64Bitmap current = map.get(key);
+        Roaring64Bitmap copy = current != null ? current.clone() : new Roaring64Bitmap();
+        change.accept(copy);
+        if (copy.isEmpty()) {
+            map.remove(key);
+        } else {
+            copy.runOptimize();
+            map.put(key, copy);
+        }
+    }
+
+    private static void removeFromAll(Map<Long, Roaring64Bitmap> map, long id, Long exceptKey) {
+        for (Map.Entry<Long, Roaring64Bitmap> entry : map.entrySet()) {
+            if (!entry.getKey().equals(exceptKey) && entry.getValue().contains(id)) {
+                update(map, entry.getKey(), bitmap -> bitmap.removeLong(id));
+            }
+        }
+    }
+
+    private static void removeAllFromAll(Map<Long, Roaring64Bitmap> map, Roaring64Bitmap ids) {
+        for (Map.Entry<Long, Roaring64Bitmap> entry : map.entrySet()) {
+            if (Roaring64Bitmap.intersects(entry.getValue(), ids)) {
+                update(map, entry.getKey(), bitmap -> bitmap.andNot(ids));
+            }
+        }
+    }
+
+    /**
+     * Размер индекса в формате Prometheus
+     */
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        String[] names = {"course_students", "course_teachers", "school_students", "school_teachers"};
+        Map<?, ?>[] maps = {courseStudents, courseTeachers, schoolStudents, schoolTeachers};
+        writer.family("enrollment_index_sets", "gauge", "Bitmaps in the enrollment index");
+        for (int i = 0; i < maps.length; i++) {
+            writer.sample("enrollment_index_sets", maps[i].size(), "index", names[i]);
+        }
+        long bytes = 0;
+        for (Map<Long, Roaring64Bitmap> map : List.of(courseStudents, courseTeachers, schoolStudents, schoolTeachers)) {
+            for (Roaring64Bitmap bitmap : map.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+        }
+        writer.family("enrollment_index_bytes", "gauge", "Approximate heap used by the enrollment index bitmaps");
+        writer.sample("enrollment_index_bytes", bytes);
+    }
+}
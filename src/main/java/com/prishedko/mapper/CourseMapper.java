@@ -1,6 +1,7 @@
 package com.prishedko.mapper;
 
 import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.IdList;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.Student;
 import com.prishedko.entity.Teacher;
@@ -11,8 +12,8 @@ public class CourseMapper {
         CourseDTO dto = new CourseDTO();
         dto.setId(course.getId());
         dto.setName(course.getName());
-        dto.setStudentIds(course.getStudents().stream().map(Student::getId).toList());
-        dto.setTeacherIds(course.getTeachers().stream().map(Teacher::getId).toList());
+        dto.setStudentIds(IdList.collect(course.getStudents(), Student::getId));
+        dto.setTeacherIds(IdList.collect(course.getTeachers(), Teacher::getId));
         return dto;
     }
 }
@@ -1,5 +1,6 @@
 package com.prishedko.mapper;
 
+import com.prishedko.dto.IdList;
 import com.prishedko.dto.SchoolDTO;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
@@ -10,8 +11,8 @@ public class SchoolMapper {
         SchoolDTO dto = new SchoolDTO();
         dto.setId(school.getId());
         dto.setName(school.getName());
-        dto.setStudentIds(school.getStudents().stream().map(Student::getId).toList());
-        dto.setTeacherIds(school.getTeachers().stream().map(Teacher::getId).toList());
+        dto.setStudentIds(IdList.collect(school.getStudents(), Student::getId));
+        dto.setTeacherIds(IdList.collect(school.getTeachers(), Teacher::getId));
         return dto;
     }
 }
@@ -1,5 +1,6 @@
 package com.prishedko.mapper;
 
+import com.prishedko.dto.IdList;
 import com.prishedko.dto.StudentDTO;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.Student;
@@ -10,7 +11,7 @@ public class StudentMapper {
         dto.setId(student.getId());
         dto.setName(student.getName());
         dto.setSchoolId(student.getSchool().getId());
-        dto.setCourseIds(student.getCourses().stream().map(Course::getId).toList());
+        dto.setCourseIds(IdList.collect(student.getCourses(), Course::getId));
         return dto;
     }
 }
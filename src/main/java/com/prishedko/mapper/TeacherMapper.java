@@ -1,5 +1,6 @@
 package com.prishedko.mapper;
 
+import com.prishedko.dto.IdList;
 import com.prishedko.dto.TeacherDTO;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.Teacher;
@@ -11,7 +12,7 @@ public class TeacherMapper {
         dto.setId(teacher.getId());
         dto.setName(teacher.getName());
         dto.setSchoolId(teacher.getSchool().getId());
-        dto.setCourseIds(teacher.getCourses().stream().map(Course::getId).toList());
+        dto.setCourseIds(IdList.collect(teacher.getCourses(), Course::getId));
         return dto;
     }
 }
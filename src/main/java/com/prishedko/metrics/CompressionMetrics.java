@@ -0,0 +1,72 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики сжатия ответов по кодированию: сколько байт ушло в сеть, сколько было до сжатия
+ * и сколько времени потрачено в Deflater (без ожидания записи в сокет)
+ */
+public class CompressionMetrics implements MetricsSource {
+    /** Кодирования в порядке индексов record */
+    public static final String[] ENCODINGS = {"identity", "gzip", "deflate"};
+
+    private final LongAdder[] responses = adders();
+    private final LongAdder[] bytesIn = adders();
+    private final LongAdder[] bytesOut = adders();
+    private final LongAdder[] deflateNanos = adders();
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[ENCODINGS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public static int encoding(String name) {
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            if (ENCODINGS[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown encoding: " + name);
+    }
+
+    /**
+     * Завершенный ответ: тело до сжатия, тело в сети и время сжатия
+     */
+    public void record(int encoding, long uncompressedBytes, long wireBytes, long nanos) {
+        responses[encoding].increment();
+        bytesIn[encoding].add(uncompressedBytes);
+        bytesOut[encoding].add(wireBytes);
+        deflateNanos[encoding].add(nanos);
+    }
+
+    public long getResponses(int encoding) {
+        return responses[encoding].sum();
+    }
+
+    public long getWireBytes(int encoding) {
+        return bytesOut[encoding].sum();
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("http_compression_responses_total", "counter", "Responses by content coding");
+        writeAll(writer, "http_compression_responses_total", responses, 1);
+        writer.family("http_compression_uncompressed_bytes_total", "counter", "Response body bytes before compression");
+        writeAll(writer, "http_compression_uncompressed_bytes_total", bytesIn, 1);
+        writer.family("http_compression_wire_bytes_total", "counter", "Response body bytes sent to the client");
+        writeAll(writer, "http_compression_wire_bytes_total", bytesOut, 1);
+        writer.family("http_compression_seconds_total", "counter", "Time spent compressing response bodies");
+        writeAll(writer, "http_compression_seconds_total", deflateNanos, 1e-9);
+    }
+
+    private static void writeAll(PrometheusWriter writer, String name, LongAdder[] values, double scale)
+            throws IOException {
+        for (int i = 0; i < ENCODINGS.length; i++) {
+            writer.sample(name, values[i].sum() * scale, "encoding", ENCODINGS[i]);
+        }
+    }
+}
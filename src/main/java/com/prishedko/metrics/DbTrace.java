@@ -0,0 +1,89 @@
+package com.prishedko.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Обращения к БД в рамках одного запроса: по каждому методу репозитория число соединений,
+ * суммарное ожидание и время работы. Текущая трассировка привязывается к потоку,
+ * который выполняет запрос
+ */
+public final class DbTrace {
+    /**
+     * Атрибут запроса, через который трассировка передается в асинхронный обработчик
+     */
+    public static final String ATTRIBUTE = DbTrace.class.getName();
+
+    private static final ThreadLocal<DbTrace> CURRENT = new ThreadLocal<>();
+
+    // Значение: {соединений, ожидание нс, работа нс}
+    private Map<String, long[]> byMethod;
+    private long waitNanos;
+    private long useNanos;
+
+    public static DbTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Делает трассировку текущей для потока и возвращает предыдущую
+     */
+    public static DbTrace bind(DbTrace trace) {
+        DbTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return previous;
+    }
+
+    public static void restore(DbTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public synchronized void record(String method, long waitNanos, long useNanos) {
+        if (byMethod == null) {
+            byMethod = new LinkedHashMap<>();
+        }
+        long[] totals = byMethod.computeIfAbsent(method, key -> new long[3]);
+        totals[0]++;
+        totals[1] += waitNanos;
+        totals[2] += useNanos;
+        this.waitNanos += waitNanos;
+        this.useNanos += useNanos;
+    }
+
+    public synchronized long getWaitNanos() {
+        return waitNanos;
+    }
+
+    public synchronized long getUseNanos() {
+        return useNanos;
+    }
+
+    public synchronized boolean isEmpty() {
+        return byMethod == null;
+    }
+
+    /**
+     * Например: SchoolRepository.findById x1 wait=0.12ms sql=1.40ms
+     */
+    @Override
+    public synchronized String toString() {
+        if (byMethod == null) {
+            return "no database calls";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : byMethod.entrySet()) {
+            if (!sb.isEmpty()) {
+                sb.append("; ");
+            }
+            long[] totals = entry.getValue();
+            sb.append(entry.getKey()).append(" x").append(totals[0])
+                    .append(String.format(Locale.ROOT, " wait=%.2fms sql=%.2fms", totals[1] / 1e6, totals[2] / 1e6));
+        }
+        return sb.toString();
+    }
+}
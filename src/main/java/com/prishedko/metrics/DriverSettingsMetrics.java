@@ -0,0 +1,57 @@
+package com.prishedko.metrics;
+
+import org.postgresql.PGProperty;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Подготовленные запросы драйвера PostgreSQL: настройки db.dataSource.* (для незаданных - значения
+ * драйвера по умолчанию) и число выполнений, подготовленных на сервере и отправленных без подготовки.
+ * Драйвер не отдает статистику своего кэша, поэтому режим выполнения считается по каждому запросу
+ */
+public class DriverSettingsMetrics implements MetricsSource {
+    private static final List<PGProperty> SETTINGS = List.of(
+            PGProperty.PREPARE_THRESHOLD,
+            PGProperty.PREPARED_STATEMENT_CACHE_QUERIES,
+            PGProperty.PREPARED_STATEMENT_CACHE_SIZE_MIB);
+
+    private final Map<String, Long> settings = new TreeMap<>();
+    private final LongAdder serverPrepared = new LongAdder();
+    private final LongAdder unprepared = new LongAdder();
+
+    public DriverSettingsMetrics(Properties dataSourceProperties) {
+        for (PGProperty setting : SETTINGS) {
+            String value = dataSourceProperties.getProperty(setting.getName(), setting.getDefaultValue());
+            settings.put(setting.getName(), Long.parseLong(value.trim()));
+        }
+    }
+
+    public long get(String name) {
+        return settings.get(name);
+    }
+
+    /**
+     * Учитывает выполнение подготовленного запроса; serverPrepared - драйвер выполняет его
+     * как подготовленный на сервере (PGStatement.isUseServerPrepare перед выполнением)
+     */
+    public void recordExecution(boolean serverPrepared) {
+        (serverPrepared ? this.serverPrepared : unprepared).increment();
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("db_driver_setting", "gauge", "Configured PostgreSQL driver prepared statement settings");
+        for (Map.Entry<String, Long> setting : settings.entrySet()) {
+            writer.sample("db_driver_setting", setting.getValue(), "name", setting.getKey());
+        }
+        writer.family("db_statement_server_prepared_total", "counter",
+                "Prepared statement executions by whether the driver used a server-side prepared statement");
+        writer.sample("db_statement_server_prepared_total", serverPrepared.sum(), "result", "true");
+        writer.sample("db_statement_server_prepared_total", unprepared.sum(), "result", "false");
+    }
+}
@@ -0,0 +1,46 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Все источники метрик приложения; повторная регистрация под тем же именем заменяет источник
+ */
+public final class MetricsRegistry {
+    private static final Map<String, MetricsSource> sources = new LinkedHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static synchronized void register(String name, MetricsSource source) {
+        sources.put(name, source);
+    }
+
+    public static synchronized void unregister(String name) {
+        sources.remove(name);
+    }
+
+    /**
+     * Обнуляет счетчики всех источников: запросы прогрева не должны попадать в метрики клиентского трафика
+     */
+    public static void resetAll() {
+        List<MetricsSource> snapshot;
+        synchronized (MetricsRegistry.class) {
+            snapshot = new ArrayList<>(sources.values());
+        }
+        snapshot.forEach(MetricsSource::reset);
+    }
+
+    public static void writeTo(PrometheusWriter writer) throws IOException {
+        List<MetricsSource> snapshot;
+        synchronized (MetricsRegistry.class) {
+            snapshot = new ArrayList<>(sources.values());
+        }
+        for (MetricsSource source : snapshot) {
+            source.writeTo(writer);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+
+/**
+ * Источник метрик, который выводит свои значения при запросе /metrics
+ */
+@FunctionalInterface
+public interface MetricsSource {
+    void writeTo(PrometheusWriter writer) throws IOException;
+
+    /**
+     * Обнуляет накопленные счетчики, например после прогрева; по умолчанию ничего не делает
+     */
+    default void reset() {
+    }
+}
@@ -0,0 +1,100 @@
+package com.prishedko.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Метрики пула соединений: время ожидания и использования соединений, создание, таймауты
+ * и текущее состояние пула. Подключается к Hikari как MetricsTrackerFactory; ожидание на семафоре
+ * DatabaseConfig записывается отдельно
+ */
+public class PoolMetrics implements MetricsTrackerFactory, MetricsSource {
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LatencyHistogram creation = new LatencyHistogram();
+    private final LatencyHistogram permitWait = new LatencyHistogram();
+    private final LongAdder poolTimeouts = new LongAdder();
+    private final LongAdder permitTimeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+    private volatile IntSupplier queuedForPermit = () -> 0;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.record(connectionCreatedMillis * 1000);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos / 1000);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(elapsedBorrowedMillis * 1000);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                poolTimeouts.increment();
+            }
+        };
+    }
+
+    public void recordPermitWait(long nanos) {
+        permitWait.record(nanos / 1000);
+    }
+
+    public void recordPermitTimeout() {
+        permitTimeouts.increment();
+    }
+
+    /**
+     * Источник числа потоков, ожидающих разрешения семафора
+     */
+    public void setQueuedForPermit(IntSupplier queuedForPermit) {
+        this.queuedForPermit = queuedForPermit;
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        summary(writer, "db_pool_acquire_seconds", "Time to get a connection from Hikari", acquire);
+        summary(writer, "db_pool_usage_seconds", "Time a connection was borrowed", usage);
+        summary(writer, "db_pool_creation_seconds", "Time to open a physical connection", creation);
+        summary(writer, "db_permit_wait_seconds", "Time waiting for the database concurrency permit", permitWait);
+
+        writer.family("db_pool_timeouts_total", "counter", "Connection requests that timed out");
+        writer.sample("db_pool_timeouts_total", poolTimeouts.sum(), "stage", "pool");
+        writer.sample("db_pool_timeouts_total", permitTimeouts.sum(), "stage", "permit");
+
+        PoolStats stats = poolStats;
+        writer.family("db_pool_connections", "gauge", "Connections by state");
+        if (stats != null) {
+            writer.sample("db_pool_connections", stats.getActiveConnections(), "state", "active");
+            writer.sample("db_pool_connections", stats.getIdleConnections(), "state", "idle");
+            writer.sample("db_pool_connections", stats.getTotalConnections(), "state", "total");
+            writer.sample("db_pool_connections", stats.getMaxConnections(), "state", "max");
+        }
+        writer.family("db_pool_pending_threads", "gauge", "Threads waiting for a connection");
+        writer.sample("db_pool_pending_threads", stats != null ? stats.getPendingThreads() : 0, "stage", "pool");
+        writer.sample("db_pool_pending_threads", queuedForPermit.getAsInt(), "stage", "permit");
+    }
+
+    static void summary(PrometheusWriter writer, String name, String help, LatencyHistogram histogram)
+            throws IOException {
+        writer.family(name, "summary", help);
+        for (double q : new double[]{0.5, 0.99, 0.999}) {
+            writer.sample(name, histogram.quantile(q) / 1e6, "quantile", Double.toString(q));
+        }
+        writer.sample(name + "_sum", histogram.getSumMicros() / 1e6);
+        writer.sample(name + "_count", histogram.getCount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Запись метрик в текстовом формате Prometheus 0.0.4
+ */
+public class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Writer out;
+
+    public PrometheusWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Заголовок семейства метрик: HELP и TYPE (counter, gauge, summary)
+     */
+    public void family(String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    /**
+     * Значение метрики; labels - пары имя, значение
+     */
+    public void sample(String name, double value, String... labels) throws IOException {
+        out.write(name);
+        if (labels.length > 0) {
+            out.write('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(labels[i]);
+                out.write("=\"");
+                out.write(escape(labels[i + 1]));
+                out.write('"');
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(format(value));
+        out.write('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,54 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Время ожидания соединения и время работы с ним (выполнение SQL) по методам репозиториев
+ */
+public class RepositoryMetrics implements MetricsSource {
+    private final Map<String, LatencyHistogram[]> byMethod = new ConcurrentHashMap<>();
+
+    /**
+     * method - "Класс.метод" репозитория, получившего соединение
+     */
+    public void record(String method, long waitNanos, long useNanos) {
+        LatencyHistogram[] histograms = byMethod.computeIfAbsent(method,
+                key -> new LatencyHistogram[]{new LatencyHistogram(), new LatencyHistogram()});
+        histograms[0].record(waitNanos / 1000);
+        histograms[1].record(useNanos / 1000);
+    }
+
+    public LatencyHistogram waitTime(String method) {
+        LatencyHistogram[] histograms = byMethod.get(method);
+        return histograms != null ? histograms[0] : null;
+    }
+
+    public LatencyHistogram useTime(String method) {
+        LatencyHistogram[] histograms = byMethod.get(method);
+        return histograms != null ? histograms[1] : null;
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        Map<String, LatencyHistogram[]> sorted = new TreeMap<>(byMethod);
+        writer.family("db_repository_seconds", "summary",
+                "Connection wait and usage (SQL execution) time by repository method");
+        for (Map.Entry<String, LatencyHistogram[]> entry : sorted.entrySet()) {
+            write(writer, entry.getKey(), "wait", entry.getValue()[0]);
+            write(writer, entry.getKey(), "execute", entry.getValue()[1]);
+        }
+    }
+
+    private static void write(PrometheusWriter writer, String method, String phase, LatencyHistogram histogram)
+            throws IOException {
+        for (double q : new double[]{0.5, 0.99}) {
+            writer.sample("db_repository_seconds", histogram.quantile(q) / 1e6,
+                    "method", method, "phase", phase, "quantile", Double.toString(q));
+        }
+        writer.sample("db_repository_seconds_sum", histogram.getSumMicros() / 1e6, "method", method, "phase", phase);
+        writer.sample("db_repository_seconds_count", histogram.getCount(), "method", method, "phase", phase);
+    }
+}
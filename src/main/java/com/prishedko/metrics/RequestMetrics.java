@@ -0,0 +1,136 @@
+package com.prishedko.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Метрики HTTP-запросов по маршруту и методу. Все счетчики лежат в массивах фиксированного
+ * размера, поэтому запись запроса не выделяет память
+ */
+public class RequestMetrics implements MetricsSource {
+    private static final String[] ROUTES = {
+            "/api/schools", "/api/teachers", "/api/students", "/api/courses", "/api/enrollments", "other"};
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "other"};
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int STATUS_CODES = 600;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[ROUTES.length * METHODS.length];
+    private final AtomicLongArray responses = new AtomicLongArray(ROUTES.length * METHODS.length * STATUS_CODES);
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(ROUTES.length);
+
+    public RequestMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Индекс маршрута по servletPath
+     */
+    public static int route(String servletPath) {
+        if (servletPath == null) {
+            return ROUTES.length - 1;
+        }
+        return switch (servletPath) {
+            case "/api/schools" -> 0;
+            case "/api/teachers" -> 1;
+            case "/api/students" -> 2;
+            case "/api/courses" -> 3;
+            case "/api/enrollments" -> 4;
+            default -> ROUTES.length - 1;
+        };
+    }
+
+    public static int method(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "POST" -> 1;
+            case "PUT" -> 2;
+            case "DELETE" -> 3;
+            default -> METHODS.length - 1;
+        };
+    }
+
+    public void started(int route) {
+        inFlight.incrementAndGet(route);
+    }
+
+    public void completed(int route, int method, int status, long micros) {
+        inFlight.decrementAndGet(route);
+        int slot = route * METHODS.length + method;
+        latencies[slot].record(micros);
+        if (status >= 0 && status < STATUS_CODES) {
+            responses.incrementAndGet(slot * STATUS_CODES + status);
+        }
+    }
+
+    public LatencyHistogram latency(int route, int method) {
+        return latencies[route * METHODS.length + method];
+    }
+
+    public int getInFlight(int route) {
+        return inFlight.get(route);
+    }
+
+    /**
+     * Обнуляет задержки и счетчики ответов; запросы в обработке - текущее состояние, они не сбрасываются
+     */
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        for (int i = 0; i < responses.length(); i++) {
+            responses.set(i, 0);
+        }
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("http_server_requests_seconds", "summary", "Request latency by route and method");
+        for (int r = 0; r < ROUTES.length; r++) {
+            for (int m = 0; m < METHODS.length; m++) {
+                LatencyHistogram histogram = latency(r, m);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                for (double q : QUANTILES) {
+                    writer.sample("http_server_requests_seconds", histogram.quantile(q) / 1e6,
+                            "route", ROUTES[r], "method", METHODS[m], "quantile", Double.toString(q));
+                }
+                writer.sample("http_server_requests_seconds_sum", histogram.getSumMicros() / 1e6,
+                        "route", ROUTES[r], "method", METHODS[m]);
+                writer.sample("http_server_requests_seconds_count", histogram.getCount(),
+                        "route", ROUTES[r], "method", METHODS[m]);
+            }
+        }
+
+        writer.family("http_server_requests_max_seconds", "gauge", "Maximum request latency by route and method");
+        for (int r = 0; r < ROUTES.length; r++) {
+            for (int m = 0; m < METHODS.length; m++) {
+                LatencyHistogram histogram = latency(r, m);
+                if (histogram.getCount() > 0) {
+                    writer.sample("http_server_requests_max_seconds", histogram.getMaxMicros() / 1e6,
+                            "route", ROUTES[r], "method", METHODS[m]);
+                }
+            }
+        }
+
+        writer.family("http_server_responses_total", "counter", "Responses by route, method and status code");
+        for (int slot = 0; slot < latencies.length; slot++) {
+            for (int status = 0; status < STATUS_CODES; status++) {
+                long count = responses.get(slot * STATUS_CODES + status);
+                if (count > 0) {
+                    writer.sample("http_server_responses_total", count, "route", ROUTES[slot / METHODS.length],
+                            "method", METHODS[slot % METHODS.length], "code", Integer.toString(status));
+                }
+            }
+        }
+
+        writer.family("http_server_requests_in_flight", "gauge", "Requests currently being processed");
+        for (int r = 0; r < ROUTES.length; r++) {
+            writer.sample("http_server_requests_in_flight", inFlight.get(r), "route", ROUTES[r]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.Cache;
+import com.prishedko.dto.IdList;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Пакетное чтение через кэш: попадания берутся из кэша, промахи загружаются одним запросом
+ */
+final class CacheLookups {
+
+    /**
+     * Загрузка сущностей по списку id
+     */
+    @FunctionalInterface
+    interface BatchLoader<T> {
+        List<T> load(Collection<Long> ids) throws SQLException;
+    }
+
+    private CacheLookups() {
+    }
+
+    static <T> List<T> findAllByIds(Cache<Long, T> cache, Collection<Long> ids, BatchLoader<T> loader,
+                                    Function<T, Long> idOf) throws SQLException {
+        long[] unique = SqlArrays.distinct(ids);
+        Map<Long, T> byId = new HashMap<>();
+        IdList misses = new IdList();
+        for (long id : unique) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                byId.put(id, cached);
+            } else {
+                misses.addLong(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long generation = cache.generation();
+            for (T entity : loader.load(misses)) {
+                Long id = idOf.apply(entity);
+                cache.putIfGeneration(id, entity, generation);
+                byId.put(id, entity);
+            }
+        }
+        return SqlArrays.inOrder(unique, byId);
+    }
+}
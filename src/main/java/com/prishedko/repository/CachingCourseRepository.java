@@ -0,0 +1,183 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.Cache;
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * CourseRepository с кэшированием findById. Изменение курса меняет связи
+ * teachers_courses и students_courses, поэтому инвалидируются и учителя со студентами
+ */
+public class CachingCourseRepository extends CourseRepository {
+    private final CourseRepository delegate;
+    private final EntityCaches caches;
+
+    public CachingCourseRepository(CourseRepository delegate, EntityCaches caches) {
+        this.delegate = delegate;
+        this.caches = caches;
+    }
+
+    @Override
+    public Course save(Course course) throws SQLException {
+        Course saved = delegate.save(course);
+        UnitOfWork.afterCommit(() -> invalidateMembers(course));
+        return saved;
+    }
+
+    @Override
+    public Course findById(Long id) throws SQLException {
+        Cache<Long, Course> cache = caches.courses();
+        Course cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.generation();
+        Course course = delegate.findById(id);
+        if (course != null) {
+            cache.putIfGeneration(id, course, generation);
+        }
+        return course;
+    }
+
+    /**
+     * Закэшированный курс старше minVersion сбрасывается и загружается заново
+     */
+    @Override
+    public Course findById(Long id, long minVersion) throws SQLException {
+        Course cached = caches.courses().peek(id);
+        if (cached != null && cached.getVersion() < minVersion) {
+            caches.courses().invalidate(id);
+        }
+        return findById(id);
+    }
+
+    @Override
+    public List<Course> findAllByIds(Collection<Long> ids) throws SQLException {
+        return CacheLookups.findAllByIds(caches.courses(), ids, delegate::findAllByIds, Course::getId);
+    }
+
+    @Override
+    public Course update(Course course) throws SQLException {
+        Course previous = caches.courses().peek(course.getId());
+        Course updated = delegate.update(course);
+        UnitOfWork.afterCommit(() -> invalidateRelations(course.getId(), previous));
+        return updated;
+    }
+
+    @Override
+    public int addStudents(long courseId, long[] studentIds) throws SQLException {
+        int added = delegate.addStudents(courseId, studentIds);
+        UnitOfWork.afterCommit(() -> invalidateLinks(courseId, caches.students(), studentIds));
+        return added;
+    }
+
+    @Override
+    public int removeStudents(long courseId, long[] studentIds) throws SQLException {
+        int removed = delegate.removeStudents(courseId, studentIds);
+        UnitOfWork.afterCommit(() -> invalidateLinks(courseId, caches.students(), studentIds));
+        return removed;
+    }
+
+    @Override
+    public int addTeachers(long courseId, long[] teacherIds) throws SQLException {
+        int added = delegate.addTeachers(courseId, teacherIds);
+        UnitOfWork.afterCommit(() -> invalidateLinks(courseId, caches.teachers(), teacherIds));
+        return added;
+    }
+
+    @Override
+    public int removeTeachers(long courseId, long[] teacherIds) throws SQLException {
+        int removed = delegate.removeTeachers(courseId, teacherIds);
+        UnitOfWork.afterCommit(() -> invalidateLinks(courseId, caches.teachers(), teacherIds));
+        return removed;
+    }
+
+    @Override
+    public boolean lockForUpdate(long courseId) throws SQLException {
+        return delegate.lockForUpdate(courseId);
+    }
+
+    @Override
+    public long[] findStudentIds(long courseId) throws SQLException {
+        // Состав читается из БД: по нему вычисляются изменения под блокировкой курса
+        return delegate.findStudentIds(courseId);
+    }
+
+    @Override
+    public long[] findTeacherIds(long courseId) throws SQLException {
+        return delegate.findTeacherIds(courseId);
+    }
+
+    @Override
+    public Long findVersion(Long id) throws SQLException {
+        // Версия всегда читается из БД: ее меняют и триггеры, о которых кэш не знает
+        return delegate.findVersion(id);
+    }
+
+    @Override
+    public void delete(Long id) throws SQLException {
+        Course previous = caches.courses().peek(id);
+        delegate.delete(id);
+        UnitOfWork.afterCommit(() -> invalidateRelations(id, previous));
+    }
+
+    @Override
+    public List<Course> findAll() throws SQLException {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Course> findPage(long afterId, int limit) throws SQLException {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(long afterId, int limit, RowConsumer<Course> consumer) throws SQLException, IOException {
+        delegate.streamAll(afterId, limit, consumer);
+    }
+
+    /**
+     * Инвалидирует курс и его участников. Если курса не было в кэше,
+     * участники неизвестны и сбрасываются кэши учителей и студентов целиком
+     */
+    private void invalidateRelations(Long id, Course previous) {
+        caches.courses().invalidate(id);
+        if (previous == null) {
+            caches.teachers().invalidateAll();
+            caches.students().invalidateAll();
+            return;
+        }
+        invalidateMembers(previous);
+    }
+
+    /**
+     * Изменились связи курса: в кэше устарели сам курс и списки курсов затронутых участников
+     */
+    private void invalidateLinks(long courseId, Cache<Long, ?> members, long[] memberIds) {
+        caches.courses().invalidate(courseId);
+        for (long id : memberIds) {
+            members.invalidate(id);
+        }
+    }
+
+    private void invalidateMembers(Course course) {
+        if (course.getTeachers() != null) {
+            for (Teacher teacher : course.getTeachers()) {
+                caches.teachers().invalidate(teacher.getId());
+            }
+        }
+        if (course.getStudents() != null) {
+            for (Student student : course.getStudents()) {
+                caches.students().invalidate(student.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.Cache;
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.dto.IdList;
+import com.prishedko.entity.School;
+import com.prishedko.entity.SchoolRoster;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SchoolRepository с кэшированием findById и инвалидацией при изменениях
+ */
+public class CachingSchoolRepository extends SchoolRepository {
+    private final SchoolRepository delegate;
+    private final EntityCaches caches;
+
+    public CachingSchoolRepository(SchoolRepository delegate, EntityCaches caches) {
+        this.delegate = delegate;
+        this.caches = caches;
+    }
+
+    @Override
+    public School save(School school) throws SQLException {
+        return delegate.save(school);
+    }
+
+    @Override
+    public School findById(Long id) throws SQLException {
+        Cache<Long, School> cache = caches.schools();
+        School cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.generation();
+        School school = delegate.findById(id);
+        if (school != null) {
+            cache.putIfGeneration(id, school, generation);
+        }
+        return school;
+    }
+
+    @Override
+    public List<School> findAllByIds(Collection<Long> ids) throws SQLException {
+        return CacheLookups.findAllByIds(caches.schools(), ids, delegate::findAllByIds, School::getId);
+    }
+
+    @Override
+    public School findById(Long id, FetchMode fetchMode) throws SQLException {
+        return delegate.findById(id, fetchMode);
+    }
+
+    @Override
+    public boolean streamRoster(Long id, SchoolRosterVisitor visitor) throws SQLException, IOException {
+        return streamRoster(id, 0, visitor);
+    }
+
+    /**
+     * Закэшированный состав или школа не старше minVersion отдаются из кэша. Иначе состав читается
+     * из БД потоком и попутно собирается в компактный SchoolRoster для следующих запросов
+     */
+    @Override
+    public boolean streamRoster(Long id, long minVersion, SchoolRosterVisitor visitor) throws SQLException, IOException {
+        Cache<Long, SchoolRoster> rosters = caches.rosters();
+        SchoolRoster roster = rosters.get(id);
+        if (roster != null && roster.version() < minVersion) {
+            // Школу изменили в обход кэша (например, триггером версии) - запись устарела
+            rosters.invalidate(id);
+            roster = null;
+        }
+        if (roster != null) {
+            replay(id, roster, visitor);
+            return true;
+        }
+        Cache<Long, School> schools = caches.schools();
+        School cached = schools.get(id);
+        if (cached != null && cached.getVersion() < minVersion) {
+            schools.invalidate(id);
+            cached = null;
+        }
+        if (cached != null) {
+            replay(cached, visitor);
+            return true;
+        }
+        long generation = rosters.generation();
+        RosterRecorder recorder = new RosterRecorder(visitor);
+        if (!delegate.streamRoster(id, recorder)) {
+            return false;
+        }
+        SchoolRoster loaded = recorder.roster();
+        if (loaded != null) {
+            rosters.putIfGeneration(id, loaded, generation);
+        }
+        return true;
+    }
+
+    private static void replay(long id, SchoolRoster roster, SchoolRosterVisitor visitor) throws IOException {
+        visitor.school(id, roster.name());
+        visitor.version(roster.version());
+        for (long teacherId : roster.teacherIds()) {
+            visitor.teacher(teacherId);
+        }
+        for (long studentId : roster.studentIds()) {
+            visitor.student(studentId);
+        }
+    }
+
+    private static void replay(School school, SchoolRosterVisitor visitor) throws IOException {
+        visitor.school(school.getId(), school.getName());
+        visitor.version(school.getVersion());
+        for (Teacher teacher : school.getTeachers()) {
+            visitor.teacher(teacher.getId());
+        }
+        for (Student student : school.getStudents()) {
+            visitor.student(student.getId());
+        }
+    }
+
+    /**
+     * Передает состав дальше и запоминает его; без версии (delegate ее не сообщил) состав не кэшируется
+     */
+    private static final class RosterRecorder implements SchoolRosterVisitor {
+        private final SchoolRosterVisitor target;
+        private final IdList teacherIds = new IdList();
+        private final IdList studentIds = new IdList();
+        private String name;
+        private Long version;
+
+        RosterRecorder(SchoolRosterVisitor target) {
+            this.target = target;
+        }
+
+        @Override
+        public void school(long id, String name) throws IOException {
+            this.name = name;
+            target.school(id, name);
+        }
+
+        @Override
+        public void version(long version) throws IOException {
+            this.version = version;
+            target.version(version);
+        }
+
+        @Override
+        public void teacher(long id) throws IOException {
+            teacherIds.addLong(id);
+            target.teacher(id);
+        }
+
+        @Override
+        public void student(long id) throws IOException {
+            studentIds.addLong(id);
+            target.student(id);
+        }
+
+        SchoolRoster roster() {
+            return version == null ? null
+                    : new SchoolRoster(name, version, teacherIds.toLongArray(), studentIds.toLongArray());
+        }
+    }
+
+    @Override
+    public School update(School school) throws SQLException {
+        School updated = delegate.update(school);
+        UnitOfWork.afterCommit(() -> caches.invalidateSchool(school.getId()));
+        return updated;
+    }
+
+    @Override
+    public Long findVersion(Long id) throws SQLException {
+        // Версия всегда читается из БД: ее меняют и триггеры, о которых кэш не знает
+        return delegate.findVersion(id);
+    }
+
+    @Override
+    public long[] findLargestIds(int limit) throws SQLException {
+        return delegate.findLargestIds(limit);
+    }
+
+    @Override
+    public boolean existsById(Long id) throws SQLException {
+        return caches.schools().peek(id) != null || delegate.existsById(id);
+    }
+
+    @Override
+    public void delete(Long id) throws SQLException {
+        delegate.delete(id);
+        // Удаление школы каскадно удаляет ее учителей, студентов и их записи на курсы
+        UnitOfWork.afterCommit(() -> {
+            caches.invalidateSchool(id);
+            caches.teachers().invalidateAll();
+            caches.students().invalidateAll();
+            caches.courses().invalidateAll();
+        });
+    }
+}
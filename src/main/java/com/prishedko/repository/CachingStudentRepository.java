@@ -0,0 +1,104 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.Cache;
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Student;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * StudentRepository с кэшированием findById и инвалидацией связанных школ и курсов
+ */
+public class CachingStudentRepository extends StudentRepository {
+    private final StudentRepository delegate;
+    private final EntityCaches caches;
+
+    public CachingStudentRepository(StudentRepository delegate, EntityCaches caches) {
+        this.delegate = delegate;
+        this.caches = caches;
+    }
+
+    @Override
+    public Student save(Student student) throws SQLException {
+        Student saved = delegate.save(student);
+        UnitOfWork.afterCommit(() -> caches.invalidateSchool(student.getSchool().getId()));
+        return saved;
+    }
+
+    @Override
+    public Student findById(Long id) throws SQLException {
+        Cache<Long, Student> cache = caches.students();
+        Student cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.generation();
+        Student student = delegate.findById(id);
+        if (student != null) {
+            cache.putIfGeneration(id, student, generation);
+        }
+        return student;
+    }
+
+    /**
+     * Курсы хранят только id участников, поэтому имя и школа студента на них не влияют:
+     * инвалидируются студента и составы прежней и новой школы
+     */
+    @Override
+    public long updateReturningPreviousSchool(Student student) throws SQLException {
+        long previousSchoolId = delegate.updateReturningPreviousSchool(student);
+        long schoolId = student.getSchool().getId();
+        UnitOfWork.afterCommit(() -> {
+            caches.students().invalidate(student.getId());
+            caches.invalidateSchool(previousSchoolId);
+            caches.invalidateSchool(schoolId);
+        });
+        return previousSchoolId;
+    }
+
+    /**
+     * Удаление каскадно снимает студента с курсов: инвалидируются его школа и курсы, которые вернул запрос
+     */
+    @Override
+    public Membership delete(Long id) throws SQLException {
+        Membership membership = delegate.delete(id);
+        UnitOfWork.afterCommit(() -> {
+            caches.students().invalidate(id);
+            caches.invalidateSchool(membership.schoolId());
+            for (long courseId : membership.courseIds()) {
+                caches.courses().invalidate(courseId);
+            }
+        });
+        return membership;
+    }
+
+    @Override
+    public List<Student> findAllByIds(Collection<Long> ids) throws SQLException {
+        return CacheLookups.findAllByIds(caches.students(), ids, delegate::findAllByIds, Student::getId);
+    }
+
+    @Override
+    public List<Student> findBySchoolId(Long schoolId) throws SQLException {
+        return delegate.findBySchoolId(schoolId);
+    }
+
+    @Override
+    public List<Long> copyIn(RowSupplier<Student> source) throws SQLException, IOException {
+        Set<Long> schoolIds = new HashSet<>();
+        List<Long> ids = delegate.copyIn(() -> {
+            Student student = source.next();
+            if (student != null) {
+                schoolIds.add(student.getSchool().getId());
+            }
+            return student;
+        });
+        UnitOfWork.afterCommit(() -> schoolIds.forEach(caches::invalidateSchool));
+        return ids;
+    }
+}
@@ -0,0 +1,87 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.Cache;
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Teacher;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * TeacherRepository с кэшированием findById и инвалидацией связанных школ и курсов
+ */
+public class CachingTeacherRepository extends TeacherRepository {
+    private final TeacherRepository delegate;
+    private final EntityCaches caches;
+
+    public CachingTeacherRepository(TeacherRepository delegate, EntityCaches caches) {
+        this.delegate = delegate;
+        this.caches = caches;
+    }
+
+    @Override
+    public Teacher save(Teacher teacher) throws SQLException {
+        Teacher saved = delegate.save(teacher);
+        UnitOfWork.afterCommit(() -> caches.invalidateSchool(teacher.getSchool().getId()));
+        return saved;
+    }
+
+    @Override
+    public Teacher findById(Long id) throws SQLException {
+        Cache<Long, Teacher> cache = caches.teachers();
+        Teacher cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.generation();
+        Teacher teacher = delegate.findById(id);
+        if (teacher != null) {
+            cache.putIfGeneration(id, teacher, generation);
+        }
+        return teacher;
+    }
+
+    /**
+     * Курсы хранят только id участников, поэтому имя и школа учителя на них не влияют:
+     * инвалидируются учителя и составы прежней и новой школы
+     */
+    @Override
+    public long updateReturningPreviousSchool(Teacher teacher) throws SQLException {
+        long previousSchoolId = delegate.updateReturningPreviousSchool(teacher);
+        long schoolId = teacher.getSchool().getId();
+        UnitOfWork.afterCommit(() -> {
+            caches.teachers().invalidate(teacher.getId());
+            caches.invalidateSchool(previousSchoolId);
+            caches.invalidateSchool(schoolId);
+        });
+        return previousSchoolId;
+    }
+
+    /**
+     * Удаление каскадно снимает учителя с курсов: инвалидируются его школа и курсы, которые вернул запрос
+     */
+    @Override
+    public Membership delete(Long id) throws SQLException {
+        Membership membership = delegate.delete(id);
+        UnitOfWork.afterCommit(() -> {
+            caches.teachers().invalidate(id);
+            caches.invalidateSchool(membership.schoolId());
+            for (long courseId : membership.courseIds()) {
+                caches.courses().invalidate(courseId);
+            }
+        });
+        return membership;
+    }
+
+    @Override
+    public List<Teacher> findAllByIds(Collection<Long> ids) throws SQLException {
+        return CacheLookups.findAllByIds(caches.teachers(), ids, delegate::findAllByIds, Teacher::getId);
+    }
+
+    @Override
+    public List<Teacher> findBySchoolId(Long schoolId) throws SQLException {
+        return delegate.findBySchoolId(schoolId);
+    }
+}
@@ -1,85 +1,101 @@
 package com.prishedko.repository;
 
 import com.prishedko.config.DatabaseConfig;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.dto.IdList;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
 import com.prishedko.entity.Teacher;
+import org.postgresql.util.PSQLException;
 
+import java.io.IOException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 public class CourseRepository {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
 
     /**
      * Сохраняет новый курс и связывает его с учителями и студентами
      */
     public Course save(Course course) throws SQLException {
-        Connection connection = DatabaseConfig.getDataSource().getConnection();
-
-        connection.setAutoCommit(false); // Начинаем транзакцию
         try {
-            // 1. Сохраняем курс в таблице courses
-            String courseSql = "INSERT INTO courses (name) VALUES (?) RETURNING id";
-            try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
-                ps.setString(1, course.getName());
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    course.setId(rs.getLong("id"));
-                }
-            }
+            // Транзакция и закрытие соединения - за UnitOfWork; внутри внешней единицы работы
+            // курс сохраняется в ее транзакции
+            return UnitOfWork.inTransaction(() -> {
+                Connection connection = DatabaseConfig.getConnection();
 
-            // 2. Связываем курс с учителями в таблице teachers_courses
-            if (course.getTeachers() != null && !course.getTeachers().isEmpty()) {
-                String teacherCourseSql = "INSERT INTO teachers_courses (teacher_id, course_id) VALUES (?, ?)";
-                try (PreparedStatement ps = connection.prepareStatement(teacherCourseSql)) {
-                    for (Teacher teacher : course.getTeachers()) {
-                        if (teacher.getId() != null) { // Проверяем, что учитель уже существует
-                            ps.setLong(1, teacher.getId());
-                            ps.setLong(2, course.getId());
-                            ps.addBatch();
-                        }
+                // 1. Сохраняем курс в таблице courses
+                String courseSql = "INSERT INTO courses (name) VALUES (?) RETURNING id";
+                try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
+                    ps.setString(1, course.getName());
+                    ResultSet rs = ps.executeQuery();
+                    if (rs.next()) {
+                        course.setId(rs.getLong("id"));
                     }
-                    ps.executeBatch();
                 }
-            }
 
-            // 3. Связываем курс со студентами в таблице students_courses
-            if (course.getStudents() != null && !course.getStudents().isEmpty()) {
-                String studentCourseSql = "INSERT INTO students_courses (student_id, course_id) VALUES (?, ?)";
-                try (PreparedStatement ps = connection.prepareStatement(studentCourseSql)) {
-                    for (Student student : course.getStudents()) {
-                        if (student.getId() != null) { // Проверяем, что студент уже существует
-                            ps.setLong(1, student.getId());
-                            ps.setLong(2, course.getId());
-                            ps.addBatch();
-                        }
-                    }
-                    ps.executeBatch();
+                // 2. Связываем курс с учителями и студентами: по одному запросу на таблицу связей
+                long[] teacherIds = memberIds(course.getTeachers(), Teacher::getId);
+                if (teacherIds.length > 0) {
+                    insertLinks(connection, "teachers_courses", "teacher_id", course.getId(), teacherIds);
+                }
+                long[] studentIds = memberIds(course.getStudents(), Student::getId);
+                if (studentIds.length > 0) {
+                    insertLinks(connection, "students_courses", "student_id", course.getId(), studentIds);
                 }
-            }
 
-            connection.commit(); // Фиксируем транзакцию
-            return course;
+                return course;
+            });
         } catch (SQLException e) {
-            connection.rollback(); // Откатываем транзакцию в случае ошибки
             throw new SQLException("Failed to save course and its relations: " + e.getMessage(), e);
-        } finally {
-            connection.setAutoCommit(true); // Возвращаем режим автокоммита
         }
     }
 
+    /**
+     * id уже существующих участников; участники без id пропускаются
+     */
+    private static <T> long[] memberIds(List<T> members, Function<T, Long> id) {
+        if (members == null) {
+            return new long[0];
+        }
+        IdList ids = new IdList(members.size());
+        for (T member : members) {
+            Long memberId = id.apply(member);
+            if (memberId != null) {
+                ids.addLong(memberId);
+            }
+        }
+        return ids.toLongArray();
+    }
+
+    /**
+     * То же, что findById(id), но курс не старше версии minVersion, прочитанной для ETag.
+     * Из БД всегда читается состояние не старше уже прочитанной версии
+     */
+    public Course findById(Long id, long minVersion) throws SQLException {
+        return findById(id);
+    }
+
     /**
      * Находит курс по ID вместе с его учителями и студентами
      */
     public Course findById(Long id) throws SQLException {
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
-            String courseSql = "SELECT id, name FROM courses WHERE id = ?";
+            // Версия читается раньше участников, поэтому она не новее их
+            String courseSql = "SELECT id, name, version FROM courses WHERE id = ?";
             Course course = null;
 
             try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
@@ -92,6 +108,7 @@ public class CourseRepository {
                             new ArrayList<>(),
                             new ArrayList<>()
                     );
+                    course.setVersion(rs.getLong("version"));
                 }
             }
 
@@ -141,11 +158,81 @@ public class CourseRepository {
         }
     }
 
+    /**
+     * Находит курсы по списку id вместе с учителями и студентами: по одному запросу на курсы,
+     * учителей и студентов. Порядок - как в ids, ненайденные id пропускаются
+     */
+    public List<Course> findAllByIds(Collection<Long> ids) throws SQLException {
+        long[] idArray = SqlArrays.distinct(ids);
+        Map<Long, Course> coursesById = new HashMap<>();
+        if (idArray.length == 0) {
+            return new ArrayList<>();
+        }
+
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            Array idParam = SqlArrays.bigintArray(connection, idArray);
+            String courseSql = "SELECT id, name, version FROM courses WHERE id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Course course = new Course(
+                            rs.getLong("id"),
+                            rs.getString("name"),
+                            new ArrayList<>(),
+                            new ArrayList<>()
+                    );
+                    course.setVersion(rs.getLong("version"));
+                    coursesById.put(course.getId(), course);
+                }
+            }
+
+            if (coursesById.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            String teacherSql = "SELECT tc.course_id, t.id, t.name, t.school_id " +
+                    "FROM teachers t " +
+                    "JOIN teachers_courses tc ON t.id = tc.teacher_id " +
+                    "WHERE tc.course_id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(teacherSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Teacher teacher = new Teacher();
+                    teacher.setId(rs.getLong("id"));
+                    teacher.setName(rs.getString("name"));
+                    teacher.setSchool(new School(rs.getLong("school_id"), null));
+                    teacher.setCourses(new ArrayList<>());
+                    coursesById.get(rs.getLong("course_id")).getTeachers().add(teacher);
+                }
+            }
+
+            String studentSql = "SELECT sc.course_id, s.id, s.name, s.school_id " +
+                    "FROM students s " +
+                    "JOIN students_courses sc ON s.id = sc.student_id " +
+                    "WHERE sc.course_id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(studentSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Student student = new Student();
+                    student.setId(rs.getLong("id"));
+                    student.setName(rs.getString("name"));
+                    student.setSchool(new School(rs.getLong("school_id"), null));
+                    student.setCourses(new ArrayList<>());
+                    coursesById.get(rs.getLong("course_id")).getStudents().add(student);
+                }
+            }
+        }
+        return SqlArrays.inOrder(idArray, coursesById);
+    }
+
     /**
      * Обновляет данные курса
      */
     public Course update(Course course) throws SQLException {
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
             String sql = "UPDATE courses SET name = ? WHERE id = ?";
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
@@ -160,11 +247,152 @@ public class CourseRepository {
         }
     }
 
+    /**
+     * Записывает студентов на курс одним запросом; уже записанные пропускаются.
+     * Возвращает число новых записей
+     */
+    public int addStudents(long courseId, long[] studentIds) throws SQLException {
+        return addLinks("students_courses", "student_id", "Student", courseId, studentIds);
+    }
+
+    /**
+     * Снимает студентов с курса одним запросом; возвращает число удаленных записей
+     */
+    public int removeStudents(long courseId, long[] studentIds) throws SQLException {
+        return removeLinks("students_courses", "student_id", courseId, studentIds);
+    }
+
+    public int addTeachers(long courseId, long[] teacherIds) throws SQLException {
+        return addLinks("teachers_courses", "teacher_id", "Teacher", courseId, teacherIds);
+    }
+
+    public int removeTeachers(long courseId, long[] teacherIds) throws SQLException {
+        return removeLinks("teachers_courses", "teacher_id", courseId, teacherIds);
+    }
+
+    /**
+     * Блокирует строку курса до конца транзакции (SELECT ... FOR UPDATE), чтобы одновременные
+     * изменения состава курса выполнялись по очереди. Имеет смысл только внутри UnitOfWork.
+     * Возвращает false, если курса нет
+     */
+    public boolean lockForUpdate(long courseId) throws SQLException {
+        String sql = "SELECT id FROM courses WHERE id = ? FOR UPDATE";
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * id записанных на курс студентов по возрастанию
+     */
+    public long[] findStudentIds(long courseId) throws SQLException {
+        return findMemberIds("students_courses", "student_id", courseId);
+    }
+
+    /**
+     * id учителей курса по возрастанию
+     */
+    public long[] findTeacherIds(long courseId) throws SQLException {
+        return findMemberIds("teachers_courses", "teacher_id", courseId);
+    }
+
+    private long[] findMemberIds(String table, String memberColumn, long courseId) throws SQLException {
+        String sql = "SELECT " + memberColumn + " FROM " + table + " WHERE course_id = ? ORDER BY " + memberColumn;
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, courseId);
+            IdList ids = new IdList();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.addLong(rs.getLong(1));
+                }
+            }
+            return ids.toLongArray();
+        }
+    }
+
+    /**
+     * Несуществующий курс или участник нарушает внешний ключ - это ошибка запроса, а не БД
+     */
+    private int addLinks(String table, String memberColumn, String member, long courseId, long[] memberIds)
+            throws SQLException {
+        if (memberIds.length == 0) {
+            return 0;
+        }
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            return insertLinks(connection, table, memberColumn, courseId, memberIds);
+        } catch (PSQLException e) {
+            if (!FOREIGN_KEY_VIOLATION.equals(e.getSQLState())) {
+                throw e;
+            }
+            String constraint = e.getServerErrorMessage() != null ? e.getServerErrorMessage().getConstraint() : null;
+            if (constraint != null && constraint.startsWith("fk_course")) {
+                throw new IllegalArgumentException("Course with id " + courseId + " not found");
+            }
+            throw new IllegalArgumentException(member + " not found");
+        }
+    }
+
+    /**
+     * Все связи - один INSERT ... SELECT unnest(?): один запрос к серверу и одно срабатывание
+     * триггеров версий вместо отдельного INSERT на каждую строку пакета
+     */
+    private static int insertLinks(Connection connection, String table, String memberColumn, long courseId,
+                                   long[] memberIds) throws SQLException {
+        String sql = "INSERT INTO " + table + " (" + memberColumn + ", course_id) SELECT unnest(?), ? " +
+                "ON CONFLICT DO NOTHING";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, SqlArrays.bigintArray(connection, memberIds));
+            ps.setLong(2, courseId);
+            return ps.executeUpdate();
+        }
+    }
+
+    private int removeLinks(String table, String memberColumn, long courseId, long[] memberIds) throws SQLException {
+        if (memberIds.length == 0) {
+            return 0;
+        }
+        String sql = "DELETE FROM " + table + " WHERE course_id = ? AND " + memberColumn + " = ANY(?)";
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, courseId);
+            ps.setArray(2, SqlArrays.bigintArray(connection, memberIds));
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Версия курса (колонка version, растет при изменении курса и состава участников); null, если курса нет
+     */
+    public Long findVersion(Long id) throws SQLException {
+        String sql = "SELECT version FROM courses WHERE id = ?";
+
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
     /**
      * Удаляет курс по ID
      */
     public void delete(Long id) throws SQLException {
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
             String sql = "DELETE FROM courses WHERE id = ?";
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
@@ -181,7 +409,7 @@ public class CourseRepository {
      * Находит все курсы
      */
     public List<Course> findAll() throws SQLException {
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
             String sql = "SELECT id, name FROM courses";
             List<Course> courses = new ArrayList<>();
@@ -200,4 +428,66 @@ public class CourseRepository {
             return courses;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Находит страницу курсов с id больше afterId (keyset-пагинация)
+     */
+    public List<Course> findPage(long afterId, int limit) throws SQLException {
+        String sql = "SELECT id, name FROM courses WHERE id > ? ORDER BY id LIMIT ?";
+        List<Course> courses = new ArrayList<>();
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                courses.add(new Course(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        new ArrayList<>(),
+                        new ArrayList<>()
+                ));
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * Передает курсы с id больше afterId по одному, не загружая всю таблицу в память.
+     * limit <= 0 означает отсутствие ограничения
+     */
+    public void streamAll(long afterId, int limit, RowConsumer<Course> consumer) throws SQLException, IOException {
+        String sql = limit > 0
+                ? "SELECT id, name FROM courses WHERE id > ? ORDER BY id LIMIT ?"
+                : "SELECT id, name FROM courses WHERE id > ? ORDER BY id";
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            // Драйвер PostgreSQL читает курсором порциями только внутри транзакции
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                ps.setLong(1, afterId);
+                if (limit > 0) {
+                    ps.setInt(2, limit);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(new Course(
+                                rs.getLong("id"),
+                                rs.getString("name"),
+                                new ArrayList<>(),
+                                new ArrayList<>()
+                        ));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
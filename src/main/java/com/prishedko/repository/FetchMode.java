@@ -0,0 +1,16 @@
+package com.prishedko.repository;
+
+/**
+ * Способ загрузки агрегата вместе со связанными сущностями
+ */
+public enum FetchMode {
+    /**
+     * Отдельный запрос и отдельное соединение из пула на каждую часть агрегата
+     */
+    SEPARATE_QUERIES,
+
+    /**
+     * Один запрос на одном соединении: весь агрегат приходит за один round trip
+     */
+    SINGLE_QUERY
+}
@@ -0,0 +1,83 @@
+package com.prishedko.repository;
+
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.dto.IdList;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.index.EnrollmentIndex;
+import com.prishedko.index.EnrollmentIndex.Member;
+
+import java.sql.SQLException;
+
+/**
+ * CourseRepository, поддерживающий EnrollmentIndex в актуальном состоянии.
+ * Индекс меняется только после commit, чтобы откаченная запись на курс в него не попала
+ */
+public class IndexingCourseRepository extends CourseRepository {
+    private final CourseRepository delegate;
+    private final EnrollmentIndex index;
+
+    public IndexingCourseRepository(CourseRepository delegate, EnrollmentIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public Course save(Course course) throws SQLException {
+        Course saved = delegate.save(course);
+        long courseId = saved.getId();
+        IdList teacherIds = new IdList();
+        if (saved.getTeachers() != null) {
+            for (Teacher teacher : saved.getTeachers()) {
+                if (teacher.getId() != null) {
+                    teacherIds.addLong(teacher.getId());
+                }
+            }
+        }
+        IdList studentIds = new IdList();
+        if (saved.getStudents() != null) {
+            for (Student student : saved.getStudents()) {
+                if (student.getId() != null) {
+                    studentIds.addLong(student.getId());
+                }
+            }
+        }
+        UnitOfWork.afterCommit(() -> index.addCourse(courseId, teacherIds, studentIds));
+        return saved;
+    }
+
+    @Override
+    public void delete(Long id) throws SQLException {
+        delegate.delete(id);
+        UnitOfWork.afterCommit(() -> index.removeCourse(id));
+    }
+
+    @Override
+    public int addStudents(long courseId, long[] studentIds) throws SQLException {
+        int added = delegate.addStudents(courseId, studentIds);
+        UnitOfWork.afterCommit(() -> index.addMembers(Member.STUDENTS, courseId, studentIds));
+        return added;
+    }
+
+    @Override
+    public int removeStudents(long courseId, long[] studentIds) throws SQLException {
+        int removed = delegate.removeStudents(courseId, studentIds);
+        UnitOfWork.afterCommit(() -> index.removeMembers(Member.STUDENTS, courseId, studentIds));
+        return removed;
+    }
+
+    @Override
+    public int addTeachers(long courseId, long[] teacherIds) throws SQLException {
+        int added = delegate.addTeachers(courseId, teacherIds);
+        UnitOfWork.afterCommit(() -> index.addMembers(Member.TEACHERS, courseId, teacherIds));
+        return added;
+    }
+
+    @Override
+    public int removeTeachers(long courseId, long[] teacherIds) throws SQLException {
+        int removed = delegate.removeTeachers(courseId, teacherIds);
+        UnitOfWork.afterCommit(() -> index.removeMembers(Member.TEACHERS, courseId, teacherIds));
+        return removed;
+    }
+}
@@ -0,0 +1,25 @@
+package com.prishedko.repository;
+
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.index.EnrollmentIndex;
+
+import java.sql.SQLException;
+
+/**
+ * SchoolRepository, убирающий из EnrollmentIndex каскадно удаленных студентов и учителей школы
+ */
+public class IndexingSchoolRepository extends SchoolRepository {
+    private final SchoolRepository delegate;
+    private final EnrollmentIndex index;
+
+    public IndexingSchoolRepository(SchoolRepository delegate, EnrollmentIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public void delete(Long id) throws SQLException {
+        delegate.delete(id);
+        UnitOfWork.afterCommit(() -> index.removeSchool(id));
+    }
+}
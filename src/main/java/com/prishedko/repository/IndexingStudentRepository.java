@@ -0,0 +1,72 @@
+package com.prishedko.repository;
+
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Student;
+import com.prishedko.index.EnrollmentIndex;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+/**
+ * StudentRepository, поддерживающий принадлежность студентов к школам в EnrollmentIndex
+ */
+public class IndexingStudentRepository extends StudentRepository {
+    private final StudentRepository delegate;
+    private final EnrollmentIndex index;
+
+    public IndexingStudentRepository(StudentRepository delegate, EnrollmentIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public Student save(Student student) throws SQLException {
+        Student saved = delegate.save(student);
+        long schoolId = saved.getSchool().getId();
+        long studentId = saved.getId();
+        UnitOfWork.afterCommit(() -> index.addStudent(schoolId, studentId));
+        return saved;
+    }
+
+    @Override
+    public long updateReturningPreviousSchool(Student student) throws SQLException {
+        long previousSchoolId = delegate.updateReturningPreviousSchool(student);
+        long schoolId = student.getSchool().getId();
+        long studentId = student.getId();
+        UnitOfWork.afterCommit(() -> index.addStudent(schoolId, studentId));
+        return previousSchoolId;
+    }
+
+    @Override
+    public Membership delete(Long id) throws SQLException {
+        Membership membership = delegate.delete(id);
+        UnitOfWork.afterCommit(() -> index.removeStudent(id));
+        return membership;
+    }
+
+    @Override
+    public List<Long> copyIn(RowSupplier<Student> source) throws SQLException, IOException {
+        List<Long> schoolIds = new ArrayList<>();
+        List<Long> ids = delegate.copyIn(() -> {
+            Student student = source.next();
+            if (student != null) {
+                schoolIds.add(student.getSchool().getId());
+            }
+            return student;
+        });
+        // copyIn возвращает id в порядке строк источника; новые id группируются по школам,
+        // чтобы карта каждой школы копировалась один раз
+        Map<Long, LongStream.Builder> bySchool = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            bySchool.computeIfAbsent(schoolIds.get(i), key -> LongStream.builder()).add(ids.get(i));
+        }
+        UnitOfWork.afterCommit(() -> bySchool.forEach(
+                (schoolId, studentIds) -> index.addStudents(schoolId, studentIds.build().toArray())));
+        return ids;
+    }
+}
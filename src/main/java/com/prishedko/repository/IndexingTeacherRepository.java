@@ -0,0 +1,45 @@
+package com.prishedko.repository;
+
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Teacher;
+import com.prishedko.index.EnrollmentIndex;
+
+import java.sql.SQLException;
+
+/**
+ * TeacherRepository, поддерживающий принадлежность учителей к школам в EnrollmentIndex
+ */
+public class IndexingTeacherRepository extends TeacherRepository {
+    private final TeacherRepository delegate;
+    private final EnrollmentIndex index;
+
+    public IndexingTeacherRepository(TeacherRepository delegate, EnrollmentIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public Teacher save(Teacher teacher) throws SQLException {
+        Teacher saved = delegate.save(teacher);
+        long schoolId = saved.getSchool().getId();
+        long teacherId = saved.getId();
+        UnitOfWork.afterCommit(() -> index.addTeacher(schoolId, teacherId));
+        return saved;
+    }
+
+    @Override
+    public long updateReturningPreviousSchool(Teacher teacher) throws SQLException {
+        long previousSchoolId = delegate.updateReturningPreviousSchool(teacher);
+        long schoolId = teacher.getSchool().getId();
+        long teacherId = teacher.getId();
+        UnitOfWork.afterCommit(() -> index.addTeacher(schoolId, teacherId));
+        return previousSchoolId;
+    }
+
+    @Override
+    public Membership delete(Long id) throws SQLException {
+        Membership membership = delegate.delete(id);
+        UnitOfWork.afterCommit(() -> index.removeTeacher(id));
+        return membership;
+    }
+}
@@ -0,0 +1,7 @@
+package com.prishedko.repository;
+
+/**
+ * Школа и курсы, в которых состоял студент или учитель до удаления: по ним инвалидируются связанные записи
+ */
+public record Membership(long schoolId, long[] courseIds) {
+}
@@ -0,0 +1,55 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.AppConfig;
+import com.prishedko.index.EnrollmentIndex;
+
+/**
+ * Создает репозитории с учетом настроек: при index.enabled=true изменения отражаются в EnrollmentIndex,
+ * при cache.enabled=true репозитории оборачиваются кэшем
+ */
+public final class Repositories {
+
+    private Repositories() {
+    }
+
+    public static SchoolRepository schools() {
+        SchoolRepository repository = new SchoolRepository();
+        if (isIndexEnabled()) {
+            repository = new IndexingSchoolRepository(repository, EnrollmentIndex.getInstance());
+        }
+        return isCacheEnabled() ? new CachingSchoolRepository(repository, EntityCaches.getInstance()) : repository;
+    }
+
+    public static TeacherRepository teachers() {
+        TeacherRepository repository = new TeacherRepository();
+        if (isIndexEnabled()) {
+            repository = new IndexingTeacherRepository(repository, EnrollmentIndex.getInstance());
+        }
+        return isCacheEnabled() ? new CachingTeacherRepository(repository, EntityCaches.getInstance()) : repository;
+    }
+
+    public static StudentRepository students() {
+        StudentRepository repository = new StudentRepository();
+        if (isIndexEnabled()) {
+            repository = new IndexingStudentRepository(repository, EnrollmentIndex.getInstance());
+        }
+        return isCacheEnabled() ? new CachingStudentRepository(repository, EntityCaches.getInstance()) : repository;
+    }
+
+    public static CourseRepository courses() {
+        CourseRepository repository = new CourseRepository();
+        if (isIndexEnabled()) {
+            repository = new IndexingCourseRepository(repository, EnrollmentIndex.getInstance());
+        }
+        return isCacheEnabled() ? new CachingCourseRepository(repository, EntityCaches.getInstance()) : repository;
+    }
+
+    private static boolean isCacheEnabled() {
+        return AppConfig.getBoolean("cache.enabled", false);
+    }
+
+    public static boolean isIndexEnabled() {
+        return AppConfig.getBoolean("index.enabled", false);
+    }
+}
@@ -0,0 +1,11 @@
+package com.prishedko.repository;
+
+import java.io.IOException;
+
+/**
+ * Получатель строк, которые репозиторий отдает по одной прямо из ResultSet
+ */
+@FunctionalInterface
+public interface RowConsumer<T> {
+    void accept(T row) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.prishedko.repository;
+
+import java.io.IOException;
+
+/**
+ * Источник строк для потоковой записи в базу; null означает конец данных
+ */
+@FunctionalInterface
+public interface RowSupplier<T> {
+    T next() throws IOException;
+}
@@ -1,17 +1,26 @@
 package com.prishedko.repository;
 
 import com.prishedko.config.DatabaseConfig;
+import com.prishedko.dto.IdList;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
 import com.prishedko.entity.Teacher;
 
+import java.io.IOException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class SchoolRepository {
+    // Порция курсора при чтении состава: меньше - больше обращений к БД, больше - больше строк в памяти драйвера
+    private static final int ROSTER_FETCH_SIZE = 5_000;
 
     /**
      * Создает школу
@@ -20,7 +29,7 @@ public class SchoolRepository {
 
         String sql = "INSERT INTO schools (name) VALUES (?) RETURNING id";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setString(1, school.getName());
@@ -36,18 +45,94 @@ public class SchoolRepository {
      * Находит школу по ID вместе со связанными учителями и студентами
      */
     public School findById(Long id) throws SQLException {
+        return findById(id, FetchMode.SINGLE_QUERY);
+    }
+
+    /**
+     * Находит школу по ID, загружая связи выбранным способом
+     */
+    public School findById(Long id, FetchMode fetchMode) throws SQLException {
+        if (fetchMode == FetchMode.SINGLE_QUERY) {
+            return findByIdSingleQuery(id);
+        }
+        return findByIdSeparateQueries(id);
+    }
+
+    /**
+     * Загружает школу, учителей и студентов одним запросом на одном соединении
+     */
+    private School findByIdSingleQuery(Long id) throws SQLException {
+        // kind: 0 - школа, 1 - учитель, 2 - студент
+        String sql = "SELECT 0 AS kind, id, name, version FROM schools WHERE id = ? " +
+                "UNION ALL SELECT 1, id, name, 0 FROM teachers WHERE school_id = ? " +
+                "UNION ALL SELECT 2, id, name, 0 FROM students WHERE school_id = ?";
+        String schoolName = null;
+        long version = 0;
+        boolean found = false;
+        List<Teacher> teachers = new ArrayList<>();
+        List<Student> students = new ArrayList<>();
+
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, id);
+            ps.setLong(2, id);
+            ps.setLong(3, id);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                switch (rs.getInt("kind")) {
+                    case 0 -> {
+                        found = true;
+                        schoolName = rs.getString("name");
+                        version = rs.getLong("version");
+                    }
+                    case 1 -> {
+                        Teacher teacher = new Teacher();
+                        teacher.setId(rs.getLong("id"));
+                        teacher.setName(rs.getString("name"));
+                        teachers.add(teacher);
+                    }
+                    default -> {
+                        Student student = new Student();
+                        student.setId(rs.getLong("id"));
+                        student.setName(rs.getString("name"));
+                        students.add(student);
+                    }
+                }
+            }
+        }
+
+        if (!found) {
+            return null;
+        }
+
+        School school = new School(id, schoolName, teachers, students);
+        // Один запрос - один снимок: версия соответствует составу
+        school.setVersion(version);
+        teachers.forEach(teacher -> teacher.setSchool(school));
+        students.forEach(student -> student.setSchool(school));
+        return school;
+    }
+
+    /**
+     * Загружает школу тремя запросами, каждый на своем соединении из пула
+     */
+    private School findByIdSeparateQueries(Long id) throws SQLException {
         // Запрос для получения школы
-        String schoolSql = "SELECT id, name FROM schools WHERE id = ?";
+        // Версия читается раньше состава, поэтому она не новее его
+        String schoolSql = "SELECT id, name, version FROM schools WHERE id = ?";
         School school = null;
 
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(schoolSql)
         ) {
             ps.setLong(1, id);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
                 school = new School(rs.getLong("id"), rs.getString("name"));
+                school.setVersion(rs.getLong("version"));
                 school.setTeachers(new ArrayList<>());
                 school.setStudents(new ArrayList<>());
             }
@@ -60,7 +145,7 @@ public class SchoolRepository {
         // Запрос для получения учителей школы
         String teacherSql = "SELECT id, name, school_id FROM teachers WHERE school_id = ?";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(teacherSql)
         ) {
             ps.setLong(1, id);
@@ -77,7 +162,7 @@ public class SchoolRepository {
         // Запрос для получения студентов школы
         String studentSql = "SELECT id, name, school_id FROM students WHERE school_id = ?";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(studentSql)
         ) {
             ps.setLong(1, id);
@@ -94,6 +179,118 @@ public class SchoolRepository {
         return school;
     }
 
+    /**
+     * То же, что streamRoster(id, visitor), но данные не старше версии minVersion, прочитанной для ETag.
+     * Из БД всегда читается состояние не старше уже прочитанной версии
+     */
+    public boolean streamRoster(Long id, long minVersion, SchoolRosterVisitor visitor) throws SQLException, IOException {
+        return streamRoster(id, visitor);
+    }
+
+    /**
+     * Передает школу и id ее учителей и студентов в visitor по мере чтения, без создания сущностей.
+     * Возвращает false, если школы нет (visitor при этом не вызывается)
+     */
+    public boolean streamRoster(Long id, SchoolRosterVisitor visitor) throws SQLException, IOException {
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            // Драйвер PostgreSQL читает курсором порциями только внутри транзакции
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT name, version FROM schools WHERE id = ?")) {
+                    ps.setLong(1, id);
+                    ResultSet rs = ps.executeQuery();
+                    if (!rs.next()) {
+                        connection.commit();
+                        return false;
+                    }
+                    visitor.school(id, rs.getString("name"));
+                    visitor.version(rs.getLong("version"));
+                }
+                try (PreparedStatement ps = connection.prepareStatement("SELECT id FROM teachers WHERE school_id = ?")) {
+                    ps.setFetchSize(ROSTER_FETCH_SIZE);
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            visitor.teacher(rs.getLong(1));
+                        }
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement("SELECT id FROM students WHERE school_id = ?")) {
+                    ps.setFetchSize(ROSTER_FETCH_SIZE);
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            visitor.student(rs.getLong(1));
+                        }
+                    }
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Находит школы по списку id вместе с учителями и студентами одним запросом.
+     * Порядок - как в ids, ненайденные id пропускаются
+     */
+    public List<School> findAllByIds(Collection<Long> ids) throws SQLException {
+        long[] idArray = SqlArrays.distinct(ids);
+        Map<Long, School> schoolsById = new HashMap<>();
+        if (idArray.length == 0) {
+            return new ArrayList<>();
+        }
+
+        // kind: 0 - школа, 1 - учитель, 2 - студент. Порядок строк не важен: школа создается
+        // по первой строке с ее id, а имя заполняется строкой самой школы
+        String sql = "SELECT 0 AS kind, id, name, id AS school_id, version FROM schools WHERE id = ANY(?) " +
+                "UNION ALL SELECT 1, id, name, school_id, 0 FROM teachers WHERE school_id = ANY(?) " +
+                "UNION ALL SELECT 2, id, name, school_id, 0 FROM students WHERE school_id = ANY(?)";
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            Array idParam = SqlArrays.bigintArray(connection, idArray);
+            ps.setArray(1, idParam);
+            ps.setArray(2, idParam);
+            ps.setArray(3, idParam);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                String name = rs.getString("name");
+                School school = schoolsById.computeIfAbsent(rs.getLong("school_id"),
+                        schoolId -> new School(schoolId, null, new ArrayList<>(), new ArrayList<>()));
+                switch (rs.getInt("kind")) {
+                    case 0 -> {
+                        school.setName(name);
+                        school.setVersion(rs.getLong("version"));
+                    }
+                    case 1 -> {
+                        Teacher teacher = new Teacher();
+                        teacher.setId(id);
+                        teacher.setName(name);
+                        teacher.setSchool(school);
+                        school.getTeachers().add(teacher);
+                    }
+                    default -> {
+                        Student student = new Student();
+                        student.setId(id);
+                        student.setName(name);
+                        student.setSchool(school);
+                        school.getStudents().add(student);
+                    }
+                }
+            }
+        }
+        return SqlArrays.inOrder(idArray, schoolsById);
+    }
+
     /**
      * Обновляет информацию о школе
      */
@@ -105,7 +302,7 @@ public class SchoolRepository {
         String sql = "UPDATE schools SET name = ? WHERE id = ?";
 
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setString(1, school.getName());
@@ -121,6 +318,48 @@ public class SchoolRepository {
         }
     }
 
+    /**
+     * Версия школы (колонка version, растет при изменении школы и состава учителей и студентов); null, если школы нет
+     */
+    public Long findVersion(Long id) throws SQLException {
+        String sql = "SELECT version FROM schools WHERE id = ?";
+
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    /**
+     * id школ с наибольшим числом учителей и студентов - их загрузка дороже всего, поэтому
+     * при прогреве они первыми попадают в кэш
+     */
+    public long[] findLargestIds(int limit) throws SQLException {
+        String sql = "SELECT s.id FROM schools s " +
+                "ORDER BY (SELECT COUNT(*) FROM students st WHERE st.school_id = s.id) " +
+                "+ (SELECT COUNT(*) FROM teachers t WHERE t.school_id = s.id) DESC, s.id " +
+                "LIMIT ?";
+
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
+        ) {
+            ps.setInt(1, limit);
+            IdList ids = new IdList();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.addLong(rs.getLong(1));
+                }
+            }
+            return ids.toLongArray();
+        }
+    }
+
     /**
      * Проверяет существование школы по идентификатору
      */
@@ -128,7 +367,7 @@ public class SchoolRepository {
         String sql = "SELECT COUNT(*) FROM schools WHERE id = ?";
 
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setLong(1, id);
@@ -148,7 +387,7 @@ public class SchoolRepository {
         String sql = "DELETE FROM schools WHERE id = ?";
 
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setLong(1, id);
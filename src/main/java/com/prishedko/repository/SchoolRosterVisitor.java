@@ -0,0 +1,21 @@
+package com.prishedko.repository;
+
+import java.io.IOException;
+
+/**
+ * Получатель состава школы, который репозиторий отдает прямо из ResultSet без создания сущностей.
+ * Вызовы идут по порядку: school, version, затем все teacher, затем все student
+ */
+public interface SchoolRosterVisitor {
+    void school(long id, String name) throws IOException;
+
+    /**
+     * Версия строки школы, прочитанная до состава: состав не старше ее
+     */
+    default void version(long version) throws IOException {
+    }
+
+    void teacher(long id) throws IOException;
+
+    void student(long id) throws IOException;
+}
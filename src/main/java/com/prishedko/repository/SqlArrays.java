@@ -0,0 +1,76 @@
+package com.prishedko.repository;
+
+import com.prishedko.dto.IdList;
+import org.postgresql.PGConnection;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Передача списков id в запросы одним параметром-массивом (= ANY(?)), чтобы текст запроса
+ * не зависел от числа id
+ */
+final class SqlArrays {
+
+    private SqlArrays() {
+    }
+
+    /**
+     * Массив bigint из примитивов без упаковки в Long[]
+     */
+    static Array bigintArray(Connection connection, long[] ids) throws SQLException {
+        return connection.unwrap(PGConnection.class).createArrayOf("bigint", ids);
+    }
+
+    /**
+     * Массив bigint из результата запроса в примитивы
+     */
+    static long[] toLongArray(Array array) throws SQLException {
+        Long[] boxed = (Long[]) array.getArray();
+        long[] result = new long[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            result[i] = boxed[i];
+        }
+        array.free();
+        return result;
+    }
+
+    /**
+     * Уникальные id в исходном порядке; null пропускаются
+     */
+    static long[] distinct(Collection<Long> ids) {
+        if (ids instanceof IdList idList) {
+            return Arrays.stream(idList.toLongArray()).distinct().toArray();
+        }
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        unique.remove(null);
+        long[] result = new long[unique.size()];
+        int i = 0;
+        for (Long id : unique) {
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    /**
+     * Найденные сущности в порядке ids; отсутствующие пропускаются
+     */
+    static <T> List<T> inOrder(long[] ids, Map<Long, T> byId) {
+        List<T> result = new ArrayList<>(byId.size());
+        for (long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+}
@@ -1,18 +1,32 @@
 package com.prishedko.repository;
 
 import com.prishedko.config.DatabaseConfig;
+import com.prishedko.dto.IdList;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.util.PSQLException;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StudentRepository {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
 
     /**
      * Сохраняет нового студента в базе данных
@@ -20,7 +34,7 @@ public class StudentRepository {
     public Student save(Student student) throws SQLException {
         String sql = "INSERT INTO students (name, school_id) VALUES (?, ?) RETURNING id";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, student.getName());
             ps.setLong(2, student.getSchool().getId());
@@ -40,7 +54,7 @@ public class StudentRepository {
         String studentSql = "SELECT id, name, school_id FROM students WHERE id = ?";
         Student student = null;
 
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
 
             try (PreparedStatement ps = connection.prepareStatement(studentSql)) {
@@ -84,38 +98,107 @@ public class StudentRepository {
         }
     }
 
+    /**
+     * Находит студентов по списку id вместе с их курсами: один запрос на студентов и один на курсы.
+     * Порядок - как в ids, ненайденные id пропускаются
+     */
+    public List<Student> findAllByIds(Collection<Long> ids) throws SQLException {
+        long[] idArray = SqlArrays.distinct(ids);
+        Map<Long, Student> studentsById = new HashMap<>();
+        if (idArray.length == 0) {
+            return new ArrayList<>();
+        }
+
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            Array idParam = SqlArrays.bigintArray(connection, idArray);
+            String studentSql = "SELECT id, name, school_id FROM students WHERE id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(studentSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Student student = new Student();
+                    student.setId(rs.getLong("id"));
+                    student.setName(rs.getString("name"));
+                    student.setSchool(new School(rs.getLong("school_id"), null));
+                    student.setCourses(new ArrayList<>());
+                    studentsById.put(student.getId(), student);
+                }
+            }
+
+            if (studentsById.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            String courseSql = "SELECT sc.student_id, c.id, c.name " +
+                    "FROM courses c " +
+                    "JOIN students_courses sc ON c.id = sc.course_id " +
+                    "WHERE sc.student_id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    studentsById.get(rs.getLong("student_id")).getCourses().add(new Course(
+                            rs.getLong("id"),
+                            rs.getString("name"),
+                            new ArrayList<>(),
+                            new ArrayList<>()
+                    ));
+                }
+            }
+        }
+        return SqlArrays.inOrder(idArray, studentsById);
+    }
+
     /**
      * Обновляет данные студента
      */
     public Student update(Student student) throws SQLException {
-        String sql = "UPDATE students SET name = ?, school_id = ? WHERE id = ?";
+        updateReturningPreviousSchool(student);
+        return student;
+    }
+
+    /**
+     * Обновляет данные студента и возвращает id школы, в которой он был до изменения.
+     * Прежняя строка читается с блокировкой в том же запросе, поэтому параллельный перевод не теряется
+     */
+    public long updateReturningPreviousSchool(Student student) throws SQLException {
+        String sql = "UPDATE students t SET name = ?, school_id = ? " +
+                "FROM (SELECT id, school_id FROM students WHERE id = ? FOR UPDATE) previous " +
+                "WHERE t.id = previous.id RETURNING previous.school_id";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setString(1, student.getName());
             ps.setLong(2, student.getSchool().getId());
             ps.setLong(3, student.getId());
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new IllegalArgumentException("Student with id " + student.getId() + " not found");
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Student with id " + student.getId() + " not found");
+                }
+                return rs.getLong(1);
             }
-            return student;
         }
     }
 
     /**
-     * Удаляет студента по ID
+     * Удаляет студента по ID и возвращает школу и курсы, в которых он состоял.
+     * Все части запроса видят один снимок, поэтому записи на курсы читаются до каскадного удаления
      */
-    public void delete(Long id) throws SQLException {
-        String sql = "DELETE FROM students WHERE id = ?";
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection();
-             PreparedStatement ps = connection.prepareStatement(sql)
+    public Membership delete(Long id) throws SQLException {
+        String sql = "WITH removed AS (DELETE FROM students WHERE id = ? RETURNING school_id) " +
+                "SELECT school_id, ARRAY(SELECT course_id FROM students_courses WHERE student_id = ?) FROM removed";
+        try (
+                Connection connection = DatabaseConfig.getConnection();
+                PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setLong(1, id);
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new IllegalArgumentException("Student with id " + id + " not found");
+            ps.setLong(2, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Student with id " + id + " not found");
+                }
+                return new Membership(rs.getLong(1), SqlArrays.toLongArray(rs.getArray(2)));
             }
         }
     }
@@ -126,7 +209,7 @@ public class StudentRepository {
     public List<Student> findBySchoolId(Long schoolId) throws SQLException {
         String sql = "SELECT id, name, school_id FROM students WHERE school_id = ?";
         List<Student> students = new ArrayList<>();
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection();
+        try (Connection connection = DatabaseConfig.getConnection();
              PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setLong(1, schoolId);
@@ -141,4 +224,95 @@ public class StudentRepository {
         }
         return students;
     }
-}
\ No newline at end of file
+
+    /**
+     * Массово сохраняет студентов через COPY и возвращает их id в порядке поступления.
+     * Если школы какого-либо студента нет, ничего не сохраняется (IllegalArgumentException)
+     */
+    public List<Long> copyIn(RowSupplier<Student> source) throws SQLException, IOException {
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // COPY не умеет RETURNING, поэтому сначала грузим во временную таблицу
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TEMP TABLE students_import " +
+                            "(ord BIGINT, name VARCHAR(255), school_id BIGINT) ON COMMIT DROP");
+                }
+
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                CopyIn copyIn = copyManager.copyIn("COPY students_import (ord, name, school_id) FROM STDIN WITH (FORMAT csv)");
+                int ord = 0;
+                try {
+                    StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+                    Student student;
+                    while ((student = source.next()) != null) {
+                        buffer.append(ord++).append(',');
+                        appendCsvField(buffer, student.getName());
+                        buffer.append(',').append(student.getSchool().getId()).append('\n');
+                        if (buffer.length() >= COPY_BUFFER_SIZE) {
+                            writeToCopy(copyIn, buffer);
+                        }
+                    }
+                    writeToCopy(copyIn, buffer);
+                    copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+
+                // Порядок строк RETURNING не гарантирован, поэтому id выдаются заранее из последовательности
+                // и возвращаются парами (ord, id); numbered материализуется один раз, и INSERT и SELECT
+                // видят одни и те же id
+                String insertSql = "WITH numbered AS MATERIALIZED (" +
+                        "SELECT ord, nextval(pg_get_serial_sequence('students', 'id')) AS id, name, school_id " +
+                        "FROM students_import), " +
+                        "inserted AS (INSERT INTO students (id, name, school_id) OVERRIDING SYSTEM VALUE " +
+                        "SELECT id, name, school_id FROM numbered) " +
+                        "SELECT ord, id FROM numbered";
+                long[] ids = new long[ord];
+                try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        ids[(int) rs.getLong(1)] = rs.getLong(2);
+                    }
+                } catch (PSQLException e) {
+                    if (FOREIGN_KEY_VIOLATION.equals(e.getSQLState())) {
+                        // Несуществующая школа - ошибка данных импорта, а не БД
+                        throw new IllegalArgumentException("School not found");
+                    }
+                    throw e;
+                }
+
+                connection.commit();
+                return IdList.of(ids);
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private static void appendCsvField(StringBuilder buffer, String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
@@ -5,12 +5,16 @@ import com.prishedko.entity.Course;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Teacher;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TeacherRepository {
 
@@ -20,7 +24,7 @@ public class TeacherRepository {
     public Teacher save(Teacher teacher) throws SQLException {
         String sql = "INSERT INTO teachers (name, school_id) VALUES (?, ?) RETURNING id";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setString(1, teacher.getName());
@@ -41,7 +45,7 @@ public class TeacherRepository {
         String teacherSql = "SELECT id, name, school_id FROM teachers WHERE id = ?";
         Teacher teacher = null;
 
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
 
             try (PreparedStatement ps = connection.prepareStatement(teacherSql)) {
@@ -85,39 +89,107 @@ public class TeacherRepository {
         }
     }
 
+    /**
+     * Находит учителей по списку id вместе с их курсами: один запрос на учителей и один на курсы.
+     * Порядок - как в ids, ненайденные id пропускаются
+     */
+    public List<Teacher> findAllByIds(Collection<Long> ids) throws SQLException {
+        long[] idArray = SqlArrays.distinct(ids);
+        Map<Long, Teacher> teachersById = new HashMap<>();
+        if (idArray.length == 0) {
+            return new ArrayList<>();
+        }
+
+        try (Connection connection = DatabaseConfig.getConnection()) {
+            Array idParam = SqlArrays.bigintArray(connection, idArray);
+            String teacherSql = "SELECT id, name, school_id FROM teachers WHERE id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(teacherSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Teacher teacher = new Teacher();
+                    teacher.setId(rs.getLong("id"));
+                    teacher.setName(rs.getString("name"));
+                    teacher.setSchool(new School(rs.getLong("school_id"), null));
+                    teacher.setCourses(new ArrayList<>());
+                    teachersById.put(teacher.getId(), teacher);
+                }
+            }
+
+            if (teachersById.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            String courseSql = "SELECT tc.teacher_id, c.id, c.name " +
+                    "FROM courses c " +
+                    "JOIN teachers_courses tc ON c.id = tc.course_id " +
+                    "WHERE tc.teacher_id = ANY(?)";
+            try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
+                ps.setArray(1, idParam);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    teachersById.get(rs.getLong("teacher_id")).getCourses().add(new Course(
+                            rs.getLong("id"),
+                            rs.getString("name"),
+                            new ArrayList<>(),
+                            new ArrayList<>()
+                    ));
+                }
+            }
+        }
+        return SqlArrays.inOrder(idArray, teachersById);
+    }
+
     /**
      * Обновляет данные учителя
      */
     public Teacher update(Teacher teacher) throws SQLException {
-        String sql = "UPDATE teachers SET name = ?, school_id = ? WHERE id = ?";
+        updateReturningPreviousSchool(teacher);
+        return teacher;
+    }
+
+    /**
+     * Обновляет данные учителя и возвращает id школы, в которой он был до изменения.
+     * Прежняя строка читается с блокировкой в том же запросе, поэтому параллельный перевод не теряется
+     */
+    public long updateReturningPreviousSchool(Teacher teacher) throws SQLException {
+        String sql = "UPDATE teachers t SET name = ?, school_id = ? " +
+                "FROM (SELECT id, school_id FROM teachers WHERE id = ? FOR UPDATE) previous " +
+                "WHERE t.id = previous.id RETURNING previous.school_id";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setString(1, teacher.getName());
             ps.setLong(2, teacher.getSchool().getId());
             ps.setLong(3, teacher.getId());
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new IllegalArgumentException("Teacher with id " + teacher.getId() + " not found");
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Teacher with id " + teacher.getId() + " not found");
+                }
+                return rs.getLong(1);
             }
-            return teacher;
         }
     }
 
     /**
-     * Удаляет учителя по ID
+     * Удаляет учителя по ID и возвращает школу и курсы, в которых он состоял.
+     * Все части запроса видят один снимок, поэтому записи на курсы читаются до каскадного удаления
      */
-    public void delete(Long id) throws SQLException {
-        String sql = "DELETE FROM teachers WHERE id = ?";
+    public Membership delete(Long id) throws SQLException {
+        String sql = "WITH removed AS (DELETE FROM teachers WHERE id = ? RETURNING school_id) " +
+                "SELECT school_id, ARRAY(SELECT course_id FROM teachers_courses WHERE teacher_id = ?) FROM removed";
         try (
-                Connection connection = DatabaseConfig.getDataSource().getConnection();
+                Connection connection = DatabaseConfig.getConnection();
                 PreparedStatement ps = connection.prepareStatement(sql)
         ) {
             ps.setLong(1, id);
-            int rowsAffected = ps.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new IllegalArgumentException("Teacher with id " + id + " not found");
+            ps.setLong(2, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Teacher with id " + id + " not found");
+                }
+                return new Membership(rs.getLong(1), SqlArrays.toLongArray(rs.getArray(2)));
             }
         }
     }
@@ -129,8 +201,10 @@ public class TeacherRepository {
         // Запрос для получения учителей
         String teacherSql = "SELECT id, name, school_id FROM teachers WHERE school_id = ?";
         List<Teacher> teachers = new ArrayList<>();
+        // Индекс учителей по id, чтобы прикреплять курсы за O(1) на строку
+        Map<Long, Teacher> teachersById = new HashMap<>();
 
-        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+        try (Connection connection = DatabaseConfig.getConnection()) {
 
             try (PreparedStatement ps = connection.prepareStatement(teacherSql)) {
                 ps.setLong(1, schoolId);
@@ -145,6 +219,7 @@ public class TeacherRepository {
                     teacher.setCourses(new ArrayList<>());
 
                     teachers.add(teacher);
+                    teachersById.put(teacher.getId(), teacher);
                 }
             }
 
@@ -153,32 +228,33 @@ public class TeacherRepository {
                 return teachers;
             }
 
-            // Запрос для получения курсов для всех найденных учителей
+            long[] teacherIds = new long[teachers.size()];
+            for (int i = 0; i < teacherIds.length; i++) {
+                teacherIds[i] = teachers.get(i).getId();
+            }
+
+            // Один текст запроса для любого числа учителей: id передаются массивом
             String courseSql = "SELECT tc.teacher_id, c.id, c.name " +
                     "FROM courses c " +
                     "JOIN teachers_courses tc ON c.id = tc.course_id " +
-                    "WHERE tc.teacher_id IN (" +
-                    String.join(",", teachers.stream().map(t -> t.getId().toString()).toList()) +
-                    ")";
+                    "WHERE tc.teacher_id = ANY(?)";
             try (PreparedStatement ps = connection.prepareStatement(courseSql)) {
+                ps.setArray(1, SqlArrays.bigintArray(connection, teacherIds));
                 ResultSet rs = ps.executeQuery();
                 while (rs.next()) {
-                    Long teacherId = rs.getLong("teacher_id");
-                    Course course = new Course(
-                            rs.getLong("id"),
-                            rs.getString("name"),
-                            new ArrayList<>(),
-                            new ArrayList<>()
-                    );
-                    // Находим учителя по ID и добавляем курс
-                    teachers.stream()
-                            .filter(t -> t.getId().equals(teacherId))
-                            .findFirst()
-                            .ifPresent(t -> t.getCourses().add(course));
+                    Teacher teacher = teachersById.get(rs.getLong("teacher_id"));
+                    if (teacher != null) {
+                        teacher.getCourses().add(new Course(
+                                rs.getLong("id"),
+                                rs.getString("name"),
+                                new ArrayList<>(),
+                                new ArrayList<>()
+                        ));
+                    }
                 }
             }
 
             return teachers;
         }
     }
-}
\ No newline at end of file
+}
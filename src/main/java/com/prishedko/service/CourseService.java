@@ -1,18 +1,26 @@
 package com.prishedko.service;
 
+import com.prishedko.config.UnitOfWork;
 import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.IdList;
+import com.prishedko.dto.RosterChangeDTO;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.Student;
 import com.prishedko.entity.Teacher;
 import com.prishedko.mapper.CourseMapper;
 import com.prishedko.repository.CourseRepository;
+import com.prishedko.repository.RowConsumer;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 public class CourseService {
     private final CourseRepository courseRepository;
+    private final SingleFlight<CourseKey, CourseDTO> courseLoads = new SingleFlight<>("courses");
 
     public CourseService(CourseRepository courseRepository) {
         this.courseRepository = courseRepository;
@@ -30,13 +38,47 @@ public class CourseService {
     }
 
     public CourseDTO getCourse(Long id) throws SQLException {
-        Course course = courseRepository.findById(id);
+        return toDTO(id, courseRepository.findById(id));
+    }
+
+    /**
+     * Курс заданной версии: одновременные запросы одной версии разделяют одну загрузку и один DTO,
+     * который поэтому не изменяют. Запрос, пришедший после изменения курса, видит новую версию
+     * и не присоединяется к загрузке, начатой до изменения. Курс из кэша старше version не отдается:
+     * тело ответа не старше ETag
+     */
+    public CourseDTO getCourse(Long id, long version) throws SQLException {
+        return courseLoads.load(new CourseKey(id, version), () -> toDTO(id, courseRepository.findById(id, version)));
+    }
+
+    private static CourseDTO toDTO(Long id, Course course) {
         if (course == null) {
             throw new IllegalArgumentException("Course with id " + id + " not found");
         }
         return CourseMapper.mapToDTO(course);
     }
 
+    public SingleFlight<?, ?> getCourseLoads() {
+        return courseLoads;
+    }
+
+    /**
+     * Версия курса для ETag без загрузки участников
+     */
+    public long getCourseVersion(Long id) throws SQLException {
+        Long version = courseRepository.findVersion(id);
+        if (version == null) {
+            throw new IllegalArgumentException("Course with id " + id + " not found");
+        }
+        return version;
+    }
+
+    public List<CourseDTO> getCoursesByIds(Collection<Long> ids) throws SQLException {
+        return courseRepository.findAllByIds(ids).stream()
+                .map(CourseMapper::mapToDTO)
+                .toList();
+    }
+
     public CourseDTO updateCourse(CourseDTO dto) throws SQLException {
         if (dto.getId() == null) {
             throw new IllegalArgumentException("Course ID cannot be null for update");
@@ -51,6 +93,39 @@ public class CourseService {
         return CourseMapper.mapToDTO(updated);
     }
 
+    /**
+     * Задает состав студентов курса целиком. В одной транзакции под блокировкой строки курса
+     * текущие записи сравниваются с запрошенными, и меняются только отличающиеся связи -
+     * стоимость записи пропорциональна изменению, а не размеру состава
+     */
+    public RosterChangeDTO replaceStudents(Long courseId, long[] studentIds) throws SQLException {
+        return UnitOfWork.inTransaction(() -> {
+            lockCourse(courseId);
+            RosterDiff diff = RosterDiff.of(courseRepository.findStudentIds(courseId), studentIds);
+            return new RosterChangeDTO(
+                    courseRepository.addStudents(courseId, diff.added()),
+                    courseRepository.removeStudents(courseId, diff.removed())
+            );
+        });
+    }
+
+    public RosterChangeDTO replaceTeachers(Long courseId, long[] teacherIds) throws SQLException {
+        return UnitOfWork.inTransaction(() -> {
+            lockCourse(courseId);
+            RosterDiff diff = RosterDiff.of(courseRepository.findTeacherIds(courseId), teacherIds);
+            return new RosterChangeDTO(
+                    courseRepository.addTeachers(courseId, diff.added()),
+                    courseRepository.removeTeachers(courseId, diff.removed())
+            );
+        });
+    }
+
+    private void lockCourse(Long courseId) throws SQLException {
+        if (!courseRepository.lockForUpdate(courseId)) {
+            throw new IllegalArgumentException("Course with id " + courseId + " not found");
+        }
+    }
+
     public void deleteCourse(Long id) throws SQLException {
         courseRepository.delete(id);
     }
@@ -61,4 +136,47 @@ public class CourseService {
                 .map(CourseMapper::mapToDTO)
                 .toList();
     }
-}
\ No newline at end of file
+
+    public List<CourseDTO> getCoursesPage(long afterId, int limit) throws SQLException {
+        List<Course> courses = courseRepository.findPage(afterId, limit);
+        return courses.stream()
+                .map(CourseMapper::mapToDTO)
+                .toList();
+    }
+
+    public void streamCourses(long afterId, int limit, RowConsumer<CourseDTO> consumer) throws SQLException, IOException {
+        courseRepository.streamAll(afterId, limit, course -> consumer.accept(CourseMapper.mapToDTO(course)));
+    }
+
+    private record CourseKey(Long id, long version) {
+    }
+
+    /**
+     * Разница между текущим составом и запрошенным
+     */
+    record RosterDiff(long[] added, long[] removed) {
+
+        /**
+         * current - по возрастанию без повторов (так его возвращает репозиторий); requested
+         * сортируется, после чего оба массива проходятся слиянием за один проход
+         */
+        static RosterDiff of(long[] current, long[] requested) {
+            long[] wanted = Arrays.stream(requested).sorted().distinct().toArray();
+            IdList added = new IdList();
+            IdList removed = new IdList();
+            int i = 0;
+            int j = 0;
+            while (i < current.length || j < wanted.length) {
+                if (j == wanted.length || (i < current.length && current[i] < wanted[j])) {
+                    removed.addLong(current[i++]);
+                } else if (i == current.length || wanted[j] < current[i]) {
+                    added.addLong(wanted[j++]);
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            return new RosterDiff(added.toLongArray(), removed.toLongArray());
+        }
+    }
+}
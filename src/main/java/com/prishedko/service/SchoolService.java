@@ -1,11 +1,16 @@
 package com.prishedko.service;
 
+import com.prishedko.config.UnitOfWork;
 import com.prishedko.dto.SchoolDTO;
 import com.prishedko.entity.School;
 import com.prishedko.mapper.SchoolMapper;
 import com.prishedko.repository.SchoolRepository;
+import com.prishedko.repository.SchoolRosterVisitor;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
 
 public class SchoolService {
     private final SchoolRepository repository;
@@ -29,11 +34,41 @@ public class SchoolService {
         return SchoolMapper.mapToDTO(school);
     }
 
-    public void deleteSchool(Long id) throws SQLException {
-        if (!repository.existsById(id)) {
-            throw new IllegalArgumentException("School with id " + id + " not found");
+    /**
+     * Передает школу с id учителей и студентов в visitor без создания сущностей и DTO.
+     * Данные не старше version - версии, отданной клиенту в ETag
+     */
+    public void streamSchool(Long id, long version, SchoolRosterVisitor visitor) throws SQLException, IOException {
+        if (!repository.streamRoster(id, version, visitor)) {
+            throw new IllegalArgumentException("School not found");
+        }
+    }
+
+    /**
+     * Версия школы для ETag без загрузки учителей и студентов
+     */
+    public long getSchoolVersion(Long id) throws SQLException {
+        Long version = repository.findVersion(id);
+        if (version == null) {
+            throw new IllegalArgumentException("School not found");
         }
-        repository.delete(id);
+        return version;
+    }
+
+    public List<SchoolDTO> getSchoolsByIds(Collection<Long> ids) throws SQLException {
+        return repository.findAllByIds(ids).stream()
+                .map(SchoolMapper::mapToDTO)
+                .toList();
+    }
+
+    public void deleteSchool(Long id) throws SQLException {
+        // Проверка и удаление на одном соединении в одной транзакции
+        UnitOfWork.inTransaction(() -> {
+            if (!repository.existsById(id)) {
+                throw new IllegalArgumentException("School with id " + id + " not found");
+            }
+            repository.delete(id);
+        });
     }
 
     public SchoolDTO updateSchool(SchoolDTO dto) throws SQLException {
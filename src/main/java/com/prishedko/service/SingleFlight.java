@@ -0,0 +1,105 @@
+package com.prishedko.service;
+
+import com.prishedko.metrics.MetricsSource;
+import com.prishedko.metrics.PrometheusWriter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Объединение одинаковых одновременных загрузок: пока загрузка по ключу идет, остальные запросы
+ * с тем же ключом ждут ее результат вместо повторных запросов в БД. Результат не запоминается -
+ * после завершения загрузки следующий запрос выполняет ее заново.
+ * Ключ должен включать все, от чего зависит результат (например, версию строки), иначе
+ * запрос, пришедший после изменения, получит загруженное до него значение
+ */
+public class SingleFlight<K, V> implements MetricsSource {
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    /**
+     * Выполняет loader или присоединяется к уже идущей загрузке с тем же ключом.
+     * Все ожидающие получают тот же объект или то же исключение
+     */
+    public V load(K key, Loader<V> loader) throws SQLException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            V value = loader.load();
+            flight.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws SQLException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    @Override
+    public void reset() {
+        executed.reset();
+        coalesced.reset();
+    }
+
+    @Override
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("singleflight_loads_total", "counter", "Loads executed or joined to an in-flight load");
+        writer.sample("singleflight_loads_total", getExecuted(), "flight", name, "result", "executed");
+        writer.sample("singleflight_loads_total", getCoalesced(), "flight", name, "result", "coalesced");
+        writer.family("singleflight_in_flight", "gauge", "Loads currently in flight");
+        writer.sample("singleflight_in_flight", getInFlight(), "flight", name);
+    }
+}
@@ -5,9 +5,12 @@ import com.prishedko.dto.StudentDTO;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
 import com.prishedko.mapper.StudentMapper;
+import com.prishedko.repository.RowSupplier;
 import com.prishedko.repository.StudentRepository;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 public class StudentService {
@@ -36,6 +39,12 @@ public class StudentService {
         return StudentMapper.mapToDTO(student);
     }
 
+    public List<StudentDTO> getStudentsByIds(Collection<Long> ids) throws SQLException {
+        return studentRepository.findAllByIds(ids).stream()
+                .map(StudentMapper::mapToDTO)
+                .toList();
+    }
+
     public StudentDTO updateStudent(StudentDTO dto) throws SQLException {
         if (dto.getId() == null) {
             throw new IllegalArgumentException("Student ID cannot be null for update");
@@ -61,4 +70,20 @@ public class StudentService {
                 .map(StudentMapper::mapToDTO)
                 .toList();
     }
-}
\ No newline at end of file
+
+    public List<Long> importStudents(RowSupplier<StudentDTO> source) throws SQLException, IOException {
+        return studentRepository.copyIn(() -> {
+            StudentDTO dto = source.next();
+            if (dto == null) {
+                return null;
+            }
+            if (dto.getName() == null || dto.getSchoolId() == null) {
+                throw new IllegalArgumentException("Student name and schoolId are required");
+            }
+            Student student = new Student();
+            student.setName(dto.getName());
+            student.setSchool(new School(dto.getSchoolId()));
+            return student;
+        });
+    }
+}
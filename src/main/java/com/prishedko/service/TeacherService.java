@@ -7,6 +7,7 @@ import com.prishedko.mapper.TeacherMapper;
 import com.prishedko.repository.TeacherRepository;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 public class TeacherService {
@@ -35,6 +36,12 @@ public class TeacherService {
         return TeacherMapper.mapToDTO(teacher);
     }
 
+    public List<TeacherDTO> getTeachersByIds(Collection<Long> ids) throws SQLException {
+        return teacherRepository.findAllByIds(ids).stream()
+                .map(TeacherMapper::mapToDTO)
+                .toList();
+    }
+
     public TeacherDTO updateTeacher(TeacherDTO dto) throws SQLException {
         if (dto.getId() == null) {
             throw new IllegalArgumentException("Teacher ID cannot be null for update");
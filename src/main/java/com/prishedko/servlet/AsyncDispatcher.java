@@ -0,0 +1,210 @@
+package com.prishedko.servlet;
+
+import com.prishedko.config.AppConfig;
+import com.prishedko.config.DatabaseConfig;
+import com.prishedko.filter.CompressionFilter;
+import com.prishedko.metrics.DbTrace;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.PrometheusWriter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Выполняет обработку запросов вне потоков контейнера на ограниченном пуле с ограниченной очередью.
+ * Запрос, не попавший в очередь или простоявший в ней дольше queueTimeoutMs, получает 503;
+ * начавшийся запрос сам завершает ответ
+ */
+public class AsyncDispatcher {
+    private static final Logger log = Logger.getLogger(AsyncDispatcher.class.getName());
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private static AsyncDispatcher shared;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+    private final long queueTimeoutMs;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * Обработчик запроса, выполняемый в пуле
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException;
+    }
+
+    public AsyncDispatcher(ThreadPoolExecutor executor, ScheduledExecutorService timer, long queueTimeoutMs) {
+        this.executor = executor;
+        this.timer = timer;
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    /**
+     * Общий диспетчер; число потоков по умолчанию равно размеру пула соединений
+     */
+    public static synchronized AsyncDispatcher shared() {
+        if (shared == null) {
+            int threads = AppConfig.getInt("async.threads", DatabaseConfig.getDataSource().getMaximumPoolSize());
+            int queueSize = AppConfig.getInt("async.queueSize", 200);
+            long queueTimeoutMs = AppConfig.getLong("async.queueTimeoutMs", 5000);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize), daemonThreads("jdbc-worker-"));
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("async-timeout-"));
+            shared = new AsyncDispatcher(executor, timer, queueTimeoutMs);
+            MetricsRegistry.register("async", shared::writeTo);
+        }
+        return shared;
+    }
+
+    /**
+     * Переводит запрос в асинхронный режим и ставит обработчик в очередь
+     */
+    public void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler) {
+        AsyncContext asyncContext = req.startAsync(req, resp);
+        // Время ожидания в очереди контролирует сам диспетчер, выполнение не прерывается контейнером
+        asyncContext.setTimeout(0);
+        Task task = new Task(asyncContext, handler);
+        task.timeout = timer.schedule(task::expire, queueTimeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.timeout.cancel(false);
+            if (task.state.compareAndSet(QUEUED, DONE)) {
+                rejected.incrementAndGet();
+                reject(asyncContext, "Server is overloaded");
+            }
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Состояние пула и счетчики отказов в формате Prometheus
+     */
+    public void writeTo(PrometheusWriter writer) throws IOException {
+        writer.family("async_executor_active_threads", "gauge", "Workers currently running a request");
+        writer.sample("async_executor_active_threads", getActiveCount());
+        writer.family("async_executor_queued_requests", "gauge", "Requests waiting for a worker");
+        writer.sample("async_executor_queued_requests", getQueueSize());
+        writer.family("async_executor_rejected_total", "counter", "Requests answered with 503");
+        writer.sample("async_executor_rejected_total", getRejectedCount(), "reason", "queue_full");
+        writer.sample("async_executor_rejected_total", getTimedOutCount(), "reason", "queue_timeout");
+    }
+
+    private static void reject(AsyncContext asyncContext, String message) {
+        HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+        try {
+            resp.setHeader("Retry-After", "1");
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, message);
+            CompressionFilter.finish(resp);
+        } catch (IOException | IllegalStateException ignored) {
+            // Клиент уже отключился
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Дописывает сжатое тело до complete(): после complete() контейнер не обязан принимать запись в ответ
+     */
+    private static void finishBody(HttpServletResponse resp) {
+        try {
+            CompressionFilter.finish(resp);
+        } catch (IOException | IllegalStateException ignored) {
+            // Клиент уже отключился
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Task implements Runnable {
+        private final AsyncContext asyncContext;
+        private final Handler handler;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private volatile ScheduledFuture<?> timeout;
+
+        Task(AsyncContext asyncContext, Handler handler) {
+            this.asyncContext = asyncContext;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            timeout.cancel(false);
+            HttpServletRequest req = (HttpServletRequest) asyncContext.getRequest();
+            HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+            // Обращения к БД в пуле учитываются в трассировке исходного запроса
+            DbTrace previous = DbTrace.bind((DbTrace) req.getAttribute(DbTrace.ATTRIBUTE));
+            try {
+                handler.handle(req, resp);
+            } catch (ServletException | IOException | RuntimeException e) {
+                // Контейнер не видит исключений из пула, поэтому причина 500 остается только в логе
+                log.log(Level.SEVERE, "Async handler failed: " + req.getMethod() + " " + req.getRequestURI(), e);
+                if (!resp.isCommitted()) {
+                    try {
+                        resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal server error");
+                    } catch (IOException ignored) {
+                        // Клиент уже отключился
+                    }
+                }
+            } finally {
+                DbTrace.restore(previous);
+                state.set(DONE);
+                finishBody(resp);
+                asyncContext.complete();
+            }
+        }
+
+        void expire() {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                executor.remove(this);
+                timedOut.incrementAndGet();
+                reject(asyncContext, "Request timed out in queue");
+            }
+        }
+    }
+}
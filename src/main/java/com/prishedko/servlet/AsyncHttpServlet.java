@@ -0,0 +1,27 @@
+package com.prishedko.servlet;
+
+import com.prishedko.config.AppConfig;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Базовый сервлет: при server.async=true обработка запроса уходит в AsyncDispatcher,
+ * а поток контейнера сразу освобождается
+ */
+public abstract class AsyncHttpServlet extends HttpServlet {
+    private static final boolean ASYNC_ENABLED = AppConfig.getBoolean("server.async", false);
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ASYNC_ENABLED || !req.isAsyncSupported() || req.getDispatcherType() != DispatcherType.REQUEST) {
+            super.service(req, resp);
+            return;
+        }
+        AsyncDispatcher.shared().dispatch(req, resp, (request, response) -> super.service(request, response));
+    }
+}
@@ -1,10 +1,14 @@
 package com.prishedko.servlet;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.prishedko.config.JacksonConfig;
 import com.prishedko.dto.CourseDTO;
-import com.prishedko.repository.CourseRepository;
+import com.prishedko.dto.RosterChangeDTO;
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.repository.Repositories;
 import com.prishedko.service.CourseService;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -12,14 +16,18 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-public class CourseServlet extends HttpServlet {
+public class CourseServlet extends AsyncHttpServlet {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private CourseService courseService;
     private ObjectMapper objectMapper;
 
     @Override
     public void init() {
-        courseService = new CourseService(new CourseRepository());
-        objectMapper = new ObjectMapper();
+        courseService = new CourseService(Repositories.courses());
+        MetricsRegistry.register("course_loads", courseService.getCourseLoads());
+        objectMapper = JacksonConfig.objectMapper();
     }
 
     @Override
@@ -29,8 +37,40 @@ public class CourseServlet extends HttpServlet {
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
-                List<CourseDTO> courses = courseService.getAllCourses();
-                objectMapper.writeValue(resp.getWriter(), courses);
+                String[] idsParam = req.getParameterValues("ids");
+                if (idsParam != null) {
+                    List<Long> ids = RequestParams.parseIds(idsParam);
+                    if (ids.size() > RequestParams.MAX_IDS) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+                        return;
+                    }
+                    List<CourseDTO> courses = courseService.getCoursesByIds(ids);
+                    WireFormat.write(req, resp, objectMapper, courses);
+                    return;
+                }
+                String afterParam = req.getParameter("after");
+                String limitParam = req.getParameter("limit");
+                long afterId = afterParam != null ? Long.parseLong(afterParam) : 0L;
+
+                if (Boolean.parseBoolean(req.getParameter("stream"))) {
+                    int limit = limitParam != null ? Integer.parseInt(limitParam) : 0;
+                    if (limit < 0) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                        return;
+                    }
+                    writeCourseStream(afterId, limit, req, resp);
+                } else if (afterParam != null || limitParam != null) {
+                    int limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_PAGE_SIZE;
+                    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                        return;
+                    }
+                    List<CourseDTO> courses = courseService.getCoursesPage(afterId, limit);
+                    WireFormat.write(req, resp, objectMapper, courses);
+                } else {
+                    List<CourseDTO> courses = courseService.getAllCourses();
+                    WireFormat.write(req, resp, objectMapper, courses);
+                }
             } else {
                 String[] splits = pathInfo.split("/");
                 if (splits.length != 2) {
@@ -38,8 +78,12 @@ public class CourseServlet extends HttpServlet {
                     return;
                 }
                 Long id = Long.parseLong(splits[1]);
-                CourseDTO course = courseService.getCourse(id);
-                objectMapper.writeValue(resp.getWriter(), course);
+                long version = courseService.getCourseVersion(id);
+                if (ETags.notModified(req, resp, version)) {
+                    return;
+                }
+                CourseDTO course = courseService.getCourse(id, version);
+                WireFormat.write(req, resp, objectMapper, course);
             }
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
@@ -60,10 +104,10 @@ public class CourseServlet extends HttpServlet {
 
         resp.setContentType("application/json");
         try {
-            CourseDTO dto = objectMapper.readValue(req.getReader(), CourseDTO.class);
+            CourseDTO dto = WireFormat.read(req, objectMapper, CourseDTO.class);
             CourseDTO created = courseService.createCourse(dto);
             resp.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(resp.getWriter(), created);
+            WireFormat.write(req, resp, objectMapper, created);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         }
@@ -80,15 +124,19 @@ public class CourseServlet extends HttpServlet {
         resp.setContentType("application/json");
         try {
             String[] splits = pathInfo.split("/");
+            if (splits.length == 3 && ("students".equals(splits[2]) || "teachers".equals(splits[2]))) {
+                replaceMembers(Long.parseLong(splits[1]), "students".equals(splits[2]), req, resp);
+                return;
+            }
             if (splits.length != 2) {
                 resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid path");
                 return;
             }
             Long id = Long.parseLong(splits[1]);
-            CourseDTO dto = objectMapper.readValue(req.getReader(), CourseDTO.class);
+            CourseDTO dto = WireFormat.read(req, objectMapper, CourseDTO.class);
             dto.setId(id);
             CourseDTO updated = courseService.updateCourse(dto);
-            objectMapper.writeValue(resp.getWriter(), updated);
+            WireFormat.write(req, resp, objectMapper, updated);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         } catch (NumberFormatException e) {
@@ -123,4 +171,42 @@ public class CourseServlet extends HttpServlet {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * PUT /courses/{id}/students или /courses/{id}/teachers с массивом id в теле задает состав
+     * участников целиком; в ответе - число добавленных и удаленных связей
+     */
+    private void replaceMembers(Long id, boolean students, HttpServletRequest req, HttpServletResponse resp)
+            throws IOException, SQLException {
+        long[] memberIds = WireFormat.read(req, objectMapper, long[].class);
+        if (memberIds == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Array of ids required");
+            return;
+        }
+        RosterChangeDTO change = students
+                ? courseService.replaceStudents(id, memberIds)
+                : courseService.replaceTeachers(id, memberIds);
+        WireFormat.write(req, resp, objectMapper, change);
+    }
+
+    /**
+     * Пишет курсы массивом по мере чтения из ResultSet, не собирая список в памяти
+     */
+    private void writeCourseStream(long afterId, int limit, HttpServletRequest req, HttpServletResponse resp)
+            throws IOException, SQLException {
+        ObjectWriter writer = WireFormat.accepted(req).writer(CourseDTO.class);
+        JsonGenerator generator = WireFormat.generator(req, resp, objectMapper);
+        try {
+            generator.writeStartArray();
+            courseService.streamCourses(afterId, limit, course -> writer.writeValue(generator, course));
+            generator.writeEndArray();
+        } catch (SQLException e) {
+            // Если часть массива уже отправлена, статус ошибки выставить нельзя - обрываем ответ
+            if (resp.isCommitted()) {
+                throw new IOException("Database error while streaming courses", e);
+            }
+            throw e;
+        }
+        generator.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.prishedko.servlet;
+
+import com.prishedko.filter.CompressionFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Условный GET по версии строки: ETag "версия[-формат]" и ответ 304 на совпавший If-None-Match
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Тег представления версии в формате format: "7" для JSON, "7-cbor" для CBOR
+     */
+    static String of(long version, WireFormat format) {
+        return "\"" + version + format.etagSuffix() + "\"";
+    }
+
+    /**
+     * Выставляет ETag представления, выбранного по Accept, и, если клиент прислал его тег
+     * в If-None-Match, отвечает 304 без тела. Версия читается до загрузки данных, а из кэша
+     * отдаются только данные не старше этой версии, поэтому тег может быть старше тела, но не новее:
+     * в худшем случае следующий запрос получит 200 вместо 304
+     */
+    static boolean notModified(HttpServletRequest req, HttpServletResponse resp, long version) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        String etag = of(version, WireFormat.accepted(req));
+        String encoding = (String) req.getAttribute(CompressionFilter.ENCODING_ATTRIBUTE);
+        String matched = match(ifNoneMatch, etag, encoding);
+        // Клиент может хранить ответ, но перед использованием обязан его перепроверить
+        resp.setHeader("Cache-Control", "no-cache");
+        if (matched == null) {
+            resp.setHeader("ETag", etag);
+            return false;
+        }
+        // 304 описывает то же представление, что и 200: с тем же тегом и тем же Vary
+        resp.setHeader("ETag", matched);
+        resp.addHeader("Vary", "Accept");
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Тег из If-None-Match, совпавший с etag или с его сжатым вариантом для кодирования encoding
+     * ("7-gzip", его ставит CompressionFilter), либо null. Сравнение слабое (RFC 9110): префикс W/
+     * не учитывается, * совпадает с etag. Варианты других форматов и кодирований не совпадают
+     */
+    static String match(String ifNoneMatch, String etag, String encoding) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String encoded = encoding != null ? etag.substring(0, etag.length() - 1) + "-" + encoding + "\"" : null;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return etag;
+            }
+            if (tag.equals(encoded)) {
+                return encoded;
+            }
+        }
+        return null;
+    }
+}
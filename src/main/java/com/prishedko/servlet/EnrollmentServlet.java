@@ -0,0 +1,72 @@
+package com.prishedko.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.config.JacksonConfig;
+import com.prishedko.dto.EnrollmentSetDTO;
+import com.prishedko.index.EnrollmentIndex;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Множественные запросы к индексу записей на курсы:
+ * GET /api/enrollments/{students|teachers}?all=1,2&any=3,4&none=5&schoolId=7[&count=true].
+ * Ответ строится в памяти без обращения к БД, поэтому сервлет не уходит в асинхронный пул
+ */
+public class EnrollmentServlet extends HttpServlet {
+    private EnrollmentIndex index;
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void init() {
+        index = EnrollmentIndex.getInstance();
+        objectMapper = JacksonConfig.objectMapper();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String pathInfo = req.getPathInfo();
+        EnrollmentIndex.Member member;
+        if ("/students".equals(pathInfo)) {
+            member = EnrollmentIndex.Member.STUDENTS;
+        } else if ("/teachers".equals(pathInfo)) {
+            member = EnrollmentIndex.Member.TEACHERS;
+        } else {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid path");
+            return;
+        }
+
+        try {
+            List<Long> all = courseIds(req, "all");
+            List<Long> any = courseIds(req, "any");
+            List<Long> none = courseIds(req, "none");
+            String schoolIdParam = req.getParameter("schoolId");
+            Long schoolId = schoolIdParam != null ? Long.parseLong(schoolIdParam) : null;
+            if (all.isEmpty() && any.isEmpty() && schoolId == null) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "all, any or schoolId parameter is required");
+                return;
+            }
+            if (all.size() + any.size() + none.size() > RequestParams.MAX_IDS) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+                return;
+            }
+
+            Roaring64Bitmap members = index.query(member, all, any, none, schoolId);
+            boolean countOnly = Boolean.parseBoolean(req.getParameter("count"));
+            resp.setContentType("application/json");
+            objectMapper.writeValue(resp.getWriter(),
+                    new EnrollmentSetDTO(members.getLongCardinality(), countOnly ? null : members.toArray()));
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid ID format");
+        }
+    }
+
+    private static List<Long> courseIds(HttpServletRequest req, String name) {
+        String[] values = req.getParameterValues(name);
+        return values != null ? RequestParams.parseIds(values) : List.of();
+    }
+}
@@ -0,0 +1,22 @@
+package com.prishedko.servlet;
+
+import com.prishedko.metrics.MetricsRegistry;
+import com.prishedko.metrics.PrometheusWriter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Отдает метрики всех зарегистрированных источников в формате Prometheus
+ */
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType(PrometheusWriter.CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-store");
+        MetricsRegistry.writeTo(new PrometheusWriter(resp.getWriter()));
+    }
+}
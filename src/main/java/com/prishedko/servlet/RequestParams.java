@@ -0,0 +1,32 @@
+package com.prishedko.servlet;
+
+import com.prishedko.dto.IdList;
+
+import java.util.List;
+
+/**
+ * Разбор параметров запроса, общих для сервлетов
+ */
+final class RequestParams {
+    /** Максимальное число id в одном запросе ?ids= */
+    static final int MAX_IDS = 1000;
+
+    private RequestParams() {
+    }
+
+    /**
+     * Разбирает ?ids=1,2,3 (параметр может повторяться). Некорректный id - NumberFormatException
+     */
+    static List<Long> parseIds(String[] values) {
+        IdList ids = new IdList();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String trimmed = part.trim();
+                if (!trimmed.isEmpty()) {
+                    ids.addLong(Long.parseLong(trimmed));
+                }
+            }
+        }
+        return ids;
+    }
+}
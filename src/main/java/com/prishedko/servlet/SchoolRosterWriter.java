@@ -0,0 +1,55 @@
+package com.prishedko.servlet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.prishedko.repository.SchoolRosterVisitor;
+
+import java.io.IOException;
+
+/**
+ * Пишет школу в JSON в формате SchoolDTO прямо по мере чтения состава из БД:
+ * {"id":..,"name":..,"teacherIds":[..],"studentIds":[..]}
+ */
+public class SchoolRosterWriter implements SchoolRosterVisitor {
+    private final JsonGenerator generator;
+    private boolean studentsStarted;
+
+    public SchoolRosterWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void school(long id, String name) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", id);
+        generator.writeStringField("name", name);
+        generator.writeArrayFieldStart("teacherIds");
+    }
+
+    @Override
+    public void teacher(long id) throws IOException {
+        generator.writeNumber(id);
+    }
+
+    @Override
+    public void student(long id) throws IOException {
+        startStudents();
+        generator.writeNumber(id);
+    }
+
+    /**
+     * Закрывает массивы и объект после того, как репозиторий отдал весь состав
+     */
+    public void finish() throws IOException {
+        startStudents();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void startStudents() throws IOException {
+        if (!studentsStarted) {
+            studentsStarted = true;
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("studentIds");
+        }
+    }
+}
@@ -1,24 +1,26 @@
 package com.prishedko.servlet;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.config.JacksonConfig;
 import com.prishedko.dto.SchoolDTO;
-import com.prishedko.repository.SchoolRepository;
+import com.prishedko.repository.Repositories;
 import com.prishedko.service.SchoolService;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
-public class SchoolServlet extends HttpServlet {
+public class SchoolServlet extends AsyncHttpServlet {
     private SchoolService schoolService;
     private ObjectMapper objectMapper;
 
     @Override
     public void init() {
-        schoolService = new SchoolService(new SchoolRepository());
-        objectMapper = new ObjectMapper();
+        schoolService = new SchoolService(Repositories.schools());
+        objectMapper = JacksonConfig.objectMapper();
     }
 
     @Override
@@ -27,6 +29,18 @@ public class SchoolServlet extends HttpServlet {
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
+                String[] idsParam = req.getParameterValues("ids");
+                if (idsParam != null) {
+                    List<Long> ids = RequestParams.parseIds(idsParam);
+                    if (ids.size() > RequestParams.MAX_IDS) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+                        return;
+                    }
+                    resp.setContentType("application/json");
+                    List<SchoolDTO> schools = schoolService.getSchoolsByIds(ids);
+                    WireFormat.write(req, resp, objectMapper, schools);
+                    return;
+                }
                 resp.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, "List not implemented");
                 return;
             }
@@ -38,9 +52,12 @@ public class SchoolServlet extends HttpServlet {
             }
 
             Long id = Long.parseLong(splits[1]);
-            SchoolDTO school = schoolService.getSchool(id);
+            long version = schoolService.getSchoolVersion(id);
+            if (ETags.notModified(req, resp, version)) {
+                return;
+            }
             resp.setContentType("application/json");
-            objectMapper.writeValue(resp.getWriter(), school);
+            writeSchool(id, version, req, resp);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         } catch (NumberFormatException e) {
@@ -59,11 +76,11 @@ public class SchoolServlet extends HttpServlet {
         }
 
         try {
-            SchoolDTO dto = objectMapper.readValue(req.getReader(), SchoolDTO.class);
+            SchoolDTO dto = WireFormat.read(req, objectMapper, SchoolDTO.class);
             SchoolDTO created = schoolService.createSchool(dto);
             resp.setContentType("application/json");
             resp.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(resp.getWriter(), created);
+            WireFormat.write(req, resp, objectMapper, created);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         }
@@ -85,11 +102,11 @@ public class SchoolServlet extends HttpServlet {
             }
 
             Long id = Long.parseLong(splits[1]);
-            SchoolDTO dto = objectMapper.readValue(req.getReader(), SchoolDTO.class);
+            SchoolDTO dto = WireFormat.read(req, objectMapper, SchoolDTO.class);
             dto.setId(id);
             SchoolDTO updated = schoolService.updateSchool(dto);
             resp.setContentType("application/json");
-            objectMapper.writeValue(resp.getWriter(), updated);
+            WireFormat.write(req, resp, objectMapper, updated);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         } catch (NumberFormatException e) {
@@ -125,4 +142,24 @@ public class SchoolServlet extends HttpServlet {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Пишет школу в ответ по мере чтения id учителей и студентов, не создавая сущности и DTO
+     */
+    private void writeSchool(Long id, long version, HttpServletRequest req, HttpServletResponse resp)
+            throws IOException, SQLException {
+        JsonGenerator generator = WireFormat.generator(req, resp, objectMapper);
+        SchoolRosterWriter writer = new SchoolRosterWriter(generator);
+        try {
+            schoolService.streamSchool(id, version, writer);
+        } catch (SQLException e) {
+            // Если часть ответа уже отправлена, статус ошибки выставить нельзя - обрываем ответ
+            if (resp.isCommitted()) {
+                throw new IOException("Database error while streaming school", e);
+            }
+            throw e;
+        }
+        writer.finish();
+        generator.close();
+    }
+}
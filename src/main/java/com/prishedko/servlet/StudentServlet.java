@@ -1,25 +1,32 @@
 package com.prishedko.servlet;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.config.JacksonConfig;
 import com.prishedko.dto.StudentDTO;
-import com.prishedko.repository.StudentRepository;
+import com.prishedko.repository.Repositories;
+import com.prishedko.repository.RowSupplier;
 import com.prishedko.service.StudentService;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-public class StudentServlet extends HttpServlet {
+public class StudentServlet extends AsyncHttpServlet {
+    private static final String CSV_CONTENT_TYPE = "text/csv";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
     private StudentService studentService;
     private ObjectMapper objectMapper;
 
     @Override
     public void init() {
-        studentService = new StudentService(new StudentRepository());
-        objectMapper = new ObjectMapper();
+        studentService = new StudentService(Repositories.students());
+        objectMapper = JacksonConfig.objectMapper();
     }
 
     @Override
@@ -29,11 +36,22 @@ public class StudentServlet extends HttpServlet {
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
+                String[] idsParam = req.getParameterValues("ids");
+                if (idsParam != null) {
+                    List<Long> ids = RequestParams.parseIds(idsParam);
+                    if (ids.size() > RequestParams.MAX_IDS) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+                        return;
+                    }
+                    List<StudentDTO> students = studentService.getStudentsByIds(ids);
+                    WireFormat.write(req, resp, objectMapper, students);
+                    return;
+                }
                 String schoolIdParam = req.getParameter("schoolId");
                 if (schoolIdParam != null) {
                     Long schoolId = Long.parseLong(schoolIdParam);
                     List<StudentDTO> students = studentService.getStudentsBySchool(schoolId);
-                    objectMapper.writeValue(resp.getWriter(), students);
+                    WireFormat.write(req, resp, objectMapper, students);
                 } else {
                     resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "schoolId parameter is required for list");
                 }
@@ -45,7 +63,7 @@ public class StudentServlet extends HttpServlet {
                 }
                 Long id = Long.parseLong(splits[1]);
                 StudentDTO student = studentService.getStudent(id);
-                objectMapper.writeValue(resp.getWriter(), student);
+                WireFormat.write(req, resp, objectMapper, student);
             }
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
@@ -59,6 +77,10 @@ public class StudentServlet extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String pathInfo = req.getPathInfo();
+        if ("/import".equals(pathInfo)) {
+            importStudents(req, resp);
+            return;
+        }
         if (pathInfo != null && !pathInfo.equals("/")) {
             resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid path for POST");
             return;
@@ -66,10 +88,10 @@ public class StudentServlet extends HttpServlet {
 
         resp.setContentType("application/json");
         try {
-            StudentDTO dto = objectMapper.readValue(req.getReader(), StudentDTO.class);
+            StudentDTO dto = WireFormat.read(req, objectMapper, StudentDTO.class);
             StudentDTO created = studentService.createStudent(dto);
             resp.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(resp.getWriter(), created);
+            WireFormat.write(req, resp, objectMapper, created);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         }
@@ -91,10 +113,10 @@ public class StudentServlet extends HttpServlet {
                 return;
             }
             Long id = Long.parseLong(splits[1]);
-            StudentDTO dto = objectMapper.readValue(req.getReader(), StudentDTO.class);
+            StudentDTO dto = WireFormat.read(req, objectMapper, StudentDTO.class);
             dto.setId(id);
             StudentDTO updated = studentService.updateStudent(dto);
-            objectMapper.writeValue(resp.getWriter(), updated);
+            WireFormat.write(req, resp, objectMapper, updated);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         } catch (NumberFormatException e) {
@@ -129,4 +151,68 @@ public class StudentServlet extends HttpServlet {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Массовый импорт студентов из NDJSON или CSV (name,schoolId), тело запроса читается потоково
+     */
+    private void importStudents(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String contentType = req.getContentType();
+        boolean csv = contentType != null && contentType.startsWith(CSV_CONTENT_TYPE);
+        boolean ndjson = contentType != null
+                && (contentType.startsWith(NDJSON_CONTENT_TYPE) || contentType.startsWith("application/json"));
+        if (!csv && !ndjson) {
+            resp.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Expected text/csv or application/x-ndjson");
+            return;
+        }
+
+        try {
+            RowSupplier<StudentDTO> source;
+            if (csv) {
+                source = csvSupplier(req.getReader());
+            } else {
+                MappingIterator<StudentDTO> iterator = JacksonConfig.readerFor(StudentDTO.class).readValues(req.getReader());
+                source = () -> iterator.hasNextValue() ? iterator.nextValue() : null;
+            }
+            List<Long> ids = studentService.importStudents(source);
+            resp.setContentType("application/json");
+            resp.setStatus(HttpServletResponse.SC_CREATED);
+            WireFormat.write(req, resp, objectMapper, ids);
+        } catch (SQLException e) {
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid import data: " + e.getMessage());
+        }
+    }
+
+    private static RowSupplier<StudentDTO> csvSupplier(BufferedReader reader) {
+        boolean[] firstLine = {true};
+        return () -> {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean header = firstLine[0] && line.toLowerCase().startsWith("name,");
+                firstLine[0] = false;
+                if (header || line.isBlank()) {
+                    continue;
+                }
+                return parseCsvLine(line);
+            }
+            return null;
+        };
+    }
+
+    private static StudentDTO parseCsvLine(String line) {
+        // Имя может содержать запятые, поэтому schoolId ищем по последней запятой
+        int comma = line.lastIndexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Expected name,schoolId but got: " + line);
+        }
+        String name = line.substring(0, comma).trim();
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        StudentDTO dto = new StudentDTO();
+        dto.setName(name);
+        dto.setSchoolId(Long.parseLong(line.substring(comma + 1).trim()));
+        return dto;
+    }
+}
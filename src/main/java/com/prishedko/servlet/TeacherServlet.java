@@ -1,10 +1,10 @@
 package com.prishedko.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.config.JacksonConfig;
 import com.prishedko.dto.TeacherDTO;
-import com.prishedko.repository.TeacherRepository;
+import com.prishedko.repository.Repositories;
 import com.prishedko.service.TeacherService;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -12,14 +12,14 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-public class TeacherServlet extends HttpServlet {
+public class TeacherServlet extends AsyncHttpServlet {
     private TeacherService teacherService;
     private ObjectMapper objectMapper;
 
     @Override
     public void init() {
-        teacherService = new TeacherService(new TeacherRepository());
-        objectMapper = new ObjectMapper();
+        teacherService = new TeacherService(Repositories.teachers());
+        objectMapper = JacksonConfig.objectMapper();
     }
 
     @Override
@@ -29,11 +29,22 @@ public class TeacherServlet extends HttpServlet {
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
+                String[] idsParam = req.getParameterValues("ids");
+                if (idsParam != null) {
+                    List<Long> ids = RequestParams.parseIds(idsParam);
+                    if (ids.size() > RequestParams.MAX_IDS) {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+                        return;
+                    }
+                    List<TeacherDTO> teachers = teacherService.getTeachersByIds(ids);
+                    WireFormat.write(req, resp, objectMapper, teachers);
+                    return;
+                }
                 String schoolIdParam = req.getParameter("schoolId");
                 if (schoolIdParam != null) {
                     Long schoolId = Long.parseLong(schoolIdParam);
                     List<TeacherDTO> teachers = teacherService.getTeachersBySchool(schoolId);
-                    objectMapper.writeValue(resp.getWriter(), teachers);
+                    WireFormat.write(req, resp, objectMapper, teachers);
                 } else {
                     resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "schoolId parameter is required for list");
                 }
@@ -45,7 +56,7 @@ public class TeacherServlet extends HttpServlet {
                 }
                 Long id = Long.parseLong(splits[1]);
                 TeacherDTO teacher = teacherService.getTeacher(id);
-                objectMapper.writeValue(resp.getWriter(), teacher);
+                WireFormat.write(req, resp, objectMapper, teacher);
             }
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
@@ -66,10 +77,10 @@ public class TeacherServlet extends HttpServlet {
 
         resp.setContentType("application/json");
         try {
-            TeacherDTO dto = objectMapper.readValue(req.getReader(), TeacherDTO.class);
+            TeacherDTO dto = WireFormat.read(req, objectMapper, TeacherDTO.class);
             TeacherDTO created = teacherService.createTeacher(dto);
             resp.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(resp.getWriter(), created);
+            WireFormat.write(req, resp, objectMapper, created);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         }
@@ -91,10 +102,10 @@ public class TeacherServlet extends HttpServlet {
                 return;
             }
             Long id = Long.parseLong(splits[1]);
-            TeacherDTO dto = objectMapper.readValue(req.getReader(), TeacherDTO.class);
+            TeacherDTO dto = WireFormat.read(req, objectMapper, TeacherDTO.class);
             dto.setId(id);
             TeacherDTO updated = teacherService.updateTeacher(dto);
-            objectMapper.writeValue(resp.getWriter(), updated);
+            WireFormat.write(req, resp, objectMapper, updated);
         } catch (SQLException e) {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
         } catch (NumberFormatException e) {
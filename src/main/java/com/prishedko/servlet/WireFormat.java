@@ -0,0 +1,172 @@
+package com.prishedko.servlet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.prishedko.config.JacksonConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Формат тела запроса и ответа: JSON по умолчанию, CBOR или Smile по Accept / Content-Type.
+ * Бинарные форматы - те же DTO через Jackson, но без текстовой записи чисел
+ */
+enum WireFormat {
+    JSON("application/json", null),
+    CBOR("application/cbor", JacksonConfig.configure(CBORMapper.builder()).build()),
+    SMILE("application/x-jackson-smile", JacksonConfig.configure(SmileMapper.builder()).build());
+
+    private final String contentType;
+    private final ObjectMapper binaryMapper;
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    WireFormat(String contentType, ObjectMapper binaryMapper) {
+        this.contentType = contentType;
+        this.binaryMapper = binaryMapper;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Закэшированный writer формата для типа DTO; для JSON - общий из JacksonConfig
+     */
+    ObjectWriter writer(Class<?> type) {
+        return this == JSON ? JacksonConfig.writerFor(type) : writers.computeIfAbsent(type, binaryMapper::writerFor);
+    }
+
+    ObjectReader reader(Class<?> type) {
+        return this == JSON ? JacksonConfig.readerFor(type) : readers.computeIfAbsent(type, binaryMapper::readerFor);
+    }
+
+    /**
+     * Пишет значение в формате, выбранном по Accept. JSON идет через Writer ответа,
+     * Content-Type для него выставляет сам сервлет
+     */
+    static void write(HttpServletRequest req, HttpServletResponse resp, ObjectMapper json, Object value)
+            throws IOException {
+        WireFormat format = accepted(req);
+        resp.addHeader("Vary", "Accept");
+        if (format == JSON) {
+            json.writeValue(resp.getWriter(), value);
+        } else {
+            format.prepare(resp);
+            format.binaryMapper.writeValue(resp.getOutputStream(), value);
+        }
+    }
+
+    /**
+     * Генератор для потоковой записи ответа в формате, выбранном по Accept
+     */
+    static JsonGenerator generator(HttpServletRequest req, HttpServletResponse resp, ObjectMapper json)
+            throws IOException {
+        WireFormat format = accepted(req);
+        resp.addHeader("Vary", "Accept");
+        if (format == JSON) {
+            return json.getFactory().createGenerator(resp.getWriter());
+        }
+        format.prepare(resp);
+        return format.binaryMapper.getFactory().createGenerator(resp.getOutputStream());
+    }
+
+    /**
+     * Читает тело запроса в формате из Content-Type
+     */
+    static <T> T read(HttpServletRequest req, ObjectMapper json, Class<T> type) throws IOException {
+        WireFormat format = ofContentType(req.getContentType());
+        if (format == JSON) {
+            return json.readValue(req.getReader(), type);
+        }
+        return format.reader(type).readValue(req.getInputStream());
+    }
+
+    private void prepare(HttpServletResponse resp) {
+        resp.setContentType(contentType);
+    }
+
+    /**
+     * Суффикс сильного ETag: бинарное представление отличается от JSON, у JSON суффикса нет
+     */
+    String etagSuffix() {
+        return this == JSON ? "" : "-" + name().toLowerCase(Locale.ROOT);
+    }
+
+    static WireFormat accepted(HttpServletRequest req) {
+        return accepted(req.getHeader("Accept"));
+    }
+
+    /**
+     * Выбор по Accept с учетом q. Бинарный формат отдается, только если он назван явно;
+     * при равном q явно названный тип важнее маски, а JSON - остальных. Ничего подходящего - JSON
+     */
+    static WireFormat accepted(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        WireFormat[] formats = values();
+        double[] weights = new double[formats.length];
+        boolean[] explicit = new boolean[formats.length];
+        double wildcard = 0;
+        for (String range : accept.split(",")) {
+            String[] params = range.split(";");
+            String mediaType = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (mediaType.equals("*/*") || mediaType.equals("application/*")) {
+                wildcard = Math.max(wildcard, q);
+                continue;
+            }
+            for (WireFormat format : formats) {
+                if (format.contentType.equals(mediaType)) {
+                    weights[format.ordinal()] = q;
+                    explicit[format.ordinal()] = true;
+                }
+            }
+        }
+        if (!explicit[JSON.ordinal()]) {
+            weights[JSON.ordinal()] = wildcard;
+        }
+
+        WireFormat best = JSON;
+        for (WireFormat format : formats) {
+            double weight = weights[format.ordinal()];
+            double bestWeight = weights[best.ordinal()];
+            if (weight > bestWeight
+                    || (weight == bestWeight && weight > 0 && explicit[format.ordinal()] && !explicit[best.ordinal()])) {
+                best = format;
+            }
+        }
+        return best;
+    }
+
+    static WireFormat ofContentType(String contentType) {
+        if (contentType != null) {
+            String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+            for (WireFormat format : values()) {
+                if (format.contentType.equals(mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
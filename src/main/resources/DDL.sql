@@ -1,12 +1,14 @@
 CREATE TABLE schools (
     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
-    name VARCHAR(255) NOT NULL
+    name VARCHAR(255) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 1
 );
 
 CREATE TABLE teachers (
     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
     name VARCHAR(255) NOT NULL,
     school_id BIGINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 1,
     CONSTRAINT fk_teacher_school
         FOREIGN KEY (school_id)
         REFERENCES schools(id)
@@ -17,6 +19,7 @@ CREATE TABLE students (
     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
     name VARCHAR(255) NOT NULL,
     school_id BIGINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 1,
     CONSTRAINT fk_student_school
         FOREIGN KEY (school_id)
         REFERENCES schools(id)
@@ -25,7 +28,8 @@ CREATE TABLE students (
 
 CREATE TABLE courses (
     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
-    name VARCHAR(255) NOT NULL
+    name VARCHAR(255) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 1
 );
 
 -- (ManyToMany связь)
@@ -64,4 +68,70 @@ CREATE INDEX idx_students_school_id ON students(school_id);
 CREATE INDEX idx_teachers_courses_teacher_id ON teachers_courses(teacher_id);
 CREATE INDEX idx_teachers_courses_course_id ON teachers_courses(course_id);
 CREATE INDEX idx_students_courses_student_id ON students_courses(student_id);
-CREATE INDEX idx_students_courses_course_id ON students_courses(course_id);
\ No newline at end of file
+CREATE INDEX idx_students_courses_course_id ON students_courses(course_id);
+-- Версии строк для ETag: растут при изменении строки и ее связей (состав школы, участники курса)
+CREATE OR REPLACE FUNCTION bump_version() RETURNS trigger AS $$
+BEGIN
+    IF NEW.version = OLD.version THEN
+        NEW.version := OLD.version + 1;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER schools_version BEFORE UPDATE ON schools FOR EACH ROW EXECUTE FUNCTION bump_version();
+CREATE TRIGGER teachers_version BEFORE UPDATE ON teachers FOR EACH ROW EXECUTE FUNCTION bump_version();
+CREATE TRIGGER students_version BEFORE UPDATE ON students FOR EACH ROW EXECUTE FUNCTION bump_version();
+CREATE TRIGGER courses_version BEFORE UPDATE ON courses FOR EACH ROW EXECUTE FUNCTION bump_version();
+
+-- Учитель или студент пришел в школу или ушел из нее: одна версия на школу за оператор, а не на строку
+CREATE OR REPLACE FUNCTION bump_school_version() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE schools SET version = version + 1 WHERE id IN (SELECT school_id FROM new_rows);
+    ELSIF TG_OP = 'DELETE' THEN
+        UPDATE schools SET version = version + 1 WHERE id IN (SELECT school_id FROM old_rows);
+    ELSE
+        UPDATE schools SET version = version + 1 WHERE id IN (
+            SELECT unnest(ARRAY[o.school_id, n.school_id])
+            FROM old_rows o JOIN new_rows n ON n.id = o.id
+            WHERE n.school_id <> o.school_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER teachers_school_insert AFTER INSERT ON teachers
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+CREATE TRIGGER teachers_school_update AFTER UPDATE ON teachers
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+CREATE TRIGGER teachers_school_delete AFTER DELETE ON teachers
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+CREATE TRIGGER students_school_insert AFTER INSERT ON students
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+CREATE TRIGGER students_school_update AFTER UPDATE ON students
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+CREATE TRIGGER students_school_delete AFTER DELETE ON students
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+
+-- Запись на курс или ее отмена меняет только версию курса: строки участников не обновляются,
+-- поэтому оператор не блокирует их и не пишет по строке на участника
+CREATE OR REPLACE FUNCTION bump_enrollment_version() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE courses SET version = version + 1 WHERE id IN (SELECT course_id FROM new_rows);
+    ELSE
+        UPDATE courses SET version = version + 1 WHERE id IN (SELECT course_id FROM old_rows);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER teachers_courses_insert AFTER INSERT ON teachers_courses
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+CREATE TRIGGER teachers_courses_delete AFTER DELETE ON teachers_courses
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+CREATE TRIGGER students_courses_insert AFTER INSERT ON students_courses
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+CREATE TRIGGER students_courses_delete AFTER DELETE ON students_courses
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
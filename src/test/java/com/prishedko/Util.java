@@ -5,13 +5,15 @@ public class Util {
     public static final String CREATE_TABLES = """
                 CREATE TABLE schools (
                     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
-                    name VARCHAR(255) NOT NULL
+                    name VARCHAR(255) NOT NULL,
+                    version BIGINT NOT NULL DEFAULT 1
                 );
             
                 CREATE TABLE teachers (
                     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
                     name VARCHAR(255) NOT NULL,
                     school_id BIGINT NOT NULL,
+                    version BIGINT NOT NULL DEFAULT 1,
                     CONSTRAINT fk_teacher_school FOREIGN KEY (school_id) REFERENCES schools(id) ON DELETE CASCADE
                 );
             
@@ -19,12 +21,14 @@ public class Util {
                     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
                     name VARCHAR(255) NOT NULL,
                     school_id BIGINT NOT NULL,
+                    version BIGINT NOT NULL DEFAULT 1,
                     CONSTRAINT fk_student_school FOREIGN KEY (school_id) REFERENCES schools(id) ON DELETE CASCADE
                 );
             
                 CREATE TABLE courses (
                     id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
-                    name VARCHAR(255) NOT NULL
+                    name VARCHAR(255) NOT NULL,
+                    version BIGINT NOT NULL DEFAULT 1
                 );
             
                 CREATE TABLE teachers_courses (
@@ -42,5 +46,72 @@ public class Util {
                     CONSTRAINT fk_student FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE,
                     CONSTRAINT fk_course_student FOREIGN KEY (course_id) REFERENCES courses(id) ON DELETE CASCADE
                 );
+            
+                -- Версии строк для ETag: растут при изменении строки и ее связей (состав школы, участники курса)
+                CREATE OR REPLACE FUNCTION bump_version() RETURNS trigger AS $$
+                BEGIN
+                    IF NEW.version = OLD.version THEN
+                        NEW.version := OLD.version + 1;
+                    END IF;
+                    RETURN NEW;
+                END;
+                $$ LANGUAGE plpgsql;
+            
+                CREATE TRIGGER schools_version BEFORE UPDATE ON schools FOR EACH ROW EXECUTE FUNCTION bump_version();
+                CREATE TRIGGER teachers_version BEFORE UPDATE ON teachers FOR EACH ROW EXECUTE FUNCTION bump_version();
+                CREATE TRIGGER students_version BEFORE UPDATE ON students FOR EACH ROW EXECUTE FUNCTION bump_version();
+                CREATE TRIGGER courses_version BEFORE UPDATE ON courses FOR EACH ROW EXECUTE FUNCTION bump_version();
+            
+                -- Учитель или студент пришел в школу или ушел из нее: одна версия на школу за оператор, а не на строку
+                CREATE OR REPLACE FUNCTION bump_school_version() RETURNS trigger AS $$
+                BEGIN
+                    IF TG_OP = 'INSERT' THEN
+                        UPDATE schools SET version = version + 1 WHERE id IN (SELECT school_id FROM new_rows);
+                    ELSIF TG_OP = 'DELETE' THEN
+                        UPDATE schools SET version = version + 1 WHERE id IN (SELECT school_id FROM old_rows);
+                    ELSE
+                        UPDATE schools SET version = version + 1 WHERE id IN (
+                            SELECT unnest(ARRAY[o.school_id, n.school_id])
+                            FROM old_rows o JOIN new_rows n ON n.id = o.id
+                            WHERE n.school_id <> o.school_id);
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql;
+            
+                CREATE TRIGGER teachers_school_insert AFTER INSERT ON teachers
+                    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+                CREATE TRIGGER teachers_school_update AFTER UPDATE ON teachers
+                    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+                CREATE TRIGGER teachers_school_delete AFTER DELETE ON teachers
+                    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+                CREATE TRIGGER students_school_insert AFTER INSERT ON students
+                    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+                CREATE TRIGGER students_school_update AFTER UPDATE ON students
+                    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+                CREATE TRIGGER students_school_delete AFTER DELETE ON students
+                    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_school_version();
+            
+                -- Запись на курс или ее отмена меняет только версию курса: строки участников не обновляются,
+                -- поэтому оператор не блокирует их и не пишет по строке на участника
+                CREATE OR REPLACE FUNCTION bump_enrollment_version() RETURNS trigger AS $$
+                BEGIN
+                    IF TG_OP = 'INSERT' THEN
+                        UPDATE courses SET version = version + 1 WHERE id IN (SELECT course_id FROM new_rows);
+                    ELSE
+                        UPDATE courses SET version = version + 1 WHERE id IN (SELECT course_id FROM old_rows);
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql;
+            
+                CREATE TRIGGER teachers_courses_insert AFTER INSERT ON teachers_courses
+                    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+                CREATE TRIGGER teachers_courses_delete AFTER DELETE ON teachers_courses
+                    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+                CREATE TRIGGER students_courses_insert AFTER INSERT ON students_courses
+                    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
+                CREATE TRIGGER students_courses_delete AFTER DELETE ON students_courses
+                    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION bump_enrollment_version();
             """;
 }
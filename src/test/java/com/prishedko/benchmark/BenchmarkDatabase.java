@@ -0,0 +1,166 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.config.DatabaseConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Подготовка базы для бенчмарков: пул к локальной PostgreSQL из db.properties и тестовые данные.
+ * Схема (DDL.sql) должна быть уже применена.
+ */
+public final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Создает пул заданного размера и подменяет им пул в DatabaseConfig
+     */
+    public static HikariDataSource install(int poolSize, MetricsTrackerFactory metricsTrackerFactory) {
+        return install(poolSize, metricsTrackerFactory, new Properties());
+    }
+
+    /**
+     * То же с заданными свойствами драйвера (prepareThreshold, preparedStatementCacheQueries, ...)
+     */
+    public static HikariDataSource install(int poolSize, MetricsTrackerFactory metricsTrackerFactory,
+                                           Properties dataSourceProperties) {
+        Properties props = loadProperties();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(props.getProperty("db.url"));
+        config.setUsername(props.getProperty("db.username"));
+        config.setPassword(props.getProperty("db.password"));
+        config.setMaximumPoolSize(poolSize);
+        if (metricsTrackerFactory != null) {
+            config.setMetricsTrackerFactory(metricsTrackerFactory);
+        }
+        config.setDataSourceProperties(dataSourceProperties);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        DatabaseConfig.install(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Создает школу с заданным числом учителей и студентов
+     */
+    public static long createSchool(Connection connection, String name, int teachers, int students) throws SQLException {
+        long schoolId;
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO schools (name) VALUES (?) RETURNING id")) {
+            ps.setString(1, name);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            schoolId = rs.getLong(1);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO teachers (name, school_id) SELECT 'Teacher ' || g, ? FROM generate_series(1, ?) g")) {
+            ps.setLong(1, schoolId);
+            ps.setInt(2, teachers);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO students (name, school_id) SELECT 'Student ' || g, ? FROM generate_series(1, ?) g")) {
+            ps.setLong(1, schoolId);
+            ps.setInt(2, students);
+            ps.executeUpdate();
+        }
+        return schoolId;
+    }
+
+    /**
+     * Удаляет школу вместе со всеми связанными данными (ON DELETE CASCADE)
+     */
+    public static void deleteSchool(Connection connection, long schoolId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM schools WHERE id = ?")) {
+            ps.setLong(1, schoolId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Создает курс и записывает на него всех учителей и студентов школы
+     */
+    public static long createCourse(Connection connection, String name, long schoolId) throws SQLException {
+        long courseId;
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO courses (name) VALUES (?) RETURNING id")) {
+            ps.setString(1, name);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            courseId = rs.getLong(1);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO teachers_courses (teacher_id, course_id) SELECT id, ? FROM teachers WHERE school_id = ?")) {
+            ps.setLong(1, courseId);
+            ps.setLong(2, schoolId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO students_courses (student_id, course_id) SELECT id, ? FROM students WHERE school_id = ?")) {
+            ps.setLong(1, courseId);
+            ps.setLong(2, schoolId);
+            ps.executeUpdate();
+        }
+        return courseId;
+    }
+
+    /**
+     * Удаляет курс вместе со связями
+     */
+    public static void deleteCourse(Connection connection, long courseId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM courses WHERE id = ?")) {
+            ps.setLong(1, courseId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream in = BenchmarkDatabase.class.getClassLoader().getResourceAsStream("db.properties")) {
+            props.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load database configuration", e);
+        }
+        return props;
+    }
+
+    /**
+     * Считает суммарное время ожидания соединения из пула
+     */
+    public static final class PoolWaitTracker implements MetricsTrackerFactory {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    acquisitions.increment();
+                    waitNanos.add(elapsedAcquiredNanos);
+                }
+            };
+        }
+
+        public void reset() {
+            acquisitions.reset();
+            waitNanos.reset();
+        }
+
+        public String report() {
+            long count = acquisitions.sum();
+            double avgMicros = count == 0 ? 0 : waitNanos.sum() / 1000.0 / count;
+            return String.format("pool wait: %d acquisitions, avg %.1f us", count, avgMicros);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Графы сущностей в памяти для бенчмарков маппинга и сериализации
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Школа с relations учителями и relations студентами
+     */
+    static School school(int relations) {
+        School school = new School(1L, "Benchmark School", new ArrayList<>(), new ArrayList<>());
+        for (long i = 1; i <= relations; i++) {
+            school.getTeachers().add(new Teacher(i, "Teacher " + i, school, new ArrayList<>()));
+            school.getStudents().add(new Student(i, "Student " + i, school, new ArrayList<>()));
+        }
+        return school;
+    }
+
+    /**
+     * Курс с relations учителями и relations студентами
+     */
+    static Course course(int relations) {
+        School school = new School(1L, "Benchmark School");
+        List<Teacher> teachers = new ArrayList<>(relations);
+        List<Student> students = new ArrayList<>(relations);
+        for (long i = 1; i <= relations; i++) {
+            teachers.add(new Teacher(i, "Teacher " + i, school, new ArrayList<>()));
+            students.add(new Student(i, "Student " + i, school, new ArrayList<>()));
+        }
+        return new Course(1L, "Benchmark Course", teachers, students);
+    }
+
+    /**
+     * Учитель, ведущий relations курсов
+     */
+    static Teacher teacher(int relations) {
+        return new Teacher(1L, "Benchmark Teacher", new School(1L, "Benchmark School"), courses(relations));
+    }
+
+    /**
+     * Студент, записанный на relations курсов
+     */
+    static Student student(int relations) {
+        return new Student(1L, "Benchmark Student", new School(1L, "Benchmark School"), courses(relations));
+    }
+
+    private static List<Course> courses(int count) {
+        List<Course> courses = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            courses.add(new Course(i, "Course " + i, new ArrayList<>(), new ArrayList<>()));
+        }
+        return courses;
+    }
+}
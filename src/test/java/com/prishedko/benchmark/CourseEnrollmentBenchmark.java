@@ -0,0 +1,109 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.repository.CourseRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись 10 000 студентов на курс: пакет INSERT по строке (как раньше в CourseRepository.save)
+ * против одного INSERT ... SELECT unnest(?) в addStudents. После каждого вызова записи удаляются
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CourseEnrollmentBenchmark {
+    static final int STUDENTS = 10_000;
+
+    private HikariDataSource dataSource;
+    private CourseRepository repository;
+    private long schoolId;
+    private long courseId;
+    private long[] studentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(10, null);
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Enrollment Benchmark School", 0, STUDENTS);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO courses (name) VALUES ('Enrollment Benchmark Course') RETURNING id")) {
+                ResultSet rs = ps.executeQuery();
+                rs.next();
+                courseId = rs.getLong(1);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id FROM students WHERE school_id = ? ORDER BY id")) {
+                ps.setLong(1, schoolId);
+                ResultSet rs = ps.executeQuery();
+                studentIds = new long[STUDENTS];
+                for (int i = 0; rs.next(); i++) {
+                    studentIds[i] = rs.getLong(1);
+                }
+            }
+        }
+        repository = new CourseRepository();
+    }
+
+    @TearDown(Level.Invocation)
+    public void unenroll() throws SQLException {
+        try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement ps = connection.prepareStatement("DELETE FROM students_courses WHERE course_id = ?")
+        ) {
+            ps.setLong(1, courseId);
+            ps.executeUpdate();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteCourse(connection, courseId);
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int[] executeBatch() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO students_courses (student_id, course_id) VALUES (?, ?)")) {
+                for (long studentId : studentIds) {
+                    ps.setLong(1, studentId);
+                    ps.setLong(2, courseId);
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                connection.commit();
+                return counts;
+            }
+        }
+    }
+
+    @Benchmark
+    public int addStudents() throws SQLException {
+        return repository.addStudents(courseId, studentIds);
+    }
+}
@@ -0,0 +1,118 @@
+package com.prishedko.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.SchoolDTO;
+import com.prishedko.dto.StudentDTO;
+import com.prishedko.dto.TeacherDTO;
+import com.prishedko.mapper.CourseMapper;
+import com.prishedko.mapper.SchoolMapper;
+import com.prishedko.mapper.StudentMapper;
+import com.prishedko.mapper.TeacherMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация DTO в JSON тем же способом, что и в сервлетах (новый ObjectMapper на сервлет);
+ * списки - LIST_SIZE одинаковых DTO
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DtoSerializationBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    @Param({"10", "1000", "40000"})
+    private int relations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SchoolDTO school;
+    private CourseDTO course;
+    private TeacherDTO teacher;
+    private StudentDTO student;
+    private List<CourseDTO> courses;
+    private List<TeacherDTO> teachers;
+    private List<StudentDTO> students;
+    private byte[] schoolJson;
+    private byte[] courseJson;
+
+    @Setup
+    public void setUp() {
+        school = SchoolMapper.mapToDTO(BenchmarkFixtures.school(relations));
+        course = CourseMapper.mapToDTO(BenchmarkFixtures.course(relations));
+        teacher = TeacherMapper.mapToDTO(BenchmarkFixtures.teacher(relations));
+        student = StudentMapper.mapToDTO(BenchmarkFixtures.student(relations));
+        courses = Collections.nCopies(LIST_SIZE, course);
+        teachers = Collections.nCopies(LIST_SIZE, teacher);
+        students = Collections.nCopies(LIST_SIZE, student);
+        try {
+            schoolJson = objectMapper.writeValueAsBytes(school);
+            courseJson = objectMapper.writeValueAsBytes(course);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] school() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(school);
+    }
+
+    @Benchmark
+    public byte[] course() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(course);
+    }
+
+    @Benchmark
+    public byte[] teacher() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(teacher);
+    }
+
+    @Benchmark
+    public byte[] student() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(student);
+    }
+
+    @Benchmark
+    public byte[] courseList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(courses);
+    }
+
+    @Benchmark
+    public byte[] teacherList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(teachers);
+    }
+
+    @Benchmark
+    public byte[] studentList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public SchoolDTO schoolFromJson() throws IOException {
+        return objectMapper.readValue(schoolJson, SchoolDTO.class);
+    }
+
+    @Benchmark
+    public CourseDTO courseFromJson() throws IOException {
+        return objectMapper.readValue(courseJson, CourseDTO.class);
+    }
+}
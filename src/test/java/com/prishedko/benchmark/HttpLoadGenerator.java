@@ -0,0 +1,146 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.App;
+import com.prishedko.config.DatabaseConfig;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочное сравнение исполнителей Tomcat: для каждого режима поднимает сервер в этом же процессе
+ * и держит заданное число одновременных клиентов на GET /api/schools/{id}, печатая пропускную
+ * способность и перцентили задержки.
+ * <p>
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.prishedko.benchmark.HttpLoadGenerator
+ * -Dbenchmark=platform,virtual
+ * <p>
+ * Аргументы: режимы через запятую, число клиентов (400), длительность замера в секундах (20),
+ * прогрев в секундах (5). Кэш сущностей отключается, чтобы каждый запрос доходил до БД.
+ */
+public class HttpLoadGenerator {
+    private static final int PORT = 18080;
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = (args.length > 0 ? args[0] : "platform,virtual").split(",");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        for (String mode : modes) {
+            if (!mode.equals("platform") && !mode.equals("virtual")) {
+                throw new IllegalArgumentException("Unknown executor mode: " + mode);
+            }
+        }
+        System.setProperty("cache.enabled", "false");
+
+        long schoolId;
+        try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Load Test School", 20, 200);
+        }
+        try {
+            System.out.printf("%-9s %8s %10s %9s %9s %9s %9s %7s%n",
+                    "executor", "clients", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+            for (String mode : modes) {
+                Result result = run(mode.equals("virtual"), schoolId, concurrency, warmupSeconds, seconds);
+                System.out.printf("%-9s %8d %10.0f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                        mode, concurrency, result.throughput(),
+                        result.percentile(0.50), result.percentile(0.99), result.percentile(0.999),
+                        result.percentile(1.0), result.errors());
+            }
+        } finally {
+            try (Connection connection = DatabaseConfig.getDataSource().getConnection()) {
+                BenchmarkDatabase.deleteSchool(connection, schoolId);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(boolean virtualThreads, long schoolId, int concurrency, int warmupSeconds, int seconds)
+            throws LifecycleException, InterruptedException {
+        Tomcat tomcat = App.start(PORT, virtualThreads);
+        URI uri = URI.create("http://localhost:" + PORT + "/school-service/api/schools/" + schoolId);
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[concurrency][];
+        int[] counts = new int[concurrency];
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+            long measureFrom = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+            long deadline = measureFrom + seconds * 1_000_000_000L;
+            for (int i = 0; i < concurrency; i++) {
+                int worker = i;
+                clients.submit(() -> {
+                    long[] buffer = new long[1024];
+                    int n = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < deadline) {
+                        long start = now;
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (start >= measureFrom) {
+                            if (n == buffer.length) {
+                                buffer = Arrays.copyOf(buffer, n * 2);
+                            }
+                            buffer[n++] = System.nanoTime() - start;
+                        }
+                    }
+                    latencies[worker] = buffer;
+                    counts[worker] = n;
+                });
+            }
+            // close() у исполнителя дожидается завершения всех клиентов
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int i = 0; i < concurrency; i++) {
+            System.arraycopy(latencies[i], 0, all, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(all);
+        return new Result(all, seconds, errors.get());
+    }
+
+    private record Result(long[] sortedNanos, int seconds, long errors) {
+        double throughput() {
+            return (double) sortedNanos.length / seconds;
+        }
+
+        double percentile(double p) {
+            if (sortedNanos.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.SchoolDTO;
+import com.prishedko.dto.StudentDTO;
+import com.prishedko.dto.TeacherDTO;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.mapper.CourseMapper;
+import com.prishedko.mapper.SchoolMapper;
+import com.prishedko.mapper.StudentMapper;
+import com.prishedko.mapper.TeacherMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг сущностей в DTO; relations - число связанных сущностей (учителей, студентов, курсов)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapperBenchmark {
+
+    @Param({"10", "1000", "40000"})
+    private int relations;
+
+    private School school;
+    private Course course;
+    private Teacher teacher;
+    private Student student;
+
+    @Setup
+    public void setUp() {
+        school = BenchmarkFixtures.school(relations);
+        course = BenchmarkFixtures.course(relations);
+        teacher = BenchmarkFixtures.teacher(relations);
+        student = BenchmarkFixtures.student(relations);
+    }
+
+    @Benchmark
+    public SchoolDTO schoolMapper() {
+        return SchoolMapper.mapToDTO(school);
+    }
+
+    @Benchmark
+    public CourseDTO courseMapper() {
+        return CourseMapper.mapToDTO(course);
+    }
+
+    @Benchmark
+    public TeacherDTO teacherMapper() {
+        return TeacherMapper.mapToDTO(teacher);
+    }
+
+    @Benchmark
+    public StudentDTO studentMapper() {
+        return StudentMapper.mapToDTO(student);
+    }
+}
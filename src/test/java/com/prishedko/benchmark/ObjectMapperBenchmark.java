@@ -0,0 +1,101 @@
+package com.prishedko.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.SchoolDTO;
+import com.prishedko.mapper.CourseMapper;
+import com.prishedko.mapper.SchoolMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись списков CourseDTO и SchoolDTO в Writer, как в сервлетах: ObjectMapper.writeValue
+ * и ObjectWriter, закэшированный для List&lt;DTO&gt;, без Blackbird и с ним
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ObjectMapperBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    @Param({"reflection", "blackbird"})
+    private String accessors;
+
+    @Param({"10", "1000"})
+    private int relations;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter courseListWriter;
+    private ObjectWriter schoolListWriter;
+    private List<CourseDTO> courses;
+    private List<SchoolDTO> schools;
+
+    @Setup
+    public void setUp() {
+        JsonMapper.Builder builder = JsonMapper.builder();
+        if ("blackbird".equals(accessors)) {
+            builder.addModule(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+        courseListWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, CourseDTO.class));
+        schoolListWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, SchoolDTO.class));
+        // Разные экземпляры, как у списка из БД
+        courses = new ArrayList<>();
+        schools = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            courses.add(CourseMapper.mapToDTO(BenchmarkFixtures.course(relations)));
+            schools.add(SchoolMapper.mapToDTO(BenchmarkFixtures.school(relations)));
+        }
+    }
+
+    @Benchmark
+    public void courseListMapper() throws IOException {
+        objectMapper.writeValue(out(), courses);
+    }
+
+    @Benchmark
+    public void courseListWriter() throws IOException {
+        courseListWriter.writeValue(out(), courses);
+    }
+
+    @Benchmark
+    public void schoolListMapper() throws IOException {
+        objectMapper.writeValue(out(), schools);
+    }
+
+    @Benchmark
+    public void schoolListWriter() throws IOException {
+        schoolListWriter.writeValue(out(), schools);
+    }
+
+    /**
+     * Jackson закрывает Writer после записи, как и Writer ответа сервлета, поэтому на каждый вызов свой
+     */
+    private static Writer out() {
+        return new PrintWriter(Writer.nullWriter());
+    }
+}
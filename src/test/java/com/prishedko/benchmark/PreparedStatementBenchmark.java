@@ -0,0 +1,94 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.repository.FetchMode;
+import com.prishedko.repository.SchoolRepository;
+import com.prishedko.repository.StudentRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка горячих findById при разных настройках драйвера: prepareThreshold 0 - запрос каждый раз
+ * разбирается и планируется сервером, 1 и 5 - с первого или пятого выполнения используется
+ * подготовленный на сервере запрос; preparedStatementCacheQueries 0 - без кэша запросов на соединении,
+ * и счетчик выполнений для prepareThreshold начинается заново при каждом prepareStatement.
+ * Репозитории, как и в приложении, готовят запрос заново при каждом вызове
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class PreparedStatementBenchmark {
+
+    @Param({"0", "1", "5"})
+    private String prepareThreshold;
+
+    @Param({"0", "256"})
+    private String preparedStatementCacheQueries;
+
+    private HikariDataSource dataSource;
+    private SchoolRepository schoolRepository;
+    private StudentRepository studentRepository;
+    private long schoolId;
+    private long studentId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Properties driver = new Properties();
+        driver.setProperty("prepareThreshold", prepareThreshold);
+        driver.setProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+        dataSource = BenchmarkDatabase.install(1, null, driver);
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Prepared Statement School", 5, 20);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT min(id) FROM students WHERE school_id = ?")) {
+                ps.setLong(1, schoolId);
+                ResultSet rs = ps.executeQuery();
+                rs.next();
+                studentId = rs.getLong(1);
+            }
+        }
+        schoolRepository = new SchoolRepository();
+        studentRepository = new StudentRepository();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Student studentFindById() throws SQLException {
+        return studentRepository.findById(studentId);
+    }
+
+    @Benchmark
+    public School schoolFindById() throws SQLException {
+        return schoolRepository.findById(schoolId, FetchMode.SINGLE_QUERY);
+    }
+}
@@ -0,0 +1,119 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.repository.CourseRepository;
+import com.prishedko.repository.SchoolRepository;
+import com.prishedko.repository.StudentRepository;
+import com.prishedko.repository.TeacherRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение через репозитории из db.properties: findById каждой сущности и findBySchoolId.
+ * Все учителя и студенты школы записаны на один курс
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RepositoryBenchmark {
+
+    @Param({"20"})
+    private int teachers;
+
+    @Param({"400"})
+    private int students;
+
+    private HikariDataSource dataSource;
+    private final SchoolRepository schoolRepository = new SchoolRepository();
+    private final TeacherRepository teacherRepository = new TeacherRepository();
+    private final StudentRepository studentRepository = new StudentRepository();
+    private final CourseRepository courseRepository = new CourseRepository();
+    private long schoolId;
+    private long courseId;
+    private long teacherId;
+    private long studentId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(4, null);
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Repository Benchmark School", teachers, students);
+            courseId = BenchmarkDatabase.createCourse(connection, "Repository Benchmark Course", schoolId);
+            teacherId = firstId(connection, "SELECT min(id) FROM teachers WHERE school_id = ?");
+            studentId = firstId(connection, "SELECT min(id) FROM students WHERE school_id = ?");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteCourse(connection, courseId);
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+        }
+        dataSource.close();
+    }
+
+    private long firstId(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, schoolId);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Benchmark
+    public School schoolFindById() throws SQLException {
+        return schoolRepository.findById(schoolId);
+    }
+
+    @Benchmark
+    public Teacher teacherFindById() throws SQLException {
+        return teacherRepository.findById(teacherId);
+    }
+
+    @Benchmark
+    public Student studentFindById() throws SQLException {
+        return studentRepository.findById(studentId);
+    }
+
+    @Benchmark
+    public Course courseFindById() throws SQLException {
+        return courseRepository.findById(courseId);
+    }
+
+    @Benchmark
+    public List<Teacher> teacherFindBySchoolId() throws SQLException {
+        return teacherRepository.findBySchoolId(schoolId);
+    }
+
+    @Benchmark
+    public List<Student> studentFindBySchoolId() throws SQLException {
+        return studentRepository.findBySchoolId(schoolId);
+    }
+}
@@ -0,0 +1,87 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.School;
+import com.prishedko.repository.FetchMode;
+import com.prishedko.repository.SchoolRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение SchoolRepository.findById: три соединения и три запроса против одного запроса.
+ * Потоков больше, чем соединений в пуле, поэтому в задержку входит ожидание пула.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SchoolFindByIdBenchmark {
+
+    @Param({"SEPARATE_QUERIES", "SINGLE_QUERY"})
+    private FetchMode fetchMode;
+
+    @Param({"8"})
+    private int poolSize;
+
+    @Param({"20"})
+    private int teachers;
+
+    @Param({"400"})
+    private int students;
+
+    private final BenchmarkDatabase.PoolWaitTracker poolWait = new BenchmarkDatabase.PoolWaitTracker();
+    private HikariDataSource dataSource;
+    private SchoolRepository repository;
+    private long schoolId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(poolSize, poolWait);
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Benchmark School", teachers, students);
+        }
+        repository = new SchoolRepository();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPoolWait() {
+        poolWait.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPoolWait() {
+        System.out.println(fetchMode + " " + poolWait.report());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public School findById() throws SQLException {
+        return repository.findById(schoolId, fetchMode);
+    }
+}
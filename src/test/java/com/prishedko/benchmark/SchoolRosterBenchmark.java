@@ -0,0 +1,81 @@
+package com.prishedko.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.mapper.SchoolMapper;
+import com.prishedko.repository.SchoolRepository;
+import com.prishedko.servlet.SchoolRosterWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/schools/{id}: сущности + SchoolDTO + ObjectMapper против потоковой записи id из ResultSet.
+ * Выделение памяти на запрос смотреть профайлером: -prof gc (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SchoolRosterBenchmark {
+
+    @Param({"100"})
+    private int teachers;
+
+    @Param({"400", "40000"})
+    private int students;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HikariDataSource dataSource;
+    private SchoolRepository repository;
+    private long schoolId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(4, null);
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Roster School", teachers, students);
+        }
+        repository = new SchoolRepository();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void entities() throws SQLException, IOException {
+        objectMapper.writeValue(Writer.nullWriter(), SchoolMapper.mapToDTO(repository.findById(schoolId)));
+    }
+
+    @Benchmark
+    public void streaming() throws SQLException, IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(Writer.nullWriter())) {
+            SchoolRosterWriter writer = new SchoolRosterWriter(generator);
+            repository.streamRoster(schoolId, writer);
+            writer.finish();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.prishedko.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время до первого ответа: запускает приложение отдельным процессом и замеряет время от старта JVM
+ * до первого успешного GET /api/courses?limit=1. Режимы:
+ * webapp - addWebapp (server.lean=false), lean - программный контекст, lean-cds - lean
+ * с архивом AppCDS из профиля appcds (сначала mvn -Pappcds package). Прогрев отключается:
+ * он намеренно откладывает открытие порта.
+ * <p>
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.prishedko.benchmark.StartupTimer
+ * -Dbenchmark=webapp,lean,lean-cds -Dbenchmark.args=5
+ * <p>
+ * Аргументы: режимы через запятую, число запусков каждого режима (5).
+ */
+public class StartupTimer {
+    private static final int PORT = 18082;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = (args.length > 0 ? args[0] : "webapp,lean,lean-cds").split(",");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (String mode : modes) {
+            command(mode);
+        }
+
+        System.out.printf("%-9s %8s %9s %9s %9s%n", "mode", "runs", "min ms", "median ms", "max ms");
+        for (String mode : modes) {
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = timeToFirstResponse(command(mode));
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-9s %8d %9d %9d %9d%n", mode, runs, millis[0], millis[runs / 2], millis[runs - 1]);
+        }
+    }
+
+    private static List<String> command(String mode) {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>(List.of(java, "-Dserver.port=" + PORT, "-Dwarmup.enabled=false"));
+        switch (mode) {
+            case "webapp" -> command.addAll(List.of("-Dserver.lean=false",
+                    "-cp", System.getProperty("java.class.path"), "com.prishedko.App"));
+            case "lean" -> command.addAll(List.of("-Dserver.lean=true",
+                    "-cp", System.getProperty("java.class.path"), "com.prishedko.App"));
+            case "lean-cds" -> {
+                if (!new File("target/app.jsa").isFile()) {
+                    throw new IllegalStateException("target/app.jsa not found: run mvn -Pappcds package first");
+                }
+                command.addAll(List.of("-Dserver.lean=true", "-XX:SharedArchiveFile=target/app.jsa",
+                        "-jar", "target/school-service-app.jar"));
+            }
+            default -> throw new IllegalArgumentException("Unknown startup mode: " + mode);
+        }
+        return command;
+    }
+
+    private static long timeToFirstResponse(List<String> command) throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + PORT + "/school-service/api/courses?limit=1");
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            while (System.nanoTime() - start < TIMEOUT_NANOS) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue());
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException e) {
+                    // Порт еще не открыт
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No response within " + TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS) + " s");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.repository.StudentRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность импорта студентов: COPY против INSERT ... RETURNING на каждую строку.
+ * Одна операция - одна строка, поэтому результат в ops/s равен числу строк в секунду.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(StudentImportBenchmark.ROWS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class StudentImportBenchmark {
+    static final int ROWS = 10_000;
+
+    private HikariDataSource dataSource;
+    private StudentRepository repository;
+    private School school;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(10, null);
+        try (Connection connection = dataSource.getConnection()) {
+            long schoolId = BenchmarkDatabase.createSchool(connection, "Import Benchmark School", 0, 0);
+            school = new School(schoolId, "Import Benchmark School");
+        }
+        repository = new StudentRepository();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteImportedStudents() throws SQLException {
+        try (
+                Connection connection = dataSource.getConnection();
+                PreparedStatement ps = connection.prepareStatement("DELETE FROM students WHERE school_id = ?")
+        ) {
+            ps.setLong(1, school.getId());
+            ps.executeUpdate();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteSchool(connection, school.getId());
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Long> copyIn() throws SQLException, IOException {
+        int[] next = {0};
+        return repository.copyIn(() -> next[0] < ROWS ? new Student(null, "Student " + next[0]++, school, null) : null);
+    }
+
+    @Benchmark
+    public long singleInserts() throws SQLException {
+        long lastId = 0;
+        for (int i = 0; i < ROWS; i++) {
+            lastId = repository.save(new Student(null, "Student " + i, school, null)).getId();
+        }
+        return lastId;
+    }
+}
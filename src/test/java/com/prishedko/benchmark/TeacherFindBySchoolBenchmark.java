@@ -0,0 +1,135 @@
+package com.prishedko.benchmark;
+
+import com.prishedko.entity.Course;
+import com.prishedko.entity.Teacher;
+import com.prishedko.repository.TeacherRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TeacherRepository.findBySchoolId на школах разного размера, у каждого учителя по два курса.
+ * Отдельно сравнивается прикрепление курсов к учителям в памяти: прежний линейный поиск
+ * по списку на каждую строку против индекса по id
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TeacherFindBySchoolBenchmark {
+    private static final int COURSES_PER_TEACHER = 2;
+
+    @Param({"10", "1000", "50000"})
+    private int teachers;
+
+    private HikariDataSource dataSource;
+    private TeacherRepository repository;
+    private long schoolId;
+    private long[] courseIds;
+
+    // Строки результата запроса курсов: пары (teacher_id, course_id)
+    private long[] rowTeacherIds;
+    private long[] rowCourseIds;
+    private List<Long> teacherIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.install(4, null);
+        repository = new TeacherRepository();
+        courseIds = new long[COURSES_PER_TEACHER];
+        try (Connection connection = dataSource.getConnection()) {
+            schoolId = BenchmarkDatabase.createSchool(connection, "Teacher Benchmark School", teachers, 0);
+            for (int i = 0; i < COURSES_PER_TEACHER; i++) {
+                courseIds[i] = BenchmarkDatabase.createCourse(connection, "Benchmark Course " + i, schoolId);
+            }
+        }
+
+        teacherIds = new ArrayList<>(teachers);
+        rowTeacherIds = new long[teachers * COURSES_PER_TEACHER];
+        rowCourseIds = new long[rowTeacherIds.length];
+        for (int t = 0; t < teachers; t++) {
+            teacherIds.add((long) t);
+            for (int c = 0; c < COURSES_PER_TEACHER; c++) {
+                rowTeacherIds[t * COURSES_PER_TEACHER + c] = t;
+                rowCourseIds[t * COURSES_PER_TEACHER + c] = c;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkDatabase.deleteSchool(connection, schoolId);
+            for (long courseId : courseIds) {
+                BenchmarkDatabase.deleteCourse(connection, courseId);
+            }
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Teacher> findBySchoolId() throws SQLException {
+        return repository.findBySchoolId(schoolId);
+    }
+
+    @Benchmark
+    public List<Teacher> attachCoursesLinearScan() {
+        List<Teacher> result = newTeachers();
+        for (int i = 0; i < rowTeacherIds.length; i++) {
+            Long teacherId = rowTeacherIds[i];
+            Course course = new Course(rowCourseIds[i]);
+            result.stream()
+                    .filter(t -> t.getId().equals(teacherId))
+                    .findFirst()
+                    .ifPresent(t -> t.getCourses().add(course));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Teacher> attachCoursesHashIndex() {
+        List<Teacher> result = newTeachers();
+        Map<Long, Teacher> byId = new HashMap<>();
+        for (Teacher teacher : result) {
+            byId.put(teacher.getId(), teacher);
+        }
+        for (int i = 0; i < rowTeacherIds.length; i++) {
+            Teacher teacher = byId.get(rowTeacherIds[i]);
+            if (teacher != null) {
+                teacher.getCourses().add(new Course(rowCourseIds[i]));
+            }
+        }
+        return result;
+    }
+
+    private List<Teacher> newTeachers() {
+        List<Teacher> result = new ArrayList<>(teacherIds.size());
+        for (Long id : teacherIds) {
+            Teacher teacher = new Teacher(id);
+            teacher.setCourses(new ArrayList<>());
+            result.add(teacher);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package com.prishedko.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.SchoolDTO;
+import com.prishedko.mapper.CourseMapper;
+import com.prishedko.mapper.SchoolMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON против CBOR и Smile на тех же DTO. JSON пишется и читается через Writer/Reader, как в сервлетах,
+ * бинарные форматы - через поток байт. Размер тела каждого формата печатается в setUp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WireFormatBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000", "40000"})
+    private int relations;
+
+    private ObjectMapper mapper;
+    private boolean text;
+    private JavaType courseListType;
+    private SchoolDTO school;
+    private List<CourseDTO> courses;
+    private byte[] schoolBody;
+    private byte[] coursesBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        text = "json".equals(format);
+        courseListType = mapper.getTypeFactory().constructCollectionType(List.class, CourseDTO.class);
+        school = SchoolMapper.mapToDTO(BenchmarkFixtures.school(relations));
+        courses = Collections.nCopies(LIST_SIZE, CourseMapper.mapToDTO(BenchmarkFixtures.course(relations / LIST_SIZE)));
+        schoolBody = encodeSchool();
+        coursesBody = encodeCourses();
+        System.out.printf("%n%s, relations=%d: school %d bytes, %d courses %d bytes%n",
+                format, relations, schoolBody.length, LIST_SIZE, coursesBody.length);
+    }
+
+    @Benchmark
+    public byte[] encodeSchool() throws IOException {
+        return encode(school);
+    }
+
+    @Benchmark
+    public byte[] encodeCourses() throws IOException {
+        return encode(courses);
+    }
+
+    @Benchmark
+    public SchoolDTO decodeSchool() throws IOException {
+        if (text) {
+            return mapper.readValue(new InputStreamReader(new ByteArrayInputStream(schoolBody), StandardCharsets.UTF_8),
+                    SchoolDTO.class);
+        }
+        return mapper.readValue(new ByteArrayInputStream(schoolBody), SchoolDTO.class);
+    }
+
+    @Benchmark
+    public List<CourseDTO> decodeCourses() throws IOException {
+        if (text) {
+            return mapper.readValue(new InputStreamReader(new ByteArrayInputStream(coursesBody), StandardCharsets.UTF_8),
+                    courseListType);
+        }
+        return mapper.readValue(new ByteArrayInputStream(coursesBody), courseListType);
+    }
+
+    private byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (text) {
+            mapper.writeValue(new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), value);
+        } else {
+            mapper.writeValue(out, value);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,138 @@
+package com.prishedko.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    private long now;
+    private LruCache<Long, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        cache = new LruCache<>(2, 10, TimeUnit.SECONDS, () -> now);
+    }
+
+    @Test
+    void get_AfterPut_ReturnsValueAndCountsHit() {
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void resetStats_ClearsCountersButKeepsEntries() {
+        cache.put(1L, "one");
+        cache.get(1L);
+        cache.get(2L);
+
+        cache.resetStats();
+
+        assertEquals(0, cache.stats().getHits());
+        assertEquals(0, cache.stats().getMisses());
+        assertEquals("one", cache.peek(1L));
+    }
+
+    @Test
+    void put_OverCapacity_EvictsLeastRecentlyUsed() {
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+
+        assertEquals("one", cache.peek(1L));
+        assertNull(cache.peek(2L));
+        assertEquals("three", cache.peek(3L));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    void get_AfterTtl_ReturnsNullAndCountsExpiration() {
+        cache.put(1L, "one");
+        now += TimeUnit.SECONDS.toNanos(11);
+
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.stats().getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void putIfGeneration_AfterInvalidation_IsRejected() {
+        long generation = cache.generation();
+        cache.invalidate(1L);
+
+        assertFalse(cache.putIfGeneration(1L, "stale", generation));
+        assertNull(cache.peek(1L));
+        assertTrue(cache.putIfGeneration(1L, "fresh", cache.generation()));
+        assertEquals("fresh", cache.peek(1L));
+    }
+
+    @Test
+    void putIfGeneration_AfterInvalidationOfOtherKey_IsAccepted() {
+        long generation = cache.generation();
+        cache.invalidate(2L);
+
+        assertTrue(cache.putIfGeneration(1L, "one", generation));
+        assertEquals("one", cache.peek(1L));
+    }
+
+    @Test
+    void putIfGeneration_AfterInvalidateAll_IsRejected() {
+        long generation = cache.generation();
+        cache.invalidateAll();
+
+        assertFalse(cache.putIfGeneration(1L, "stale", generation));
+    }
+
+    @Test
+    void putIfGeneration_ForgottenInvalidation_IsRejected() {
+        long generation = cache.generation();
+        // Отметок больше, чем размер кэша: самая давняя вытесняется, но ее ключ не принимает старую загрузку
+        cache.invalidate(1L);
+        cache.invalidate(2L);
+        cache.invalidate(3L);
+
+        assertFalse(cache.putIfGeneration(1L, "stale", generation));
+    }
+
+    @Test
+    void peek_DoesNotAffectEvictionOrder() {
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        cache.peek(1L);
+        cache.put(3L, "three");
+
+        assertNull(cache.peek(1L));
+        assertEquals("two", cache.peek(2L));
+    }
+
+    @Test
+    void invalidateAll_RemovesEverything() {
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void peek_DoesNotAffectStats() {
+        cache.put(1L, "one");
+
+        cache.peek(1L);
+        cache.peek(2L);
+
+        assertEquals(0, cache.stats().getHits());
+        assertEquals(0, cache.stats().getMisses());
+    }
+}
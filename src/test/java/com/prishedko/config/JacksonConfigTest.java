@@ -0,0 +1,42 @@
+package com.prishedko.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.IdList;
+import com.prishedko.dto.SchoolDTO;
+import com.prishedko.dto.StudentDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JacksonConfigTest {
+
+    @Test
+    void objectMapper_WritesSameJsonAsPlainMapper() throws Exception {
+        SchoolDTO school = new SchoolDTO(7L, "School", IdList.of(1L, 2L), IdList.of(3L));
+        StudentDTO student = new StudentDTO(3L, "Alice", 7L, List.of(10L));
+        ObjectMapper plain = new ObjectMapper();
+
+        assertEquals(plain.writeValueAsString(school), JacksonConfig.objectMapper().writeValueAsString(school));
+        assertEquals(plain.writeValueAsString(student), JacksonConfig.objectMapper().writeValueAsString(student));
+    }
+
+    @Test
+    void readerFor_ParsesDtoAndIsCachedPerType() throws Exception {
+        CourseDTO course = JacksonConfig.readerFor(CourseDTO.class)
+                .readValue("{\"id\":5,\"name\":\"Math\",\"teacherIds\":[1],\"studentIds\":[2,3]}");
+
+        assertEquals(5L, course.getId());
+        assertEquals("Math", course.getName());
+        assertEquals(List.of(2L, 3L), course.getStudentIds());
+        assertSame(JacksonConfig.readerFor(CourseDTO.class), JacksonConfig.readerFor(CourseDTO.class));
+    }
+
+    @Test
+    void writerFor_IsCachedPerType() {
+        assertSame(JacksonConfig.writerFor(CourseDTO.class), JacksonConfig.writerFor(CourseDTO.class));
+        assertNotSame(JacksonConfig.writerFor(CourseDTO.class), JacksonConfig.writerFor(SchoolDTO.class));
+    }
+}
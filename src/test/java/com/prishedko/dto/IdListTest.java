@@ -0,0 +1,77 @@
+package com.prishedko.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdListTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void addLong_BeyondCapacity_GrowsAndKeepsOrder() {
+        IdList ids = new IdList();
+        for (long id = 1; id <= 100; id++) {
+            ids.addLong(id);
+        }
+
+        assertEquals(100, ids.size());
+        assertEquals(1L, ids.getLong(0));
+        assertEquals(100L, ids.getLong(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> ids.getLong(100));
+    }
+
+    @Test
+    void equalsAndHashCode_SameElements_MatchRegularList() {
+        IdList ids = IdList.of(1L, 2L, 3L);
+
+        assertEquals(List.of(1L, 2L, 3L), ids);
+        assertEquals(ids, List.of(1L, 2L, 3L));
+        assertEquals(ids, IdList.copyOf(new ArrayList<>(List.of(1L, 2L, 3L))));
+        assertEquals(List.of(1L, 2L, 3L).hashCode(), ids.hashCode());
+        assertNotEquals(IdList.of(1L, 2L), ids);
+    }
+
+    @Test
+    void setAndRemove_ShiftElements() {
+        IdList ids = IdList.of(1L, 2L, 3L);
+
+        assertEquals(2L, ids.set(1, 5L));
+        assertEquals(1L, ids.remove(0));
+
+        assertEquals(List.of(5L, 3L), ids);
+        assertTrue(ids.contains(3L));
+        assertFalse(ids.contains(1L));
+        assertEquals(-1, ids.indexOf("3"));
+    }
+
+    @Test
+    void json_RoundTripThroughDto_KeepsIds() throws Exception {
+        SchoolDTO dto = new SchoolDTO();
+        dto.setId(7L);
+        dto.setName("School");
+        dto.setTeacherIds(IdList.of(1L, 2L));
+        dto.setStudentIds(IdList.of(3L, 4L, 5L));
+
+        String json = objectMapper.writeValueAsString(dto);
+        SchoolDTO read = objectMapper.readValue(json, SchoolDTO.class);
+
+        assertTrue(json.contains("\"teacherIds\":[1,2]"));
+        assertTrue(json.contains("\"studentIds\":[3,4,5]"));
+        assertInstanceOf(IdList.class, read.getStudentIds());
+        assertEquals(List.of(3L, 4L, 5L), read.getStudentIds());
+        assertEquals(List.of(1L, 2L), read.getTeacherIds());
+    }
+
+    @Test
+    void json_NonIntegerElement_IsRejected() {
+        String json = "{\"id\":1,\"name\":\"Course\",\"studentIds\":[1,\"x\"]}";
+
+        assertThrows(MismatchedInputException.class, () -> objectMapper.readValue(json, CourseDTO.class));
+    }
+}
@@ -0,0 +1,248 @@
+package com.prishedko.filter;
+
+import com.prishedko.metrics.CompressionMetrics;
+import com.prishedko.metrics.PrometheusWriter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CompressionFilterTest {
+    private static final List<String> ENCODINGS = List.of("gzip", "deflate");
+    private static final int GZIP = CompressionMetrics.encoding("gzip");
+    private static final int IDENTITY = CompressionMetrics.encoding("identity");
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    private CompressionMetrics metrics;
+    private CompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new CompressionMetrics();
+        filter = new CompressionFilter(ENCODINGS, 64, 6, Set.of("application/json"), metrics);
+    }
+
+    @Test
+    void negotiate_PicksHighestQualityThenServerPreference() {
+        assertEquals("gzip", CompressionFilter.negotiate("gzip, deflate, br", ENCODINGS));
+        assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip", ENCODINGS));
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate", ENCODINGS));
+        assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, *", ENCODINGS));
+        assertEquals("gzip", CompressionFilter.negotiate("*", ENCODINGS));
+        assertNull(CompressionFilter.negotiate("identity", ENCODINGS));
+        assertNull(CompressionFilter.negotiate("br, *;q=0", ENCODINGS));
+        assertNull(CompressionFilter.negotiate(null, ENCODINGS));
+    }
+
+    @Test
+    void doFilter_LargeJson_StreamsGzipAndDropsContentLength() throws Exception {
+        String body = json(2000);
+        stubResponse("gzip");
+        when(response.getHeader("ETag")).thenReturn("\"7\"");
+
+        filter.doFilter(request, response, writing(body));
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).setHeader("ETag", "\"7-gzip\"");
+        verify(response).addHeader("Vary", "Accept-Encoding");
+        verify(response, never()).setContentLengthLong(anyLong());
+        assertEquals(body, new String(new GZIPInputStream(new ByteArrayInputStream(wire.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8));
+        assertEquals(1, metrics.getResponses(GZIP));
+        assertEquals(wire.size(), metrics.getWireBytes(GZIP));
+        assertTrue(wire.size() < body.length() / 2);
+    }
+
+    @Test
+    void doFilter_Deflate_WritesZlibStream() throws Exception {
+        String body = json(500);
+        stubResponse("deflate");
+
+        filter.doFilter(request, response, writing(body));
+
+        verify(response).setHeader("Content-Encoding", "deflate");
+        assertEquals(body, inflate(new InflaterInputStream(new ByteArrayInputStream(wire.toByteArray()))));
+    }
+
+    @Test
+    void doFilter_SmallBody_SentAsIsWithContentLength() throws Exception {
+        stubResponse("gzip");
+
+        filter.doFilter(request, response, writing("{\"id\":1}"));
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), any());
+        verify(response).setContentLengthLong(8);
+        assertEquals("{\"id\":1}", wire.toString(StandardCharsets.UTF_8));
+        assertEquals(1, metrics.getResponses(IDENTITY));
+    }
+
+    @Test
+    void doFilter_FlushMidStream_ClientCanDecodeSentPart() throws Exception {
+        stubResponse("gzip");
+        String first = json(200);
+        ByteArrayOutputStream[] snapshot = new ByteArrayOutputStream[1];
+
+        filter.doFilter(request, response, (req, resp) -> {
+            PrintWriter writer = resp.getWriter();
+            writer.write(first);
+            writer.flush();
+            snapshot[0] = new ByteArrayOutputStream();
+            snapshot[0].write(wire.toByteArray());
+            writer.write(json(200));
+            writer.close();
+        });
+
+        // Отправленная до flush часть разбирается без окончания потока
+        GZIPInputStream partial = new GZIPInputStream(new ByteArrayInputStream(snapshot[0].toByteArray()));
+        byte[] decoded = partial.readNBytes(first.length());
+        assertEquals(first, new String(decoded, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doFilter_SendErrorAfterSmallWrite_DiscardsBufferedBody() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(request.isAsyncStarted()).thenReturn(false);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(capturing());
+
+        filter.doFilter(request, response, (req, resp) -> {
+            resp.getWriter().write("[");
+            ((HttpServletResponse) resp).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
+        });
+
+        verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
+        verify(response, never()).setContentLengthLong(anyLong());
+        assertEquals(0, wire.size());
+    }
+
+    @Test
+    void doFilter_Async_BodyFinishedByOwnerThroughWrappers() throws Exception {
+        String body = json(500);
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(request.isAsyncStarted()).thenReturn(true);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        lenient().when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        when(response.getOutputStream()).thenReturn(capturing());
+        ServletResponse[] async = new ServletResponse[1];
+
+        filter.doFilter(request, response, (req, resp) -> {
+            resp.getWriter().write(body);
+            async[0] = resp;
+        });
+        // Фильтр не дописывает асинхронный ответ: его завершает владелец AsyncContext
+        int beforeFinish = wire.size();
+        CompressionFilter.finish(new HttpServletResponseWrapper((HttpServletResponse) async[0]));
+
+        assertTrue(wire.size() > beforeFinish);
+        assertEquals(body, new String(new GZIPInputStream(new ByteArrayInputStream(wire.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doFilter_NoAcceptEncoding_PassesResponseThrough() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verify(response).addHeader("Vary", "Accept-Encoding");
+    }
+
+    @Test
+    void writeTo_ExportsBytesAndTimeByEncoding() throws Exception {
+        stubResponse("gzip");
+        filter.doFilter(request, response, writing(json(2000)));
+
+        StringWriter out = new StringWriter();
+        metrics.writeTo(new PrometheusWriter(out));
+
+        String text = out.toString();
+        assertTrue(text.contains("http_compression_responses_total{encoding=\"gzip\"} 1"));
+        assertTrue(text.contains("http_compression_wire_bytes_total{encoding=\"gzip\"} " + wire.size()));
+        assertTrue(text.contains("http_compression_seconds_total{encoding=\"gzip\"}"));
+    }
+
+    private void stubResponse(String acceptEncoding) throws IOException {
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        when(request.isAsyncStarted()).thenReturn(false);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        lenient().when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        when(response.getOutputStream()).thenReturn(capturing());
+    }
+
+    private static FilterChain writing(String body) {
+        return (req, resp) -> write(resp, body);
+    }
+
+    private static void write(ServletResponse resp, String body) throws IOException {
+        PrintWriter writer = resp.getWriter();
+        writer.write(body);
+        writer.close();
+    }
+
+    private ServletOutputStream capturing() {
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                wire.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                wire.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+    }
+
+    private static String json(int ids) {
+        StringBuilder sb = new StringBuilder("{\"id\":1,\"name\":\"Course\",\"studentIds\":[");
+        for (int i = 0; i < ids; i++) {
+            sb.append(i > 0 ? "," : "").append(100000 + i);
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package com.prishedko.filter;
+
+import com.prishedko.metrics.DbTrace;
+import com.prishedko.metrics.PrometheusWriter;
+import com.prishedko.metrics.RequestMetrics;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsFilterTest {
+    private static final int SCHOOLS = RequestMetrics.route("/api/schools");
+    private static final int GET = RequestMetrics.method("GET");
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private FilterChain chain;
+
+    private RequestMetrics metrics;
+    private MetricsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new RequestMetrics();
+        filter = new MetricsFilter(metrics, 1000);
+        when(request.getServletPath()).thenReturn("/api/schools");
+        when(request.getMethod()).thenReturn("GET");
+    }
+
+    @Test
+    void doFilter_RecordsLatencyAndStatus() throws Exception {
+        when(request.isAsyncStarted()).thenReturn(false);
+        when(response.getStatus()).thenReturn(404);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertEquals(1, metrics.latency(SCHOOLS, GET).getCount());
+        assertEquals(0, metrics.getInFlight(SCHOOLS));
+        String text = scrape();
+        assertTrue(text.contains("http_server_responses_total{route=\"/api/schools\",method=\"GET\",code=\"404\"} 1"));
+        assertTrue(text.contains("http_server_requests_seconds_count{route=\"/api/schools\",method=\"GET\"} 1"));
+        assertTrue(text.contains("quantile=\"0.99\""));
+        assertTrue(text.contains("http_server_requests_in_flight{route=\"other\"} 0"));
+    }
+
+    @Test
+    void doFilter_ChainThrows_RecordsServerError() throws Exception {
+        doThrow(new ServletException("boom")).when(chain).doFilter(request, response);
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request, response, chain));
+
+        assertEquals(0, metrics.getInFlight(SCHOOLS));
+        assertTrue(scrape().contains("code=\"500\"} 1"));
+    }
+
+    @Test
+    void doFilter_AsyncRequest_RecordsOnComplete() throws Exception {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(request.isAsyncStarted()).thenReturn(true);
+        when(request.getAsyncContext()).thenReturn(asyncContext);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(0, metrics.latency(SCHOOLS, GET).getCount());
+        assertEquals(1, metrics.getInFlight(SCHOOLS));
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        when(response.getStatus()).thenReturn(200);
+        listener.getValue().onComplete(new AsyncEvent(asyncContext, request, response));
+
+        assertEquals(1, metrics.latency(SCHOOLS, GET).getCount());
+        assertEquals(0, metrics.getInFlight(SCHOOLS));
+    }
+
+    @Test
+    void doFilter_BindsDbTraceForChain() throws Exception {
+        when(request.isAsyncStarted()).thenReturn(false);
+        when(response.getStatus()).thenReturn(200);
+        DbTrace[] seen = new DbTrace[1];
+        doAnswer(invocation -> {
+            seen[0] = DbTrace.current();
+            seen[0].record("SchoolRepository.findById", 1_000_000, 2_000_000);
+            return null;
+        }).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        assertNotNull(seen[0]);
+        verify(request).setAttribute(DbTrace.ATTRIBUTE, seen[0]);
+        assertNull(DbTrace.current());
+        assertEquals("SchoolRepository.findById x1 wait=1.00ms sql=2.00ms", seen[0].toString());
+    }
+
+    private String scrape() throws IOException {
+        StringWriter out = new StringWriter();
+        metrics.writeTo(new PrometheusWriter(out));
+        return out.toString();
+    }
+}
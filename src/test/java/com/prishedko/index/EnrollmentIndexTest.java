@@ -0,0 +1,116 @@
+package com.prishedko.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.prishedko.index.EnrollmentIndex.Member.STUDENTS;
+import static com.prishedko.index.EnrollmentIndex.Member.TEACHERS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentIndexTest {
+
+    private EnrollmentIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EnrollmentIndex();
+        // Школа 1: студенты 1-3, учитель 10; школа 2: студент 4
+        index.addStudent(1L, 1L);
+        index.addStudent(1L, 2L);
+        index.addStudent(1L, 3L);
+        index.addStudent(2L, 4L);
+        index.addTeacher(1L, 10L);
+        index.addCourse(100L, List.of(10L), List.of(1L, 2L, 4L));
+        index.addCourse(200L, List.of(), List.of(2L, 3L, 4L));
+    }
+
+    @Test
+    void query_All_ReturnsIntersection() {
+        assertArrayEquals(new long[]{2L, 4L}, index.query(STUDENTS, List.of(100L, 200L), null, null, null).toArray());
+    }
+
+    @Test
+    void query_Any_ReturnsUnion() {
+        assertArrayEquals(new long[]{1L, 2L, 3L, 4L}, index.query(STUDENTS, null, List.of(100L, 200L), null, null).toArray());
+    }
+
+    @Test
+    void query_None_SubtractsMembers() {
+        assertArrayEquals(new long[]{1L}, index.query(STUDENTS, List.of(100L), null, List.of(200L), null).toArray());
+    }
+
+    @Test
+    void query_SchoolId_RestrictsToSchool() {
+        assertEquals(2, index.query(STUDENTS, List.of(100L), null, null, 1L).getLongCardinality());
+        assertArrayEquals(new long[]{10L}, index.query(TEACHERS, null, null, null, 1L).toArray());
+    }
+
+    @Test
+    void query_UnknownCourse_ReturnsEmpty() {
+        assertTrue(index.query(STUDENTS, List.of(100L, 999L), null, null, null).isEmpty());
+    }
+
+    @Test
+    void query_WithoutConditions_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> index.query(STUDENTS, List.of(), List.of(), List.of(1L), null));
+    }
+
+    @Test
+    void query_DoesNotModifyIndex() {
+        index.query(STUDENTS, List.of(100L, 200L), null, List.of(100L), null);
+
+        assertEquals(3, index.query(STUDENTS, List.of(100L), null, null, null).getLongCardinality());
+    }
+
+    @Test
+    void addStudent_ToOtherSchool_MovesStudent() {
+        index.addStudent(2L, 1L);
+
+        assertArrayEquals(new long[]{2L, 3L}, index.query(STUDENTS, null, null, null, 1L).toArray());
+        assertArrayEquals(new long[]{1L, 4L}, index.query(STUDENTS, null, null, null, 2L).toArray());
+    }
+
+    @Test
+    void addStudents_AddsNewStudentsToSchool() {
+        index.addStudents(2L, new long[]{5L, 6L});
+
+        assertArrayEquals(new long[]{4L, 5L, 6L}, index.query(STUDENTS, null, null, null, 2L).toArray());
+        assertArrayEquals(new long[]{1L, 2L, 3L}, index.query(STUDENTS, null, null, null, 1L).toArray());
+    }
+
+    @Test
+    void removeStudent_RemovesFromSchoolAndCourses() {
+        index.removeStudent(2L);
+
+        assertArrayEquals(new long[]{1L, 4L}, index.query(STUDENTS, List.of(100L), null, null, null).toArray());
+        assertArrayEquals(new long[]{1L, 3L}, index.query(STUDENTS, null, null, null, 1L).toArray());
+    }
+
+    @Test
+    void removeSchool_RemovesItsMembersFromCourses() {
+        index.removeSchool(1L);
+
+        assertArrayEquals(new long[]{4L}, index.query(STUDENTS, null, List.of(100L, 200L), null, null).toArray());
+        assertTrue(index.query(TEACHERS, List.of(100L), null, null, null).isEmpty());
+    }
+
+    @Test
+    void removeCourse_ForgetsMembers() {
+        index.removeCourse(100L);
+
+        assertTrue(index.query(STUDENTS, List.of(100L), null, null, null).isEmpty());
+    }
+
+    @Test
+    void addAndRemoveMembers_ChangeOnlyThatCourse() {
+        index.addMembers(STUDENTS, 100L, new long[]{3L});
+        index.removeMembers(STUDENTS, 100L, new long[]{1L, 2L});
+        index.removeMembers(TEACHERS, 100L, new long[]{10L});
+
+        assertArrayEquals(new long[]{3L, 4L}, index.query(STUDENTS, List.of(100L), null, null, null).toArray());
+        assertArrayEquals(new long[]{2L, 3L, 4L}, index.query(STUDENTS, List.of(200L), null, null, null).toArray());
+        assertTrue(index.query(TEACHERS, null, List.of(100L), null, null).isEmpty());
+    }
+}
@@ -0,0 +1,55 @@
+package com.prishedko.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverSettingsMetricsTest {
+
+    @Test
+    void get_UnsetSetting_ReturnsDriverDefault() {
+        Properties properties = new Properties();
+        properties.setProperty("prepareThreshold", "0");
+
+        DriverSettingsMetrics metrics = new DriverSettingsMetrics(properties);
+
+        assertEquals(0, metrics.get("prepareThreshold"));
+        assertEquals(256, metrics.get("preparedStatementCacheQueries"));
+        assertEquals(5, metrics.get("preparedStatementCacheSizeMiB"));
+    }
+
+    @Test
+    void writeTo_ExportsEverySettingAsGauge() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("preparedStatementCacheQueries", " 64 ");
+        DriverSettingsMetrics metrics = new DriverSettingsMetrics(properties);
+
+        StringWriter out = new StringWriter();
+        metrics.writeTo(new PrometheusWriter(out));
+
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE db_driver_setting gauge"));
+        assertTrue(text.contains("db_driver_setting{name=\"preparedStatementCacheQueries\"} 64"));
+        assertTrue(text.contains("db_driver_setting{name=\"prepareThreshold\"} 5"));
+    }
+
+    @Test
+    void writeTo_ExportsExecutionsByServerPrepare() throws IOException {
+        DriverSettingsMetrics metrics = new DriverSettingsMetrics(new Properties());
+        metrics.recordExecution(false);
+        metrics.recordExecution(true);
+        metrics.recordExecution(true);
+
+        StringWriter out = new StringWriter();
+        metrics.writeTo(new PrometheusWriter(out));
+
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE db_statement_server_prepared_total counter"));
+        assertTrue(text.contains("db_statement_server_prepared_total{result=\"true\"} 2"));
+        assertTrue(text.contains("db_statement_server_prepared_total{result=\"false\"} 1"));
+    }
+}
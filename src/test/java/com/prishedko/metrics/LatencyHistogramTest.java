@@ -0,0 +1,79 @@
+package com.prishedko.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogram_ReturnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.quantile(0.99));
+    }
+
+    @Test
+    void reset_ForgetsRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.quantile(0.99));
+    }
+
+    @Test
+    void smallValues_AreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSumMicros());
+        assertEquals(50, histogram.quantile(0.5));
+        assertEquals(99, histogram.quantile(0.99));
+        assertEquals(100, histogram.quantile(1.0));
+    }
+
+    @Test
+    void largeValues_StayWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        long p50 = histogram.quantile(0.5);
+        long p99 = histogram.quantile(0.99);
+        assertTrue(Math.abs(p50 - 500_000) <= 500_000 / 64, "p50 = " + p50);
+        assertTrue(Math.abs(p99 - 990_000) <= 990_000 / 64, "p99 = " + p99);
+        assertEquals(1_000_000, histogram.quantile(1.0));
+        assertEquals(1_000_000, histogram.getMaxMicros());
+    }
+
+    @Test
+    void bucketBounds_CoverEveryValue() {
+        for (long value : new long[]{0, 127, 128, 255, 256, 1_000, 65_535, 1L << 32, (1L << 33) - 1}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.upperBound(index) >= value, "value " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.upperBound(index - 1) < value, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void hugeValue_GoesToLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE / 2);
+        histogram.record(-5);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(Long.MAX_VALUE / 2, histogram.quantile(1.0));
+        assertEquals(0, histogram.quantile(0.5));
+    }
+}
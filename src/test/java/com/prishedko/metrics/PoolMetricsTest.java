@@ -0,0 +1,69 @@
+package com.prishedko.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolMetricsTest {
+
+    private static String scrape(MetricsSource source) throws IOException {
+        StringWriter out = new StringWriter();
+        source.writeTo(new PrometheusWriter(out));
+        return out.toString();
+    }
+
+    @Test
+    void tracker_RecordsPoolEventsAndGauges() throws IOException {
+        PoolMetrics metrics = new PoolMetrics();
+        PoolStats stats = new PoolStats(0) {
+            @Override
+            protected void update() {
+                totalConnections = 10;
+                idleConnections = 7;
+                activeConnections = 3;
+                pendingThreads = 2;
+                maxConnections = 10;
+            }
+        };
+        IMetricsTracker tracker = metrics.create("pool", stats);
+        metrics.setQueuedForPermit(() -> 5);
+
+        tracker.recordConnectionAcquiredNanos(2_000_000);
+        tracker.recordConnectionUsageMillis(15);
+        tracker.recordConnectionTimeout();
+        metrics.recordPermitWait(4_000_000);
+        metrics.recordPermitTimeout();
+
+        String text = scrape(metrics);
+        assertTrue(text.contains("db_pool_acquire_seconds{quantile=\"0.5\"} 0.002"));
+        assertTrue(text.contains("db_pool_usage_seconds_count 1"));
+        assertTrue(text.contains("db_permit_wait_seconds{quantile=\"0.99\"} 0.004"));
+        assertTrue(text.contains("db_pool_timeouts_total{stage=\"pool\"} 1"));
+        assertTrue(text.contains("db_pool_timeouts_total{stage=\"permit\"} 1"));
+        assertTrue(text.contains("db_pool_connections{state=\"active\"} 3"));
+        assertTrue(text.contains("db_pool_connections{state=\"idle\"} 7"));
+        assertTrue(text.contains("db_pool_pending_threads{stage=\"pool\"} 2"));
+        assertTrue(text.contains("db_pool_pending_threads{stage=\"permit\"} 5"));
+    }
+
+    @Test
+    void repositoryMetrics_SplitsWaitAndExecution() throws IOException {
+        RepositoryMetrics metrics = new RepositoryMetrics();
+
+        metrics.record("SchoolRepository.findById", 1_000_000, 3_000_000);
+        metrics.record("SchoolRepository.findById", 1_000_000, 3_000_000);
+
+        assertEquals(2, metrics.waitTime("SchoolRepository.findById").getCount());
+        assertNull(metrics.waitTime("TeacherRepository.findById"));
+        String text = scrape(metrics);
+        assertTrue(text.contains(
+                "db_repository_seconds_sum{method=\"SchoolRepository.findById\",phase=\"wait\"} 0.002"));
+        assertTrue(text.contains(
+                "db_repository_seconds_sum{method=\"SchoolRepository.findById\",phase=\"execute\"} 0.006"));
+    }
+}
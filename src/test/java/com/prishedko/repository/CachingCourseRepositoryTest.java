@@ -0,0 +1,178 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCourseRepositoryTest {
+
+    @Mock
+    private CourseRepository delegate;
+
+    private EntityCaches caches;
+    private CachingCourseRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        caches = new EntityCaches(100, 1, TimeUnit.MINUTES);
+        repository = new CachingCourseRepository(delegate, caches);
+    }
+
+    @Test
+    void findById_SecondCall_IsServedFromCache() throws SQLException {
+        Course course = new Course(1L, "Math", new ArrayList<>(), new ArrayList<>());
+        when(delegate.findById(1L)).thenReturn(course);
+
+        assertSame(course, repository.findById(1L));
+        assertSame(course, repository.findById(1L));
+
+        verify(delegate, times(1)).findById(1L);
+        assertEquals(1, caches.courses().stats().getHits());
+    }
+
+    @Test
+    void findByIdWithVersion_CachedOlderThanVersion_Reloads() throws SQLException {
+        Course stale = new Course(1L, "Math", new ArrayList<>(), new ArrayList<>());
+        stale.setVersion(3);
+        caches.courses().put(1L, stale);
+        Course fresh = new Course(1L, "Algebra", new ArrayList<>(), new ArrayList<>());
+        fresh.setVersion(4);
+        when(delegate.findById(1L)).thenReturn(fresh);
+
+        assertSame(fresh, repository.findById(1L, 4L));
+        assertSame(fresh, repository.findById(1L, 4L));
+
+        verify(delegate, times(1)).findById(1L);
+    }
+
+    @Test
+    void findById_NotFound_IsNotCached() throws SQLException {
+        when(delegate.findById(1L)).thenReturn(null);
+
+        assertNull(repository.findById(1L));
+        assertNull(repository.findById(1L));
+
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void update_InvalidatesCourseAndItsMembers() throws SQLException {
+        Teacher teacher = new Teacher(10L);
+        Student student = new Student(20L);
+        Course course = new Course(1L, "Math", List.of(teacher), List.of(student));
+        when(delegate.findById(1L)).thenReturn(course);
+        repository.findById(1L);
+        caches.teachers().put(10L, teacher);
+        caches.students().put(20L, student);
+        caches.students().put(21L, new Student(21L));
+
+        repository.update(new Course(1L, "Algebra", List.of(), List.of()));
+
+        assertNull(caches.courses().peek(1L));
+        assertNull(caches.teachers().peek(10L));
+        assertNull(caches.students().peek(20L));
+        assertNotNull(caches.students().peek(21L));
+    }
+
+    @Test
+    void delete_UncachedCourse_InvalidatesAllMembers() throws SQLException {
+        caches.teachers().put(10L, new Teacher(10L));
+        caches.students().put(20L, new Student(20L));
+
+        repository.delete(1L);
+
+        verify(delegate).delete(1L);
+        assertEquals(0, caches.teachers().size());
+        assertEquals(0, caches.students().size());
+    }
+
+    @Test
+    void save_InvalidatesLinkedTeachersAndStudents() throws SQLException {
+        School school = new School(1L, "School");
+        Teacher teacher = new Teacher(10L, "Teacher", school, new ArrayList<>());
+        Student student = new Student(20L, "Student", school, new ArrayList<>());
+        Course course = new Course(null, "Math", List.of(teacher), List.of(student));
+        caches.teachers().put(10L, teacher);
+        caches.students().put(20L, student);
+        when(delegate.save(course)).thenReturn(course);
+
+        repository.save(course);
+
+        assertNull(caches.teachers().peek(10L));
+        assertNull(caches.students().peek(20L));
+    }
+
+    @Test
+    void addStudents_InvalidatesCourseAndAddedStudents() throws SQLException {
+        when(delegate.findById(1L)).thenReturn(new Course(1L, "Math", new ArrayList<>(), new ArrayList<>()));
+        repository.findById(1L);
+        caches.students().put(20L, new Student(20L));
+        caches.students().put(21L, new Student(21L));
+        caches.teachers().put(10L, new Teacher(10L));
+        when(delegate.addStudents(1L, new long[]{20L})).thenReturn(1);
+
+        assertEquals(1, repository.addStudents(1L, new long[]{20L}));
+
+        assertNull(caches.courses().peek(1L));
+        assertNull(caches.students().peek(20L));
+        assertNotNull(caches.students().peek(21L));
+        assertNotNull(caches.teachers().peek(10L));
+    }
+
+    @Test
+    void removeTeachers_WhenDelegateFails_KeepsCache() throws SQLException {
+        caches.teachers().put(10L, new Teacher(10L));
+        when(delegate.removeTeachers(1L, new long[]{10L})).thenThrow(new SQLException("DB error"));
+
+        assertThrows(SQLException.class, () -> repository.removeTeachers(1L, new long[]{10L}));
+
+        assertNotNull(caches.teachers().peek(10L));
+    }
+
+    @Test
+    void addStudents_InsideUnitOfWork_InvalidatesAfterCommit() throws SQLException {
+        caches.courses().put(1L, new Course(1L));
+        caches.students().put(20L, new Student(20L));
+        when(delegate.addStudents(1L, new long[]{20L})).thenReturn(1);
+
+        UnitOfWork.inTransaction(() -> {
+            repository.addStudents(1L, new long[]{20L});
+            assertNotNull(caches.courses().peek(1L));
+            assertNotNull(caches.students().peek(20L));
+        });
+
+        assertNull(caches.courses().peek(1L));
+        assertNull(caches.students().peek(20L));
+    }
+
+    @Test
+    void findById_LoadRacingWithUpdate_DoesNotCacheStaleValue() throws SQLException {
+        Course stale = new Course(1L, "Math", new ArrayList<>(), new ArrayList<>());
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            // Обновление завершается, пока идет загрузка
+            repository.update(new Course(1L, "Algebra", List.of(), List.of()));
+            return stale;
+        });
+
+        repository.findById(1L);
+
+        assertNull(caches.courses().peek(1L));
+    }
+}
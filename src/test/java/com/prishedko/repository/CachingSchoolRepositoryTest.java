@@ -0,0 +1,188 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.SchoolRoster;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingSchoolRepositoryTest {
+
+    @Mock
+    private SchoolRepository delegate;
+
+    private EntityCaches caches;
+    private CachingSchoolRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        caches = new EntityCaches(100, 1, TimeUnit.MINUTES);
+        repository = new CachingSchoolRepository(delegate, caches);
+    }
+
+    @Test
+    void findById_SecondCall_IsServedFromCache() throws SQLException {
+        when(delegate.findById(1L)).thenReturn(new School(1L, "School"));
+
+        repository.findById(1L);
+        repository.findById(1L);
+
+        verify(delegate, times(1)).findById(1L);
+    }
+
+    @Test
+    void streamRoster_WhenCached_ReplaysCachedSchool() throws SQLException, IOException {
+        Teacher teacher = new Teacher(5L);
+        Student student = new Student(7L);
+        caches.schools().put(1L, new School(1L, "School", List.of(teacher), List.of(student)));
+        SchoolRosterVisitor visitor = mock(SchoolRosterVisitor.class);
+
+        assertTrue(repository.streamRoster(1L, visitor));
+
+        InOrder order = inOrder(visitor);
+        order.verify(visitor).school(1L, "School");
+        order.verify(visitor).teacher(5L);
+        order.verify(visitor).student(7L);
+        verify(delegate, never()).streamRoster(any(), any());
+    }
+
+    @Test
+    void streamRoster_WhenNotCached_StreamsFromDelegateAndCachesRoster() throws SQLException, IOException {
+        when(delegate.streamRoster(eq(1L), any())).thenAnswer(invocation -> {
+            SchoolRosterVisitor recorder = invocation.getArgument(1);
+            recorder.school(1L, "School");
+            recorder.version(2L);
+            recorder.teacher(5L);
+            recorder.student(7L);
+            recorder.student(8L);
+            return true;
+        });
+
+        assertTrue(repository.streamRoster(1L, mock(SchoolRosterVisitor.class)));
+        SchoolRosterVisitor visitor = mock(SchoolRosterVisitor.class);
+        assertTrue(repository.streamRoster(1L, 2L, visitor));
+
+        InOrder order = inOrder(visitor);
+        order.verify(visitor).school(1L, "School");
+        order.verify(visitor).version(2L);
+        order.verify(visitor).teacher(5L);
+        order.verify(visitor).student(7L);
+        order.verify(visitor).student(8L);
+        verify(delegate, times(1)).streamRoster(eq(1L), any());
+        assertNull(caches.schools().peek(1L));
+    }
+
+    @Test
+    void streamRoster_WhenSchoolChangedDuringRead_DoesNotCacheRoster() throws SQLException, IOException {
+        when(delegate.streamRoster(eq(1L), any())).thenAnswer(invocation -> {
+            SchoolRosterVisitor recorder = invocation.getArgument(1);
+            recorder.school(1L, "School");
+            recorder.version(2L);
+            caches.invalidateSchool(1L);
+            return true;
+        });
+
+        assertTrue(repository.streamRoster(1L, mock(SchoolRosterVisitor.class)));
+
+        assertNull(caches.rosters().peek(1L));
+    }
+
+    @Test
+    void streamRoster_CachedOlderThanVersion_StreamsFromDelegateAndDropsEntry() throws SQLException, IOException {
+        School cached = new School(1L, "School", List.of(), List.of());
+        cached.setVersion(3);
+        caches.schools().put(1L, cached);
+        caches.rosters().put(1L, new SchoolRoster("School", 3L, new long[0], new long[0]));
+        SchoolRosterVisitor visitor = mock(SchoolRosterVisitor.class);
+        when(delegate.streamRoster(eq(1L), any())).thenReturn(true);
+
+        assertTrue(repository.streamRoster(1L, 4L, visitor));
+
+        verify(visitor, never()).school(anyLong(), any());
+        assertNull(caches.schools().peek(1L));
+        assertNull(caches.rosters().peek(1L));
+    }
+
+    @Test
+    void findByIdWithFetchMode_BypassesCache() throws SQLException {
+        when(delegate.findById(1L, FetchMode.SEPARATE_QUERIES)).thenReturn(new School(1L, "School"));
+
+        repository.findById(1L, FetchMode.SEPARATE_QUERIES);
+
+        assertNull(caches.schools().peek(1L));
+    }
+
+    @Test
+    void update_InvalidatesSchool() throws SQLException {
+        School school = new School(1L, "Updated");
+        caches.schools().put(1L, new School(1L, "School"));
+        when(delegate.update(school)).thenReturn(school);
+
+        repository.update(school);
+
+        assertNull(caches.schools().peek(1L));
+    }
+
+    @Test
+    void delete_InvalidatesCascadedEntities() throws SQLException {
+        caches.schools().put(1L, new School(1L, "School"));
+        caches.teachers().put(1L, new Teacher(1L));
+        caches.students().put(1L, new Student(1L));
+        caches.courses().put(1L, new Course(1L));
+
+        repository.delete(1L);
+
+        verify(delegate).delete(1L);
+        assertEquals(0, caches.schools().size());
+        assertEquals(0, caches.teachers().size());
+        assertEquals(0, caches.students().size());
+        assertEquals(0, caches.courses().size());
+    }
+
+    @Test
+    void delete_InsideUnitOfWork_InvalidatesAfterCommit() throws SQLException {
+        caches.schools().put(1L, new School(1L, "School"));
+        caches.students().put(1L, new Student(1L));
+
+        UnitOfWork.inTransaction(() -> {
+            repository.delete(1L);
+            // До commit другие потоки видят в БД старые данные, и кэш их не сбрасывает
+            assertNotNull(caches.schools().peek(1L));
+        });
+
+        assertNull(caches.schools().peek(1L));
+        assertNull(caches.students().peek(1L));
+    }
+
+    @Test
+    void delete_RolledBack_KeepsCache() {
+        caches.schools().put(1L, new School(1L, "School"));
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(() -> {
+            repository.delete(1L);
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertNotNull(caches.schools().peek(1L));
+    }
+}
@@ -0,0 +1,133 @@
+package com.prishedko.repository;
+
+import com.prishedko.cache.EntityCaches;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.SchoolRoster;
+import com.prishedko.entity.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingStudentRepositoryTest {
+
+    @Mock
+    private StudentRepository delegate;
+
+    private EntityCaches caches;
+    private CachingStudentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        caches = new EntityCaches(100, 1, TimeUnit.MINUTES);
+        repository = new CachingStudentRepository(delegate, caches);
+    }
+
+    @Test
+    void findById_SecondCall_IsServedFromCache() throws SQLException {
+        Student student = new Student(1L, "Student", new School(1L, "School"), List.of());
+        when(delegate.findById(1L)).thenReturn(student);
+
+        repository.findById(1L);
+        repository.findById(1L);
+
+        verify(delegate, times(1)).findById(1L);
+    }
+
+    @Test
+    void findAllByIds_LoadsOnlyMissesAndKeepsRequestedOrder() throws SQLException {
+        Student cached = new Student(1L, "Cached", new School(1L, "School"), List.of());
+        Student loaded = new Student(2L, "Loaded", new School(1L, "School"), List.of());
+        caches.students().put(1L, cached);
+        when(delegate.findAllByIds(List.of(2L, 3L))).thenReturn(List.of(loaded));
+
+        List<Student> result = repository.findAllByIds(List.of(2L, 1L, 3L, 2L));
+
+        assertEquals(List.of(loaded, cached), result);
+        assertSame(loaded, caches.students().peek(2L));
+
+        repository.findAllByIds(List.of(1L, 2L));
+        verify(delegate, times(1)).findAllByIds(any());
+    }
+
+    @Test
+    void update_MovingUncachedStudent_InvalidatesOnlyOldAndNewSchool() throws SQLException {
+        caches.schools().put(1L, new School(1L, "Old"));
+        caches.schools().put(2L, new School(2L, "New"));
+        caches.schools().put(3L, new School(3L, "Other"));
+        caches.rosters().put(1L, new SchoolRoster("Old", 1L, new long[0], new long[]{1L}));
+        caches.courses().put(5L, new Course(5L));
+        Student moved = new Student(1L, "Student", new School(2L, "New"), List.of());
+        when(delegate.updateReturningPreviousSchool(moved)).thenReturn(1L);
+
+        repository.update(moved);
+
+        // Прежнюю школу вернул запрос, поэтому кэш студента для инвалидации не нужен
+        assertNull(caches.schools().peek(1L));
+        assertNull(caches.schools().peek(2L));
+        assertNotNull(caches.schools().peek(3L));
+        assertNull(caches.rosters().peek(1L));
+        assertNotNull(caches.courses().peek(5L));
+    }
+
+    @Test
+    void delete_InvalidatesStudentSchoolAndReturnedCourses() throws SQLException {
+        caches.students().put(1L, new Student(1L, "Student", new School(1L, "School"), List.of()));
+        caches.schools().put(1L, new School(1L, "School"));
+        caches.schools().put(2L, new School(2L, "Other"));
+        caches.courses().put(5L, new Course(5L));
+        caches.courses().put(6L, new Course(6L));
+        when(delegate.delete(1L)).thenReturn(new Membership(1L, new long[]{5L}));
+
+        repository.delete(1L);
+
+        assertNull(caches.students().peek(1L));
+        assertNull(caches.schools().peek(1L));
+        assertNotNull(caches.schools().peek(2L));
+        assertNull(caches.courses().peek(5L));
+        assertNotNull(caches.courses().peek(6L));
+    }
+
+    @Test
+    void delete_WhenDelegateFails_KeepsCache() throws SQLException {
+        caches.students().put(1L, new Student(1L, "Student", new School(1L, "School"), List.of()));
+        doThrow(new IllegalArgumentException("Student with id 1 not found")).when(delegate).delete(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> repository.delete(1L));
+
+        // Изменения не было: инвалидация регистрируется только после успешной записи
+        assertNotNull(caches.students().peek(1L));
+    }
+
+    @Test
+    void copyIn_InvalidatesSchoolsOfImportedStudents() throws SQLException, IOException {
+        caches.schools().put(1L, new School(1L, "School"));
+        caches.schools().put(2L, new School(2L, "Other"));
+        when(delegate.copyIn(any())).thenAnswer(invocation -> {
+            RowSupplier<Student> source = invocation.getArgument(0);
+            while (source.next() != null) {
+                // читаем все строки, как настоящий COPY
+            }
+            return List.of(10L);
+        });
+        Iterator<Student> rows = List.of(new Student(null, "Student", new School(1L, "School"), null)).iterator();
+
+        repository.copyIn(() -> rows.hasNext() ? rows.next() : null);
+
+        assertNull(caches.schools().peek(1L));
+        assertNotNull(caches.schools().peek(2L));
+    }
+}
@@ -15,11 +15,13 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.prishedko.Util.CREATE_TABLES;
@@ -37,6 +39,7 @@ class CourseRepositoryTest {
 
     private CourseRepository repository;
     private Connection connection;
+    private HikariDataSource dataSource;
 
     @BeforeAll
     static void beforeAll() {
@@ -63,6 +66,7 @@ class CourseRepositoryTest {
         config.setPassword(postgres.getPassword());
         config.setMaximumPoolSize(10);
         HikariDataSource testDataSource = new HikariDataSource(config);
+        dataSource = testDataSource;
 
         // Используем рефлексию для замены dataSource в DatabaseConfig
         Field dataSourceField = com.prishedko.config.DatabaseConfig.class.getDeclaredField("dataSource");
@@ -90,6 +94,30 @@ class CourseRepositoryTest {
         assertEquals("Test Course", savedCourse.getName());
     }
 
+    @Test
+    void testSaveReleasesConnection() throws SQLException {
+        // Больше, чем соединений в пуле: при утечке save упрется в таймаут пула
+        for (int i = 0; i < 25; i++) {
+            repository.save(new Course(null, "Course " + i, null, null));
+        }
+
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+    }
+
+    @Test
+    void testSaveWithUnknownTeacherRollsBackAndReleasesConnection() throws SQLException {
+        Course course = new Course(null, "Broken Course", List.of(new Teacher(999_999L)), null);
+
+        assertThrows(SQLException.class, () -> repository.save(course));
+
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+        try (var ps = connection.prepareStatement("SELECT COUNT(*) FROM courses WHERE name = 'Broken Course'")) {
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
     @Test
     void testSaveWithTeachersAndStudents() throws SQLException {
         Long schoolId = createSchool("Test School");
@@ -146,6 +174,26 @@ class CourseRepositoryTest {
         assertEquals(schoolId, foundCourse.getStudents().get(0).getSchool().getId());
     }
 
+    @Test
+    void testFindAllByIds() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        School school = new School(schoolId, "Test School");
+        Teacher teacher = new Teacher(createTeacher("Teacher 1", schoolId), "Teacher 1", school, null);
+        Student student = new Student(createStudent("Student 1", schoolId), "Student 1", school, null);
+        Course empty = repository.save(new Course(null, "Empty", null, null));
+        Course full = repository.save(new Course(null, "Full", List.of(teacher), List.of(student)));
+
+        List<Course> found = repository.findAllByIds(List.of(full.getId(), empty.getId(), 999L));
+
+        assertEquals(2, found.size());
+        assertEquals("Full", found.get(0).getName());
+        assertEquals("Teacher 1", found.get(0).getTeachers().get(0).getName());
+        assertEquals("Student 1", found.get(0).getStudents().get(0).getName());
+        assertEquals("Empty", found.get(1).getName());
+        assertTrue(found.get(1).getTeachers().isEmpty());
+        assertTrue(found.get(1).getStudents().isEmpty());
+    }
+
     @Test
     void testFindByIdNotFound() throws SQLException {
         Course foundCourse = repository.findById(999L);
@@ -164,6 +212,101 @@ class CourseRepositoryTest {
         assertEquals("Updated Name", foundCourse.getName());
     }
 
+    @Test
+    void testFindVersionChangesOnUpdateAndEnrollment() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        Long studentId = createStudent("Student 1", schoolId);
+        Course course = repository.save(new Course(null, "Versioned", null, null));
+        assertEquals(1L, repository.findVersion(course.getId()));
+
+        course.setName("Renamed");
+        repository.update(course);
+        assertEquals(2L, repository.findVersion(course.getId()));
+
+        try (var statement = connection.createStatement()) {
+            statement.execute("INSERT INTO students_courses (student_id, course_id) VALUES ("
+                    + studentId + ", " + course.getId() + ")");
+        }
+        long enrolled = repository.findVersion(course.getId());
+        assertTrue(enrolled > 2L);
+
+        // Удаление студента каскадно удаляет запись на курс и тоже меняет версию курса
+        try (var statement = connection.createStatement()) {
+            statement.execute("DELETE FROM students WHERE id = " + studentId);
+        }
+        assertTrue(repository.findVersion(course.getId()) > enrolled);
+        assertNull(repository.findVersion(999L));
+    }
+
+    @Test
+    void testAddAndRemoveStudents() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        long first = createStudent("Student 1", schoolId);
+        long second = createStudent("Student 2", schoolId);
+        Course course = repository.save(new Course(null, "Links", null, List.of(new Student(first))));
+        long version = repository.findVersion(course.getId());
+
+        // Уже записанный студент и повтор в запросе пропускаются
+        assertEquals(1, repository.addStudents(course.getId(), new long[]{first, second, second}));
+        assertEquals(version + 1, repository.findVersion(course.getId()));
+        assertEquals(2, repository.findById(course.getId()).getStudents().size());
+
+        assertEquals(1, repository.removeStudents(course.getId(), new long[]{first, 999L}));
+        assertEquals(List.of(second), repository.findById(course.getId()).getStudents().stream()
+                .map(Student::getId).toList());
+        assertEquals(0, repository.removeStudents(course.getId(), new long[0]));
+    }
+
+    @Test
+    void testAddAndRemoveTeachers() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        long teacherId = createTeacher("Teacher 1", schoolId);
+        Course course = repository.save(new Course(null, "Links", null, null));
+
+        assertEquals(1, repository.addTeachers(course.getId(), new long[]{teacherId}));
+        assertEquals(0, repository.addTeachers(course.getId(), new long[]{teacherId}));
+        assertEquals(1, repository.findById(course.getId()).getTeachers().size());
+
+        assertEquals(1, repository.removeTeachers(course.getId(), new long[]{teacherId}));
+        assertTrue(repository.findById(course.getId()).getTeachers().isEmpty());
+    }
+
+    @Test
+    void testAddStudentsWithUnknownIds() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        long studentId = createStudent("Student 1", schoolId);
+        Course course = repository.save(new Course(null, "Links", null, null));
+
+        IllegalArgumentException noCourse = assertThrows(IllegalArgumentException.class,
+                () -> repository.addStudents(999_999L, new long[]{studentId}));
+        assertEquals("Course with id 999999 not found", noCourse.getMessage());
+
+        IllegalArgumentException noStudent = assertThrows(IllegalArgumentException.class,
+                () -> repository.addStudents(course.getId(), new long[]{studentId, 999_999L}));
+        assertEquals("Student not found", noStudent.getMessage());
+        // Запрос атомарен: существующий студент тоже не записан
+        assertTrue(repository.findById(course.getId()).getStudents().isEmpty());
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+    }
+
+    @Test
+    void testLockForUpdateAndFindMemberIds() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        long second = createStudent("Student 2", schoolId);
+        long first = createStudent("Student 1", schoolId);
+        long teacherId = createTeacher("Teacher 1", schoolId);
+        Course course = repository.save(new Course(null, "Links", List.of(new Teacher(teacherId)),
+                List.of(new Student(second), new Student(first))));
+
+        assertTrue(repository.lockForUpdate(course.getId()));
+        assertFalse(repository.lockForUpdate(999_999L));
+        // id по возрастанию - на этом основано вычисление изменений состава
+        assertArrayEquals(new long[]{Math.min(first, second), Math.max(first, second)},
+                repository.findStudentIds(course.getId()));
+        assertArrayEquals(new long[]{teacherId}, repository.findTeacherIds(course.getId()));
+        assertArrayEquals(new long[0], repository.findTeacherIds(999_999L));
+    }
+
     @Test
     void testUpdateNotFound() {
         Course course = new Course(999L, "Non-existent", null, null);
@@ -195,6 +338,36 @@ class CourseRepositoryTest {
         assertTrue(courses.stream().anyMatch(c -> c.getName().equals("Course 2")));
     }
 
+    @Test
+    void testFindPage() throws SQLException {
+        Course first = repository.save(new Course(null, "Course 1", null, null));
+        Course second = repository.save(new Course(null, "Course 2", null, null));
+        Course third = repository.save(new Course(null, "Course 3", null, null));
+
+        List<Course> page = repository.findPage(first.getId(), 1);
+        assertEquals(1, page.size());
+        assertEquals(second.getId(), page.get(0).getId());
+
+        List<Course> rest = repository.findPage(second.getId(), 10);
+        assertEquals(1, rest.size());
+        assertEquals(third.getId(), rest.get(0).getId());
+    }
+
+    @Test
+    void testStreamAll() throws SQLException, IOException {
+        Course first = repository.save(new Course(null, "Course 1", null, null));
+        repository.save(new Course(null, "Course 2", null, null));
+        repository.save(new Course(null, "Course 3", null, null));
+
+        List<String> names = new ArrayList<>();
+        repository.streamAll(0L, 0, course -> names.add(course.getName()));
+        assertEquals(List.of("Course 1", "Course 2", "Course 3"), names);
+
+        List<String> limited = new ArrayList<>();
+        repository.streamAll(first.getId(), 1, course -> limited.add(course.getName()));
+        assertEquals(List.of("Course 2"), limited);
+    }
+
     // Вспомогательные методы
     private Long createSchool(String name) throws SQLException {
         try (var ps = connection.prepareStatement(
@@ -0,0 +1,91 @@
+package com.prishedko.repository;
+
+import com.prishedko.entity.Course;
+import com.prishedko.entity.Student;
+import com.prishedko.entity.Teacher;
+import com.prishedko.index.EnrollmentIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexingCourseRepositoryTest {
+
+    @Mock
+    private CourseRepository delegate;
+
+    private EnrollmentIndex index;
+    private IndexingCourseRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        index = new EnrollmentIndex();
+        repository = new IndexingCourseRepository(delegate, index);
+    }
+
+    @Test
+    void save_IndexesTeachersAndStudents() throws SQLException {
+        Course course = new Course(null, "Math", List.of(new Teacher(10L)), List.of(new Student(1L), new Student(2L)));
+        when(delegate.save(course)).thenAnswer(invocation -> {
+            course.setId(100L);
+            return course;
+        });
+
+        repository.save(course);
+
+        assertArrayEquals(new long[]{1L, 2L},
+                index.query(EnrollmentIndex.Member.STUDENTS, List.of(100L), null, null, null).toArray());
+        assertArrayEquals(new long[]{10L},
+                index.query(EnrollmentIndex.Member.TEACHERS, List.of(100L), null, null, null).toArray());
+    }
+
+    @Test
+    void save_WhenDelegateFails_LeavesIndexUnchanged() throws SQLException {
+        Course course = new Course(null, "Math", List.of(), List.of(new Student(1L)));
+        when(delegate.save(course)).thenThrow(new SQLException("insert failed"));
+
+        assertThrows(SQLException.class, () -> repository.save(course));
+
+        assertTrue(index.query(EnrollmentIndex.Member.STUDENTS, null, List.of(100L), null, null).isEmpty());
+    }
+
+    @Test
+    void delete_RemovesCourseFromIndex() throws SQLException {
+        index.addCourse(100L, List.of(), List.of(1L));
+
+        repository.delete(100L);
+
+        verify(delegate).delete(100L);
+        assertTrue(index.query(EnrollmentIndex.Member.STUDENTS, List.of(100L), null, null, null).isEmpty());
+    }
+
+    @Test
+    void addAndRemoveStudents_UpdateCourseMembers() throws SQLException {
+        index.addCourse(100L, List.of(), List.of(1L));
+        when(delegate.addStudents(100L, new long[]{2L, 3L})).thenReturn(2);
+        when(delegate.removeStudents(100L, new long[]{1L})).thenReturn(1);
+
+        repository.addStudents(100L, new long[]{2L, 3L});
+        repository.removeStudents(100L, new long[]{1L});
+
+        assertArrayEquals(new long[]{2L, 3L},
+                index.query(EnrollmentIndex.Member.STUDENTS, List.of(100L), null, null, null).toArray());
+    }
+
+    @Test
+    void addTeachers_WhenDelegateFails_LeavesIndexUnchanged() throws SQLException {
+        when(delegate.addTeachers(100L, new long[]{10L})).thenThrow(new IllegalArgumentException("Teacher not found"));
+
+        assertThrows(IllegalArgumentException.class, () -> repository.addTeachers(100L, new long[]{10L}));
+
+        assertTrue(index.query(EnrollmentIndex.Member.TEACHERS, null, List.of(100L), null, null).isEmpty());
+    }
+}
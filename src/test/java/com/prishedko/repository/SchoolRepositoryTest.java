@@ -12,10 +12,13 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.prishedko.Util.CREATE_TABLES;
 import static com.prishedko.Util.DROP_TABLES;
@@ -118,6 +121,35 @@ class SchoolRepositoryTest {
         assertEquals("Updated Name", foundSchool.getName());
     }
 
+    @Test
+    void testFindVersionChangesWhenRosterChanges() throws SQLException {
+        School school = repository.save(new School(1, "Versioned"));
+        School other = repository.save(new School(2, "Other"));
+        assertEquals(1L, repository.findVersion(school.getId()));
+
+        // Один оператор на много строк меняет версию школы один раз
+        try (var statement = connection.createStatement()) {
+            statement.execute("INSERT INTO students (name, school_id) SELECT 'Student ' || g, " + school.getId()
+                    + " FROM generate_series(1, 50) g");
+        }
+        assertEquals(2L, repository.findVersion(school.getId()));
+
+        // Переименование студента не меняет состав школы
+        try (var statement = connection.createStatement()) {
+            statement.execute("UPDATE students SET name = 'Renamed' WHERE school_id = " + school.getId());
+        }
+        assertEquals(2L, repository.findVersion(school.getId()));
+
+        // Перевод меняет версии обеих школ
+        try (var statement = connection.createStatement()) {
+            statement.execute("UPDATE students SET school_id = " + other.getId()
+                    + " WHERE id = (SELECT min(id) FROM students)");
+        }
+        assertEquals(3L, repository.findVersion(school.getId()));
+        assertEquals(2L, repository.findVersion(other.getId()));
+        assertNull(repository.findVersion(999L));
+    }
+
     @Test
     void testUpdateNotFound() {
         School school = new School(999L, "Non-existent");
@@ -172,4 +204,123 @@ class SchoolRepositoryTest {
         assertEquals(1, foundSchool.getStudents().size());
         assertEquals("Student 1", foundSchool.getStudents().get(0).getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllByIds() throws SQLException {
+        School first = repository.save(new School(1, "First"));
+        School second = repository.save(new School(2, "Second"));
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO teachers (name, school_id) VALUES (?, ?)")) {
+            ps.setString(1, "Teacher 1");
+            ps.setLong(2, second.getId());
+            ps.executeUpdate();
+        }
+
+        List<School> found = repository.findAllByIds(List.of(second.getId(), first.getId(), 999L));
+
+        assertEquals(2, found.size());
+        assertEquals("Second", found.get(0).getName());
+        assertEquals("Teacher 1", found.get(0).getTeachers().get(0).getName());
+        assertSame(found.get(0), found.get(0).getTeachers().get(0).getSchool());
+        assertTrue(found.get(0).getStudents().isEmpty());
+        assertEquals("First", found.get(1).getName());
+        assertTrue(found.get(1).getTeachers().isEmpty());
+        assertTrue(repository.findAllByIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void testFindLargestIds() throws SQLException {
+        School small = repository.save(new School(1, "Small"));
+        School large = repository.save(new School(2, "Large"));
+        School empty = repository.save(new School(3, "Empty"));
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO students (name, school_id) VALUES (?, ?)")) {
+            for (long schoolId : new long[]{large.getId(), large.getId(), small.getId()}) {
+                ps.setString(1, "Student");
+                ps.setLong(2, schoolId);
+                ps.executeUpdate();
+            }
+        }
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO teachers (name, school_id) VALUES (?, ?)")) {
+            ps.setString(1, "Teacher 1");
+            ps.setLong(2, large.getId());
+            ps.executeUpdate();
+        }
+
+        assertArrayEquals(new long[]{large.getId(), small.getId(), empty.getId()}, repository.findLargestIds(10));
+        assertArrayEquals(new long[]{large.getId()}, repository.findLargestIds(1));
+    }
+
+    @Test
+    void testStreamRoster() throws SQLException, IOException {
+        School school = repository.save(new School(1, "Roster School"));
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO teachers (name, school_id) VALUES ('Teacher 1', ?), ('Teacher 2', ?)")) {
+            ps.setLong(1, school.getId());
+            ps.setLong(2, school.getId());
+            ps.executeUpdate();
+        }
+        try (var ps = connection.prepareStatement("INSERT INTO students (name, school_id) VALUES ('Student 1', ?)")) {
+            ps.setLong(1, school.getId());
+            ps.executeUpdate();
+        }
+        List<String> events = new ArrayList<>();
+
+        boolean found = repository.streamRoster(school.getId(), new SchoolRosterVisitor() {
+            @Override
+            public void school(long id, String name) {
+                events.add("school " + name);
+            }
+
+            @Override
+            public void teacher(long id) {
+                events.add("teacher");
+            }
+
+            @Override
+            public void student(long id) {
+                events.add("student");
+            }
+        });
+
+        assertTrue(found);
+        assertEquals(List.of("school Roster School", "teacher", "teacher", "student"), events);
+        assertFalse(repository.streamRoster(999L, null));
+    }
+
+    @Test
+    void testFindByIdFetchModesReturnSameAggregate() throws SQLException {
+        School school = repository.save(new School(1, "Test School"));
+
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO teachers (name, school_id) VALUES (?, ?), (?, ?)")) {
+            ps.setString(1, "Teacher 1");
+            ps.setLong(2, school.getId());
+            ps.setString(3, "Teacher 2");
+            ps.setLong(4, school.getId());
+            ps.executeUpdate();
+        }
+
+        try (var ps = connection.prepareStatement(
+                "INSERT INTO students (name, school_id) VALUES (?, ?)")) {
+            ps.setString(1, "Student 1");
+            ps.setLong(2, school.getId());
+            ps.executeUpdate();
+        }
+
+        School separate = repository.findById(school.getId(), FetchMode.SEPARATE_QUERIES);
+        School single = repository.findById(school.getId(), FetchMode.SINGLE_QUERY);
+
+        assertEquals(separate.getName(), single.getName());
+        assertEquals(2, single.getTeachers().size());
+        assertEquals(1, single.getStudents().size());
+        assertEquals("Student 1", single.getStudents().get(0).getName());
+        assertEquals(school.getId(), single.getTeachers().get(0).getSchool().getId());
+    }
+
+    @Test
+    void testFindByIdSingleQueryNotFound() throws SQLException {
+        assertNull(repository.findById(999L, FetchMode.SINGLE_QUERY));
+    }
+}
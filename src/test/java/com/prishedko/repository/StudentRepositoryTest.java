@@ -13,11 +13,13 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.prishedko.Util.CREATE_TABLES;
@@ -122,6 +124,25 @@ class StudentRepositoryTest {
         assertEquals("Math", foundStudent.getCourses().get(0).getName());
     }
 
+    @Test
+    void testFindAllByIds() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        School school = new School(schoolId, "Test School");
+        Student first = repository.save(new Student(null, "First", school, null));
+        Student second = repository.save(new Student(null, "Second", school, null));
+        Long courseId = createCourse("Math");
+        createStudentCourseLink(second.getId(), courseId);
+
+        List<Student> found = repository.findAllByIds(List.of(second.getId(), 999L, first.getId(), second.getId()));
+
+        assertEquals(2, found.size());
+        assertEquals(second.getId(), found.get(0).getId());
+        assertEquals("Math", found.get(0).getCourses().get(0).getName());
+        assertEquals(first.getId(), found.get(1).getId());
+        assertTrue(found.get(1).getCourses().isEmpty());
+        assertEquals(schoolId, found.get(1).getSchool().getId());
+    }
+
     @Test
     void testFindByIdNotFound() throws SQLException {
         Student foundStudent = repository.findById(999L);
@@ -186,6 +207,38 @@ class StudentRepositoryTest {
         assertTrue(students.stream().anyMatch(s -> s.getName().equals("Student 2")));
     }
 
+    @Test
+    void testCopyIn() throws SQLException, IOException {
+        Long schoolId = createSchool("Test School");
+        School school = new School(schoolId, "Test School");
+        Iterator<Student> rows = List.of(
+                new Student(null, "Student 1", school, null),
+                new Student(null, "O'Brien, \"Jr\"", school, null)
+        ).iterator();
+
+        List<Long> ids = repository.copyIn(() -> rows.hasNext() ? rows.next() : null);
+
+        assertEquals(2, ids.size());
+        assertNotEquals(ids.get(0), ids.get(1));
+        assertEquals("Student 1", repository.findById(ids.get(0)).getName());
+        assertEquals("O'Brien, \"Jr\"", repository.findById(ids.get(1)).getName());
+        assertEquals(schoolId, repository.findById(ids.get(1)).getSchool().getId());
+    }
+
+    @Test
+    void testCopyInWithUnknownSchoolRollsBack() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        Iterator<Student> rows = List.of(
+                new Student(null, "Student 1", new School(schoolId, "Test School"), null),
+                new Student(null, "Student 2", new School(999L, null), null)
+        ).iterator();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> repository.copyIn(() -> rows.hasNext() ? rows.next() : null));
+        assertEquals("School not found", e.getMessage());
+        assertTrue(repository.findBySchoolId(schoolId).isEmpty());
+    }
+
     // Вспомогательные методы для создания тестовых данных
     private Long createSchool(String name) throws SQLException {
         try (var ps = connection.prepareStatement(
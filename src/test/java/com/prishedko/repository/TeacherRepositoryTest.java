@@ -123,6 +123,25 @@ class TeacherRepositoryTest {
         assertEquals("Math", foundTeacher.getCourses().get(0).getName());
     }
 
+    @Test
+    void testFindAllByIds() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        School school = new School(schoolId, "Test School");
+        Teacher first = repository.save(new Teacher(null, "First", school, null));
+        Teacher second = repository.save(new Teacher(null, "Second", school, null));
+        Long courseId = createCourse("Math");
+        createTeacherCourseLink(second.getId(), courseId);
+
+        List<Teacher> found = repository.findAllByIds(List.of(second.getId(), 999L, first.getId(), second.getId()));
+
+        assertEquals(2, found.size());
+        assertEquals(second.getId(), found.get(0).getId());
+        assertEquals("Math", found.get(0).getCourses().get(0).getName());
+        assertEquals(first.getId(), found.get(1).getId());
+        assertTrue(found.get(1).getCourses().isEmpty());
+        assertEquals(schoolId, found.get(1).getSchool().getId());
+    }
+
     @Test
     void testFindByIdNotFound() throws SQLException {
         Teacher foundTeacher = repository.findById(999L);
@@ -204,6 +223,45 @@ class TeacherRepositoryTest {
         assertEquals("Physics", foundTeacher2.getCourses().get(0).getName());
     }
 
+    @Test
+    void testFindBySchoolIdWithSeveralCoursesPerTeacher() throws SQLException {
+        Long schoolId = createSchool("Test School");
+        Long otherSchoolId = createSchool("Other School");
+        School school = new School(schoolId, "Test School");
+
+        Teacher teacher1 = repository.save(new Teacher(null, "Teacher 1", school, null));
+        repository.save(new Teacher(null, "Teacher 2", school, null));
+        Teacher otherTeacher = repository.save(new Teacher(null, "Other", new School(otherSchoolId, "Other School"), null));
+
+        Long courseId1 = createCourse("Math");
+        Long courseId2 = createCourse("Physics");
+        createTeacherCourseLink(teacher1.getId(), courseId1);
+        createTeacherCourseLink(teacher1.getId(), courseId2);
+        createTeacherCourseLink(otherTeacher.getId(), courseId1);
+
+        List<Teacher> teachers = repository.findBySchoolId(schoolId);
+        assertEquals(2, teachers.size());
+
+        Teacher foundTeacher1 = teachers.stream()
+                .filter(t -> t.getId().equals(teacher1.getId()))
+                .findFirst()
+                .orElseThrow();
+        Teacher foundTeacher2 = teachers.stream()
+                .filter(t -> !t.getId().equals(teacher1.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(2, foundTeacher1.getCourses().size());
+        assertTrue(foundTeacher2.getCourses().isEmpty());
+    }
+
+    @Test
+    void testFindBySchoolIdWithoutTeachers() throws SQLException {
+        Long schoolId = createSchool("Empty School");
+
+        assertTrue(repository.findBySchoolId(schoolId).isEmpty());
+    }
+
     // Вспомогательные методы
     private Long createSchool(String name) throws SQLException {
         try (var ps = connection.prepareStatement(
@@ -0,0 +1,180 @@
+package com.prishedko.repository;
+
+import com.prishedko.config.UnitOfWork;
+import com.prishedko.entity.Course;
+import com.prishedko.entity.School;
+import com.prishedko.entity.Teacher;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.prishedko.Util.CREATE_TABLES;
+import static com.prishedko.Util.DROP_TABLES;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class UnitOfWorkTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15"))
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private SchoolRepository schoolRepository;
+    private CourseRepository courseRepository;
+    private Connection connection;
+    private HikariDataSource dataSource;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException, NoSuchFieldException, IllegalAccessException {
+        connection = DriverManager.getConnection(
+                postgres.getJdbcUrl(),
+                postgres.getUsername(),
+                postgres.getPassword()
+        );
+
+        try (var statement = connection.createStatement()) {
+            statement.execute(DROP_TABLES);
+            statement.execute(CREATE_TABLES);
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(10);
+        dataSource = new HikariDataSource(config);
+
+        // Используем рефлексию для замены dataSource в DatabaseConfig
+        Field dataSourceField = com.prishedko.config.DatabaseConfig.class.getDeclaredField("dataSource");
+        dataSourceField.setAccessible(true);
+        dataSourceField.set(null, dataSource);
+
+        schoolRepository = new SchoolRepository();
+        courseRepository = new CourseRepository();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void testStepsShareOneConnectionAndCommitOnce() throws SQLException {
+        School saved = UnitOfWork.inTransaction(() -> {
+            School school = schoolRepository.save(newSchool("Unit School"));
+            courseRepository.save(new Course(null, "Unit Course", null, null));
+            assertTrue(schoolRepository.existsById(school.getId()));
+
+            assertEquals(1, dataSource.getHikariPoolMXBean().getActiveConnections());
+            // До commit изменения не видны другим соединениям
+            assertEquals(0, count("SELECT COUNT(*) FROM schools"));
+            return school;
+        });
+
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+        assertEquals(1, count("SELECT COUNT(*) FROM schools WHERE id = " + saved.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM courses"));
+    }
+
+    @Test
+    void testExceptionRollsBackAllSteps() throws SQLException {
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(() -> {
+            schoolRepository.save(newSchool("Rolled Back School"));
+            courseRepository.save(new Course(null, "Rolled Back Course", null, null));
+            throw new IllegalStateException("abort");
+        }));
+
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+        assertEquals(0, count("SELECT COUNT(*) FROM schools"));
+        assertEquals(0, count("SELECT COUNT(*) FROM courses"));
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void testRepositoryRollbackMarksUnitRollbackOnly() throws SQLException {
+        SQLException exception = assertThrows(SQLException.class, () -> UnitOfWork.inTransaction(() -> {
+            schoolRepository.save(newSchool("Doomed School"));
+            // Ошибка в save курса откатывает всю единицу работы, даже если ее перехватили
+            assertThrows(SQLException.class, () -> courseRepository.save(
+                    new Course(null, "Broken Course", List.of(new Teacher(999_999L)), null)));
+        }));
+
+        assertTrue(exception.getMessage().contains("rollback-only"));
+        assertEquals(0, count("SELECT COUNT(*) FROM schools"));
+    }
+
+    @Test
+    void testCaughtNestedFailureMakesOuterUnitThrow() throws SQLException {
+        assertThrows(SQLException.class, () -> UnitOfWork.inTransaction(() -> {
+            schoolRepository.save(newSchool("Outer School"));
+            assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(() -> {
+                throw new IllegalStateException("nested");
+            }));
+            return "reported as success";
+        }));
+
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+        assertEquals(0, count("SELECT COUNT(*) FROM schools"));
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void testAfterCommitRunsOnlyWhenUnitCommits() throws SQLException {
+        List<String> events = new ArrayList<>();
+        UnitOfWork.inTransaction(() -> {
+            schoolRepository.save(newSchool("Committed School"));
+            UnitOfWork.afterCommit(() -> events.add("committed"));
+            assertTrue(events.isEmpty());
+        });
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(() -> {
+            UnitOfWork.afterCommit(() -> events.add("thrown"));
+            throw new IllegalStateException("abort");
+        }));
+        assertThrows(SQLException.class, () -> UnitOfWork.inTransaction(() -> {
+            UnitOfWork.afterCommit(() -> events.add("rollback only"));
+            assertThrows(SQLException.class, () -> courseRepository.save(
+                    new Course(null, "Broken Course", List.of(new Teacher(999_999L)), null)));
+        }));
+
+        assertEquals(List.of("committed"), events);
+    }
+
+    private static School newSchool(String name) {
+        School school = new School();
+        school.setName(name);
+        return school;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (var ps = connection.prepareStatement(sql)) {
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
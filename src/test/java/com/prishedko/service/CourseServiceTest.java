@@ -1,10 +1,12 @@
 package com.prishedko.service;
 
 import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.RosterChangeDTO;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.Student;
 import com.prishedko.entity.Teacher;
 import com.prishedko.repository.CourseRepository;
+import com.prishedko.repository.RowConsumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,11 +14,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -98,6 +108,16 @@ class CourseServiceTest {
         verify(courseRepository, times(1)).findById(courseId);
     }
 
+    @Test
+    void getCourseVersion_WithNonExistentId_ThrowsIllegalArgumentException() throws SQLException {
+        when(courseRepository.findVersion(1L)).thenReturn(null);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> courseService.getCourseVersion(1L));
+        assertEquals("Course with id 1 not found", exception.getMessage());
+        verify(courseRepository, never()).findById(anyLong());
+    }
+
     @Test
     void getCourse_WithSQLException_ThrowsSQLException() throws SQLException {
         Long courseId = 1L;
@@ -109,6 +129,69 @@ class CourseServiceTest {
         verify(courseRepository, times(1)).findById(courseId);
     }
 
+    @Test
+    void getCourseWithVersion_ConcurrentSameVersion_LoadsOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(courseRepository.findById(1L, 3L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return new Course(1L, "Physics", List.of(), List.of());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CourseDTO> first = executor.submit(() -> courseService.getCourse(1L, 3L));
+            loading.await();
+            Future<CourseDTO> second = executor.submit(() -> courseService.getCourse(1L, 3L));
+            awaitCoalesced(1);
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(courseRepository, times(1)).findById(1L, 3L);
+        assertEquals(1, courseService.getCourseLoads().getExecuted());
+    }
+
+    @Test
+    void getCourseWithVersion_UpdateDuringLoad_NewVersionLoadsSeparately() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(courseRepository.findById(1L, 3L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return new Course(1L, "Physics", List.of(), List.of());
+        });
+        when(courseRepository.findById(1L, 4L)).thenReturn(new Course(1L, "Quantum Physics", List.of(), List.of()));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CourseDTO> stale = executor.submit(() -> courseService.getCourse(1L, 3L));
+            loading.await();
+
+            // Курс изменен во время загрузки: запрос с новой версией не ждет старую загрузку
+            CourseDTO fresh = courseService.getCourse(1L, 4L);
+            release.countDown();
+
+            assertEquals("Quantum Physics", fresh.getName());
+            assertEquals("Physics", stale.get(5, TimeUnit.SECONDS).getName());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, courseService.getCourseLoads().getExecuted());
+        assertEquals(0, courseService.getCourseLoads().getCoalesced());
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (courseService.getCourseLoads().getCoalesced() < count) {
+            assertTrue(System.nanoTime() < deadline, "Second request did not join the load");
+            Thread.sleep(1);
+        }
+    }
+
     // Тесты для updateCourse
     @Test
     void updateCourse_WithValidData_ReturnsUpdatedCourseDTO() throws SQLException {
@@ -148,6 +231,44 @@ class CourseServiceTest {
         verify(courseRepository, times(1)).update(any(Course.class));
     }
 
+    // Тесты для replaceStudents и replaceTeachers
+    @Test
+    void replaceStudents_ChangesOnlyDifferingLinks() throws SQLException {
+        when(courseRepository.lockForUpdate(1L)).thenReturn(true);
+        when(courseRepository.findStudentIds(1L)).thenReturn(new long[]{1L, 2L, 3L, 5L});
+        when(courseRepository.addStudents(1L, new long[]{4L, 6L})).thenReturn(2);
+        when(courseRepository.removeStudents(1L, new long[]{2L, 5L})).thenReturn(2);
+
+        RosterChangeDTO result = courseService.replaceStudents(1L, new long[]{6L, 3L, 4L, 1L, 4L});
+
+        assertEquals(2, result.getAdded());
+        assertEquals(2, result.getRemoved());
+        verify(courseRepository).lockForUpdate(1L);
+    }
+
+    @Test
+    void replaceTeachers_SameRoster_WritesNothing() throws SQLException {
+        when(courseRepository.lockForUpdate(1L)).thenReturn(true);
+        when(courseRepository.findTeacherIds(1L)).thenReturn(new long[]{1L, 2L});
+        when(courseRepository.addTeachers(1L, new long[0])).thenReturn(0);
+        when(courseRepository.removeTeachers(1L, new long[0])).thenReturn(0);
+
+        RosterChangeDTO result = courseService.replaceTeachers(1L, new long[]{2L, 1L});
+
+        assertEquals(0, result.getAdded());
+        assertEquals(0, result.getRemoved());
+    }
+
+    @Test
+    void replaceStudents_WithNonExistentCourse_ThrowsIllegalArgumentException() throws SQLException {
+        when(courseRepository.lockForUpdate(999L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> courseService.replaceStudents(999L, new long[]{1L}));
+        assertEquals("Course with id 999 not found", exception.getMessage());
+        verify(courseRepository, never()).addStudents(anyLong(), any());
+    }
+
     // Тесты для deleteCourse
     @Test
     void deleteCourse_WithValidId_DeletesCourse() throws SQLException {
@@ -202,4 +323,38 @@ class CourseServiceTest {
         assertEquals("DB error", exception.getMessage());
         verify(courseRepository, times(1)).findAll();
     }
-}
\ No newline at end of file
+
+    // Тесты для getCoursesPage
+    @Test
+    void getCoursesPage_ReturnsPageFromRepository() throws SQLException {
+        when(courseRepository.findPage(10L, 2)).thenReturn(List.of(
+                new Course(11L, "Math", List.of(), List.of()),
+                new Course(12L, "Physics", List.of(), List.of())
+        ));
+
+        List<CourseDTO> result = courseService.getCoursesPage(10L, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(11L, result.get(0).getId());
+        assertEquals(12L, result.get(1).getId());
+        verify(courseRepository, times(1)).findPage(10L, 2);
+    }
+
+    // Тесты для streamCourses
+    @Test
+    void streamCourses_MapsEachRowToDTO() throws SQLException, IOException {
+        doAnswer(invocation -> {
+            RowConsumer<Course> consumer = invocation.getArgument(2);
+            consumer.accept(new Course(1L, "Math", List.of(), List.of()));
+            consumer.accept(new Course(2L, "Physics", List.of(), List.of()));
+            return null;
+        }).when(courseRepository).streamAll(eq(0L), eq(0), any());
+
+        List<CourseDTO> received = new ArrayList<>();
+        courseService.streamCourses(0L, 0, received::add);
+
+        assertEquals(2, received.size());
+        assertEquals("Math", received.get(0).getName());
+        assertEquals("Physics", received.get(1).getName());
+    }
+}
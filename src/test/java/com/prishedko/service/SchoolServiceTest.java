@@ -106,6 +106,22 @@ class SchoolServiceTest {
         verify(schoolRepository, times(1)).findById(schoolId);
     }
 
+    @Test
+    void getSchoolVersion_WithExistingId_ReturnsVersion() throws SQLException {
+        when(schoolRepository.findVersion(1L)).thenReturn(4L);
+
+        assertEquals(4L, schoolService.getSchoolVersion(1L));
+    }
+
+    @Test
+    void getSchoolVersion_WithNonExistentId_ThrowsIllegalArgumentException() throws SQLException {
+        when(schoolRepository.findVersion(1L)).thenReturn(null);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> schoolService.getSchoolVersion(1L));
+        assertEquals("School not found", exception.getMessage());
+    }
+
     // Тесты для deleteSchool
     @Test
     void deleteSchool_WithValidId_DeletesSchool() throws SQLException {
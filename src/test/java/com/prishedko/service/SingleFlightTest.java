@@ -0,0 +1,91 @@
+package com.prishedko.service;
+
+import com.prishedko.metrics.PrometheusWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> flight = new SingleFlight<>("test");
+
+    @Test
+    void load_Sequential_ExecutesEachTime() throws SQLException {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("1", flight.load(1L, () -> String.valueOf(loads.incrementAndGet())));
+        assertEquals("2", flight.load(1L, () -> String.valueOf(loads.incrementAndGet())));
+
+        assertEquals(2, flight.getExecuted());
+        assertEquals(0, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    void load_FailureWhileOthersWait_RethrownToEveryCaller() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> flight.load(1L, () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new SQLException("DB error");
+            }));
+            loading.await();
+
+            AtomicReference<Throwable> joinedFailure = new AtomicReference<>();
+            Thread joined = Thread.ofVirtual().start(() -> {
+                try {
+                    flight.load(1L, () -> "unused");
+                } catch (Throwable e) {
+                    joinedFailure.set(e);
+                }
+            });
+            while (flight.getCoalesced() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            joined.join(5000);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, e.getCause());
+            assertFalse(joined.isAlive());
+            assertInstanceOf(SQLException.class, joinedFailure.get());
+            assertEquals("DB error", joinedFailure.get().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, flight.getExecuted());
+        assertEquals(1, flight.getCoalesced());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    void writeTo_ExportsExecutedAndCoalesced() throws Exception {
+        flight.load(1L, () -> "a");
+
+        StringWriter out = new StringWriter();
+        flight.writeTo(new PrometheusWriter(out));
+
+        String text = out.toString();
+        assertTrue(text.contains("singleflight_loads_total{flight=\"test\",result=\"executed\"} 1"));
+        assertTrue(text.contains("singleflight_loads_total{flight=\"test\",result=\"coalesced\"} 0"));
+        assertTrue(text.contains("singleflight_in_flight{flight=\"test\"} 0"));
+    }
+}
@@ -4,6 +4,7 @@ import com.prishedko.dto.StudentDTO;
 import com.prishedko.entity.Course;
 import com.prishedko.entity.School;
 import com.prishedko.entity.Student;
+import com.prishedko.repository.RowSupplier;
 import com.prishedko.repository.StudentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +13,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -199,4 +203,41 @@ class StudentServiceTest {
         assertEquals("DB error", exception.getMessage());
         verify(studentRepository, times(1)).findBySchoolId(schoolId);
     }
-}
\ No newline at end of file
+
+    // Тесты для importStudents
+    @Test
+    void importStudents_MapsRowsToEntities() throws SQLException, IOException {
+        Iterator<StudentDTO> rows = List.of(
+                new StudentDTO(null, "Student1", 1L, List.of()),
+                new StudentDTO(null, "Student2", 2L, List.of())
+        ).iterator();
+        List<Student> saved = new ArrayList<>();
+
+        when(studentRepository.copyIn(any())).thenAnswer(invocation -> {
+            RowSupplier<Student> source = invocation.getArgument(0);
+            Student student;
+            while ((student = source.next()) != null) {
+                saved.add(student);
+            }
+            return List.of(5L, 6L);
+        });
+
+        List<Long> ids = studentService.importStudents(() -> rows.hasNext() ? rows.next() : null);
+
+        assertEquals(List.of(5L, 6L), ids);
+        assertEquals(2, saved.size());
+        assertEquals("Student1", saved.get(0).getName());
+        assertEquals(2L, saved.get(1).getSchool().getId());
+    }
+
+    @Test
+    void importStudents_WithMissingSchoolId_ThrowsIllegalArgumentException() throws SQLException, IOException {
+        when(studentRepository.copyIn(any())).thenAnswer(invocation -> {
+            RowSupplier<Student> source = invocation.getArgument(0);
+            return List.of(source.next().getId());
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> studentService.importStudents(
+                () -> new StudentDTO(null, "Student1", null, List.of())));
+    }
+}
@@ -0,0 +1,159 @@
+package com.prishedko.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncDispatcherTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService timer;
+
+    @BeforeEach
+    void setUp() {
+        // Один поток и очередь на один запрос
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private AsyncContext newAsyncContext(CountDownLatch completed) {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        lenient().when(asyncContext.getRequest()).thenReturn(request);
+        lenient().when(asyncContext.getResponse()).thenReturn(response);
+        doAnswer(invocation -> {
+            completed.countDown();
+            return null;
+        }).when(asyncContext).complete();
+        return asyncContext;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void dispatch_RunsHandlerOnExecutorAndCompletes() throws Exception {
+        CountDownLatch completed = new CountDownLatch(1);
+        AsyncContext asyncContext = newAsyncContext(completed);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        AsyncDispatcher dispatcher = new AsyncDispatcher(executor, timer, 5000);
+        Thread caller = Thread.currentThread();
+        Thread[] handlerThread = new Thread[1];
+
+        dispatcher.dispatch(request, response, (req, resp) -> {
+            handlerThread[0] = Thread.currentThread();
+            resp.setStatus(HttpServletResponse.SC_OK);
+        });
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertNotSame(caller, handlerThread[0]);
+        verify(asyncContext).setTimeout(0);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(response, never()).sendError(anyInt(), anyString());
+    }
+
+    @Test
+    void dispatch_HandlerThrows_ReturnsInternalServerError() throws Exception {
+        CountDownLatch completed = new CountDownLatch(1);
+        AsyncContext asyncContext = newAsyncContext(completed);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        AsyncDispatcher dispatcher = new AsyncDispatcher(executor, timer, 5000);
+
+        dispatcher.dispatch(request, response, (req, resp) -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal server error");
+    }
+
+    @Test
+    void dispatch_QueueFull_ReturnsServiceUnavailable() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(3);
+        AsyncContext running = newAsyncContext(completed);
+        AsyncContext queued = newAsyncContext(completed);
+        AsyncContext rejected = newAsyncContext(completed);
+        when(request.startAsync(request, response)).thenReturn(running, queued, rejected);
+        AsyncDispatcher dispatcher = new AsyncDispatcher(executor, timer, 5000);
+        AtomicInteger handled = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(request, response, (req, resp) -> {
+                handled.incrementAndGet();
+                await(release);
+            });
+        }
+
+        verify(rejected).complete();
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded");
+        assertEquals(1, dispatcher.getRejectedCount());
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void dispatch_QueueTimeout_ReturnsServiceUnavailableWithoutRunningHandler() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch timedOut = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        AsyncContext running = newAsyncContext(completed);
+        AsyncContext queued = newAsyncContext(timedOut);
+        when(request.startAsync(request, response)).thenReturn(running, queued);
+        AsyncDispatcher dispatcher = new AsyncDispatcher(executor, timer, 100);
+        AtomicInteger handled = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            dispatcher.dispatch(request, response, (req, resp) -> {
+                handled.incrementAndGet();
+                await(release);
+            });
+        }
+
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request timed out in queue");
+        assertEquals(1, dispatcher.getTimedOutCount());
+        assertEquals(0, dispatcher.getQueueSize());
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, handled.get());
+    }
+}
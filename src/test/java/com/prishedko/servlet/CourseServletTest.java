@@ -2,7 +2,11 @@ package com.prishedko.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.prishedko.dto.CourseDTO;
+import com.prishedko.dto.RosterChangeDTO;
+import com.prishedko.filter.CompressionFilter;
+import com.prishedko.repository.RowConsumer;
 import com.prishedko.service.CourseService;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +22,8 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -78,6 +84,62 @@ class CourseServletTest {
         verify(objectMapper).writeValue(printWriter, courses);
     }
 
+    @Test
+    void doGet_WithAfterAndLimit_ReturnsCoursesPage() throws IOException, SQLException {
+        List<CourseDTO> courses = List.of(new CourseDTO(11L, "Course11", List.of(), List.of()));
+
+        when(request.getPathInfo()).thenReturn(null);
+        when(request.getParameter("stream")).thenReturn(null);
+        when(request.getParameter("after")).thenReturn("10");
+        when(request.getParameter("limit")).thenReturn("1");
+        when(courseService.getCoursesPage(10L, 1)).thenReturn(courses);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        courseServlet.doGet(request, response);
+
+        verify(objectMapper).writeValue(printWriter, courses);
+        verify(courseService, never()).getAllCourses();
+    }
+
+    @Test
+    void doGet_WithLimitAboveMaximum_ReturnsBadRequest() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameter("stream")).thenReturn(null);
+        when(request.getParameter("after")).thenReturn(null);
+        when(request.getParameter("limit")).thenReturn("100000");
+
+        courseServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+        verify(courseService, never()).getCoursesPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void doGet_WithStream_WritesJsonArrayFromService() throws Exception {
+        java.lang.reflect.Field mapperField = CourseServlet.class.getDeclaredField("objectMapper");
+        mapperField.setAccessible(true);
+        mapperField.set(courseServlet, new ObjectMapper());
+        StringWriter body = new StringWriter();
+
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameter("stream")).thenReturn("true");
+        when(request.getParameter("after")).thenReturn("5");
+        when(request.getParameter("limit")).thenReturn(null);
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        doAnswer(invocation -> {
+            RowConsumer<CourseDTO> consumer = invocation.getArgument(2);
+            consumer.accept(new CourseDTO(6L, "Course6", List.of(), List.of()));
+            consumer.accept(new CourseDTO(7L, "Course7", List.of(), List.of()));
+            return null;
+        }).when(courseService).streamCourses(eq(5L), eq(0), any());
+
+        courseServlet.doGet(request, response);
+
+        assertEquals("[{\"id\":6,\"name\":\"Course6\",\"teacherIds\":[],\"studentIds\":[]}," +
+                "{\"id\":7,\"name\":\"Course7\",\"teacherIds\":[],\"studentIds\":[]}]", body.toString());
+        verify(courseService, never()).getAllCourses();
+    }
+
     @Test
     void doGet_WithInvalidPath_ReturnsBadRequest() throws IOException {
         when(request.getPathInfo()).thenReturn("/invalid/path");
@@ -102,7 +164,7 @@ class CourseServletTest {
         CourseDTO courseDTO = new CourseDTO(courseId, "Test Course", List.of(), List.of());
 
         when(request.getPathInfo()).thenReturn("/" + courseId);
-        when(courseService.getCourse(courseId)).thenReturn(courseDTO);
+        when(courseService.getCourse(courseId, 0L)).thenReturn(courseDTO);
         when(response.getWriter()).thenReturn(printWriter);
 
         courseServlet.doGet(request, response);
@@ -115,7 +177,7 @@ class CourseServletTest {
     void doGet_WithNonExistentId_ReturnsNotFound() throws IOException, SQLException {
         Long courseId = 1L;
         when(request.getPathInfo()).thenReturn("/" + courseId);
-        when(courseService.getCourse(courseId)).thenThrow(new IllegalArgumentException("Course not found"));
+        when(courseService.getCourse(courseId, 0L)).thenThrow(new IllegalArgumentException("Course not found"));
 
         courseServlet.doGet(request, response);
 
@@ -126,13 +188,114 @@ class CourseServletTest {
     void doGet_WithSQLException_ReturnsInternalServerError() throws IOException, SQLException {
         Long courseId = 1L;
         when(request.getPathInfo()).thenReturn("/" + courseId);
-        when(courseService.getCourse(courseId)).thenThrow(new SQLException("DB error"));
+        when(courseService.getCourse(courseId, 0L)).thenThrow(new SQLException("DB error"));
 
         courseServlet.doGet(request, response);
 
         verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
     }
 
+    @Test
+    void doGet_WithValidId_SetsETagFromVersion() throws IOException, SQLException {
+        CourseDTO courseDTO = new CourseDTO(1L, "Test Course", List.of(), List.of());
+        when(request.getPathInfo()).thenReturn("/1");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"6\"");
+        when(courseService.getCourse(1L, 7L)).thenReturn(courseDTO);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        courseServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"7\"");
+        verify(objectMapper).writeValue(printWriter, courseDTO);
+    }
+
+    @Test
+    void doGet_WithMatchingIfNoneMatch_ReturnsNotModifiedWithoutLoading() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/1");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"5\", W/\"7\"");
+
+        courseServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"7\"");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(courseService, never()).getCourse(anyLong(), anyLong());
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    void doGet_WithCompressedETag_ReturnsNotModified() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/1");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getAttribute(CompressionFilter.ENCODING_ATTRIBUTE)).thenReturn("gzip");
+        when(request.getHeader("If-None-Match")).thenReturn("\"7-gzip\"");
+
+        courseServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"7-gzip\"");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(courseService, never()).getCourse(anyLong(), anyLong());
+    }
+
+    @Test
+    void doGet_WithTagOfOtherEncoding_ReturnsBody() throws IOException, SQLException {
+        CourseDTO courseDTO = new CourseDTO(1L, "Test Course", List.of(), List.of());
+        when(request.getPathInfo()).thenReturn("/1");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"7-gzip\", \"7-anything\"");
+        when(courseService.getCourse(1L, 7L)).thenReturn(courseDTO);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        courseServlet.doGet(request, response);
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(objectMapper).writeValue(printWriter, courseDTO);
+    }
+
+    @Test
+    void doGet_CborWithJsonTag_ReturnsBody() throws IOException, SQLException {
+        CourseDTO courseDTO = new CourseDTO(1L, "Test Course", List.of(), List.of());
+        when(request.getPathInfo()).thenReturn("/1");
+        when(request.getHeader("Accept")).thenReturn("application/cbor");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"7\"");
+        when(courseService.getCourse(1L, 7L)).thenReturn(courseDTO);
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+
+        courseServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"7-cbor\"");
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(courseService).getCourse(1L, 7L);
+    }
+
+    @Test
+    void doGet_CborWithCborTag_ReturnsNotModifiedWithVaryAccept() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/1");
+        when(request.getHeader("Accept")).thenReturn("application/cbor");
+        when(courseService.getCourseVersion(1L)).thenReturn(7L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"7\", \"7-cbor\"");
+
+        courseServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"7-cbor\"");
+        verify(response).addHeader("Vary", "Accept");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(courseService, never()).getCourse(anyLong(), anyLong());
+    }
+
+    @Test
+    void doGet_WithUnknownIdVersion_ReturnsNotFound() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/1");
+        when(courseService.getCourseVersion(1L)).thenThrow(new IllegalArgumentException("Course with id 1 not found"));
+
+        courseServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "Course with id 1 not found");
+        verify(courseService, never()).getCourse(anyLong(), anyLong());
+    }
+
     // Тесты для doPost
     @Test
     void doPost_WithInvalidPath_ReturnsBadRequest() throws IOException {
@@ -227,6 +390,38 @@ class CourseServletTest {
         verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "Course not found");
     }
 
+    @Test
+    void doPut_Students_ReplacesRoster() throws IOException, SQLException {
+        long[] studentIds = {3L, 4L};
+        RosterChangeDTO change = new RosterChangeDTO(1, 2);
+
+        when(request.getPathInfo()).thenReturn("/1/students");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("[3,4]")));
+        when(objectMapper.readValue(any(Reader.class), eq(long[].class))).thenReturn(studentIds);
+        when(courseService.replaceStudents(1L, studentIds)).thenReturn(change);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        courseServlet.doPut(request, response);
+
+        verify(objectMapper).writeValue(printWriter, change);
+        verify(courseService, never()).updateCourse(any(CourseDTO.class));
+    }
+
+    @Test
+    void doPut_TeachersOfNonExistentCourse_ReturnsNotFound() throws IOException, SQLException {
+        long[] teacherIds = {1L};
+
+        when(request.getPathInfo()).thenReturn("/999/teachers");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("[1]")));
+        when(objectMapper.readValue(any(Reader.class), eq(long[].class))).thenReturn(teacherIds);
+        when(courseService.replaceTeachers(999L, teacherIds))
+                .thenThrow(new IllegalArgumentException("Course with id 999 not found"));
+
+        courseServlet.doPut(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "Course with id 999 not found");
+    }
+
     // Тесты для doDelete
     @Test
     void doDelete_WithNoPathInfo_ReturnsBadRequest() throws IOException {
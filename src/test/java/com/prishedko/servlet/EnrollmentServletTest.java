@@ -0,0 +1,123 @@
+package com.prishedko.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prishedko.dto.EnrollmentSetDTO;
+import com.prishedko.index.EnrollmentIndex;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnrollmentServletTest {
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private PrintWriter printWriter;
+
+    private EnrollmentServlet enrollmentServlet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EnrollmentIndex index = new EnrollmentIndex();
+        index.addStudent(1L, 1L);
+        index.addStudent(1L, 2L);
+        index.addStudent(2L, 3L);
+        index.addCourse(100L, List.of(), List.of(1L, 2L, 3L));
+        index.addCourse(200L, List.of(), List.of(2L, 3L));
+
+        // Устанавливаем зависимости вручную, чтобы избежать вызова init(), зависящего от БД
+        enrollmentServlet = new EnrollmentServlet();
+        Field indexField = EnrollmentServlet.class.getDeclaredField("index");
+        Field mapperField = EnrollmentServlet.class.getDeclaredField("objectMapper");
+        indexField.setAccessible(true);
+        mapperField.setAccessible(true);
+        indexField.set(enrollmentServlet, index);
+        mapperField.set(enrollmentServlet, objectMapper);
+    }
+
+    @Test
+    void doGet_AllCourses_ReturnsIntersection() throws IOException {
+        when(request.getPathInfo()).thenReturn("/students");
+        when(request.getParameterValues("all")).thenReturn(new String[]{"100,200"});
+        when(response.getWriter()).thenReturn(printWriter);
+
+        enrollmentServlet.doGet(request, response);
+
+        EnrollmentSetDTO result = writtenResult();
+        assertEquals(2, result.getCount());
+        assertArrayEquals(new long[]{2L, 3L}, result.getIds());
+    }
+
+    @Test
+    void doGet_CountForSchool_OmitsIds() throws IOException {
+        when(request.getPathInfo()).thenReturn("/students");
+        when(request.getParameterValues(anyString()))
+                .thenAnswer(invocation -> "any".equals(invocation.getArgument(0)) ? new String[]{"200"} : null);
+        when(request.getParameter("schoolId")).thenReturn("1");
+        when(request.getParameter("count")).thenReturn("true");
+        when(response.getWriter()).thenReturn(printWriter);
+
+        enrollmentServlet.doGet(request, response);
+
+        EnrollmentSetDTO result = writtenResult();
+        assertEquals(1, result.getCount());
+        assertNull(result.getIds());
+    }
+
+    @Test
+    void doGet_WithoutConditions_ReturnsBadRequest() throws IOException {
+        when(request.getPathInfo()).thenReturn("/teachers");
+
+        enrollmentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "all, any or schoolId parameter is required");
+    }
+
+    @Test
+    void doGet_WithInvalidCourseId_ReturnsBadRequest() throws IOException {
+        when(request.getPathInfo()).thenReturn("/students");
+        when(request.getParameterValues("all")).thenReturn(new String[]{"abc"});
+
+        enrollmentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid ID format");
+    }
+
+    @Test
+    void doGet_WithInvalidPath_ReturnsBadRequest() throws IOException {
+        when(request.getPathInfo()).thenReturn("/courses");
+
+        enrollmentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid path");
+    }
+
+    private EnrollmentSetDTO writtenResult() throws IOException {
+        ArgumentCaptor<EnrollmentSetDTO> captor = ArgumentCaptor.forClass(EnrollmentSetDTO.class);
+        verify(objectMapper).writeValue(eq(printWriter), captor.capture());
+        return captor.getValue();
+    }
+}
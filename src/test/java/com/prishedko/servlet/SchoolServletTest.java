@@ -1,8 +1,13 @@
 package com.prishedko.servlet;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.prishedko.dto.SchoolDTO;
+import com.prishedko.repository.SchoolRosterVisitor;
 import com.prishedko.service.SchoolService;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,7 +20,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.*;
 import java.sql.SQLException;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -68,6 +78,23 @@ class SchoolServletTest {
         verify(response).sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, "List not implemented");
     }
 
+    @Test
+    void doGet_RootPathWithIds_ReturnsSchools() throws IOException, SQLException {
+        SchoolDTO schoolDTO = new SchoolDTO();
+        schoolDTO.setId(2L);
+        List<SchoolDTO> schools = List.of(schoolDTO);
+
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameterValues("ids")).thenReturn(new String[]{"2"});
+        when(schoolService.getSchoolsByIds(List.of(2L))).thenReturn(schools);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        schoolServlet.doGet(request, response);
+
+        verify(response).setContentType("application/json");
+        verify(objectMapper).writeValue(printWriter, schools);
+    }
+
     @Test
     void doGet_WithInvalidPath_ReturnsBadRequest() throws IOException {
         when(request.getPathInfo()).thenReturn("/invalid/path");
@@ -87,27 +114,116 @@ class SchoolServletTest {
     }
 
     @Test
-    void doGet_WithValidId_ReturnsSchool() throws IOException, SQLException {
+    void doGet_WithValidId_StreamsSchool() throws IOException, SQLException {
         Long schoolId = 1L;
-        SchoolDTO schoolDTO = new SchoolDTO();
-        schoolDTO.setId(schoolId);
-        schoolDTO.setName("Test School");
+        StringWriter body = new StringWriter();
 
         when(request.getPathInfo()).thenReturn("/" + schoolId);
-        when(schoolService.getSchool(schoolId)).thenReturn(schoolDTO);
-        when(response.getWriter()).thenReturn(printWriter); // Настраиваем только здесь
+        when(objectMapper.getFactory()).thenReturn(new JsonFactory());
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        doAnswer(invocation -> {
+            SchoolRosterVisitor visitor = invocation.getArgument(2);
+            visitor.school(schoolId, "Test School");
+            visitor.teacher(5L);
+            visitor.student(7L);
+            visitor.student(8L);
+            return null;
+        }).when(schoolService).streamSchool(eq(schoolId), anyLong(), any());
 
         schoolServlet.doGet(request, response);
 
         verify(response).setContentType("application/json");
-        verify(objectMapper).writeValue(printWriter, schoolDTO);
+        assertEquals("{\"id\":1,\"name\":\"Test School\",\"teacherIds\":[5],\"studentIds\":[7,8]}", body.toString());
+    }
+
+    @Test
+    void doGet_WithValidIdWithoutMembers_WritesEmptyArrays() throws IOException, SQLException {
+        StringWriter body = new StringWriter();
+
+        when(request.getPathInfo()).thenReturn("/1");
+        when(objectMapper.getFactory()).thenReturn(new JsonFactory());
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        doAnswer(invocation -> {
+            invocation.<SchoolRosterVisitor>getArgument(2).school(1L, "Empty");
+            return null;
+        }).when(schoolService).streamSchool(eq(1L), anyLong(), any());
+
+        schoolServlet.doGet(request, response);
+
+        assertEquals("{\"id\":1,\"name\":\"Empty\",\"teacherIds\":[],\"studentIds\":[]}", body.toString());
+    }
+
+    @Test
+    void doGet_WithAcceptCbor_StreamsSchoolAsCbor() throws IOException, SQLException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        when(request.getPathInfo()).thenReturn("/1");
+        when(request.getHeader("Accept")).thenReturn("application/cbor");
+        when(request.getHeader("If-None-Match")).thenReturn(null);
+        when(schoolService.getSchoolVersion(1L)).thenReturn(4L);
+        when(response.getOutputStream()).thenReturn(capturing(body));
+        doAnswer(invocation -> {
+            SchoolRosterVisitor visitor = invocation.getArgument(2);
+            visitor.school(1L, "Test School");
+            visitor.teacher(5L);
+            visitor.student(7L);
+            return null;
+        }).when(schoolService).streamSchool(eq(1L), eq(4L), any());
+
+        schoolServlet.doGet(request, response);
+
+        verify(response).setContentType("application/cbor");
+        verify(response).setHeader("ETag", "\"4-cbor\"");
+        verify(response).addHeader("Vary", "Accept");
+        verify(response, never()).getWriter();
+        SchoolDTO school = new CBORMapper().readValue(body.toByteArray(), SchoolDTO.class);
+        assertEquals("Test School", school.getName());
+        assertEquals(List.of(5L), school.getTeacherIds());
+        assertEquals(List.of(7L), school.getStudentIds());
+    }
+
+    @Test
+    void doGet_WithMatchingIfNoneMatch_ReturnsNotModifiedWithoutStreaming() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/1");
+        when(schoolService.getSchoolVersion(1L)).thenReturn(3L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"3\"");
+
+        schoolServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"3\"");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(schoolService, never()).streamSchool(anyLong(), anyLong(), any());
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    void doGet_WithStaleIfNoneMatch_StreamsSchoolWithNewETag() throws IOException, SQLException {
+        StringWriter body = new StringWriter();
+        when(request.getPathInfo()).thenReturn("/1");
+        when(schoolService.getSchoolVersion(1L)).thenReturn(4L);
+        when(request.getHeader("If-None-Match")).thenReturn("\"3\"");
+        when(objectMapper.getFactory()).thenReturn(new JsonFactory());
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        doAnswer(invocation -> {
+            invocation.<SchoolRosterVisitor>getArgument(2).school(1L, "Changed");
+            return null;
+        }).when(schoolService).streamSchool(eq(1L), eq(4L), any());
+
+        schoolServlet.doGet(request, response);
+
+        verify(response).setHeader("ETag", "\"4\"");
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("{\"id\":1,\"name\":\"Changed\",\"teacherIds\":[],\"studentIds\":[]}", body.toString());
     }
 
     @Test
     void doGet_WithNonExistentId_ReturnsNotFound() throws IOException, SQLException {
         Long schoolId = 1L;
         when(request.getPathInfo()).thenReturn("/" + schoolId);
-        when(schoolService.getSchool(schoolId)).thenThrow(new IllegalArgumentException("School not found"));
+        when(objectMapper.getFactory()).thenReturn(new JsonFactory());
+        when(response.getWriter()).thenReturn(printWriter);
+        doThrow(new IllegalArgumentException("School not found"))
+                .when(schoolService).streamSchool(eq(schoolId), anyLong(), any());
 
         schoolServlet.doGet(request, response);
 
@@ -118,7 +234,9 @@ class SchoolServletTest {
     void doGet_WithSQLException_ReturnsInternalServerError() throws IOException, SQLException {
         Long schoolId = 1L;
         when(request.getPathInfo()).thenReturn("/" + schoolId);
-        when(schoolService.getSchool(schoolId)).thenThrow(new SQLException("DB error"));
+        when(objectMapper.getFactory()).thenReturn(new JsonFactory());
+        when(response.getWriter()).thenReturn(printWriter);
+        doThrow(new SQLException("DB error")).when(schoolService).streamSchool(eq(schoolId), anyLong(), any());
 
         schoolServlet.doGet(request, response);
 
@@ -278,4 +396,22 @@ class SchoolServletTest {
 
         verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
     }
-}
\ No newline at end of file
+
+    private static ServletOutputStream capturing(ByteArrayOutputStream body) {
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.prishedko.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.prishedko.dto.StudentDTO;
+import com.prishedko.repository.RowSupplier;
 import com.prishedko.service.StudentService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,6 +19,8 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -100,6 +103,49 @@ class StudentServletTest {
         verify(objectMapper).writeValue(printWriter, students);
     }
 
+    @Test
+    void doGet_RootPathWithIds_ReturnsStudentsInOneCall() throws IOException, SQLException {
+        List<StudentDTO> students = Arrays.asList(
+                new StudentDTO(3L, "Student3", 1L, List.of()),
+                new StudentDTO(1L, "Student1", 1L, List.of())
+        );
+
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameterValues("ids")).thenReturn(new String[]{"3, 1", "2"});
+        when(studentService.getStudentsByIds(List.of(3L, 1L, 2L))).thenReturn(students);
+        when(response.getWriter()).thenReturn(printWriter);
+
+        studentServlet.doGet(request, response);
+
+        verify(objectMapper).writeValue(printWriter, students);
+        verify(studentService, never()).getStudentsBySchool(any());
+    }
+
+    @Test
+    void doGet_RootPathWithInvalidIds_ReturnsBadRequest() throws IOException {
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameterValues("ids")).thenReturn(new String[]{"1,abc"});
+
+        studentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid ID format");
+    }
+
+    @Test
+    void doGet_RootPathWithTooManyIds_ReturnsBadRequest() throws IOException, SQLException {
+        StringBuilder ids = new StringBuilder("1");
+        for (int i = 2; i <= RequestParams.MAX_IDS + 1; i++) {
+            ids.append(',').append(i);
+        }
+        when(request.getPathInfo()).thenReturn("/");
+        when(request.getParameterValues("ids")).thenReturn(new String[]{ids.toString()});
+
+        studentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Too many ids");
+        verify(studentService, never()).getStudentsByIds(any());
+    }
+
     @Test
     void doGet_WithInvalidPath_ReturnsBadRequest() throws IOException {
         when(request.getPathInfo()).thenReturn("/invalid/path");
@@ -183,6 +229,58 @@ class StudentServletTest {
         verify(objectMapper).writeValue(printWriter, createdDTO);
     }
 
+    @Test
+    void doPost_ImportCsv_PassesParsedRowsToService() throws IOException, SQLException {
+        String csv = "name,schoolId\nAlice,1\n\"Smith, John\",2\n";
+        List<StudentDTO> imported = new java.util.ArrayList<>();
+
+        when(request.getPathInfo()).thenReturn("/import");
+        when(request.getContentType()).thenReturn("text/csv");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader(csv)));
+        when(studentService.importStudents(any())).thenAnswer(invocation -> {
+            RowSupplier<StudentDTO> source = invocation.getArgument(0);
+            StudentDTO dto;
+            while ((dto = source.next()) != null) {
+                imported.add(dto);
+            }
+            return List.of(10L, 11L);
+        });
+        when(response.getWriter()).thenReturn(printWriter);
+
+        studentServlet.doPost(request, response);
+
+        assertEquals(2, imported.size());
+        assertEquals("Alice", imported.get(0).getName());
+        assertEquals(1L, imported.get(0).getSchoolId());
+        assertEquals("Smith, John", imported.get(1).getName());
+        assertEquals(2L, imported.get(1).getSchoolId());
+        verify(response).setStatus(HttpServletResponse.SC_CREATED);
+        verify(objectMapper).writeValue(printWriter, List.of(10L, 11L));
+    }
+
+    @Test
+    void doPost_ImportWithUnknownSchool_ReturnsBadRequest() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/import");
+        when(request.getContentType()).thenReturn("text/csv");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("name,schoolId\nAlice,999\n")));
+        when(studentService.importStudents(any())).thenThrow(new IllegalArgumentException("School not found"));
+
+        studentServlet.doPost(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid import data: School not found");
+    }
+
+    @Test
+    void doPost_ImportWithUnsupportedContentType_ReturnsUnsupportedMediaType() throws IOException, SQLException {
+        when(request.getPathInfo()).thenReturn("/import");
+        when(request.getContentType()).thenReturn("application/xml");
+
+        studentServlet.doPost(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE), anyString());
+        verify(studentService, never()).importStudents(any());
+    }
+
     @Test
     void doPost_WithSQLException_ReturnsInternalServerError() throws IOException, SQLException {
         StudentDTO inputDTO = new StudentDTO(null, "New Student", 1L, List.of());
@@ -0,0 +1,99 @@
+package com.prishedko.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.prishedko.dto.CourseDTO;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WireFormatTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Test
+    void accepted_BinaryOnlyWhenNamedExplicitly() {
+        assertEquals(WireFormat.JSON, WireFormat.accepted((String) null));
+        assertEquals(WireFormat.JSON, WireFormat.accepted("*/*"));
+        assertEquals(WireFormat.JSON, WireFormat.accepted("text/html"));
+        assertEquals(WireFormat.CBOR, WireFormat.accepted("application/cbor"));
+        assertEquals(WireFormat.SMILE, WireFormat.accepted("application/x-jackson-smile, */*;q=0.1"));
+    }
+
+    @Test
+    void accepted_RespectsQualityAndPrefersExplicitType() {
+        assertEquals(WireFormat.JSON, WireFormat.accepted("application/cbor;q=0.5, application/json"));
+        assertEquals(WireFormat.CBOR, WireFormat.accepted("application/cbor, */*"));
+        assertEquals(WireFormat.JSON, WireFormat.accepted("application/json, application/cbor"));
+        assertEquals(WireFormat.SMILE, WireFormat.accepted("application/cbor;q=0.8, application/x-jackson-smile"));
+        assertEquals(WireFormat.JSON, WireFormat.accepted("application/cbor;q=0"));
+    }
+
+    @Test
+    void ofContentType_IgnoresParametersAndDefaultsToJson() {
+        assertEquals(WireFormat.CBOR, WireFormat.ofContentType("application/CBOR; charset=binary"));
+        assertEquals(WireFormat.JSON, WireFormat.ofContentType("application/json;charset=UTF-8"));
+        assertEquals(WireFormat.JSON, WireFormat.ofContentType(null));
+    }
+
+    @Test
+    void read_SmileBody_DecodesSameDto() throws IOException {
+        CourseDTO course = new CourseDTO();
+        course.setName("Math");
+        course.setStudentIds(List.of(1L, 2L));
+        byte[] body = new SmileMapper().writeValueAsBytes(course);
+
+        when(request.getContentType()).thenReturn("application/x-jackson-smile");
+        when(request.getInputStream()).thenReturn(input(body));
+
+        CourseDTO read = WireFormat.read(request, new ObjectMapper(), CourseDTO.class);
+
+        assertEquals("Math", read.getName());
+        assertEquals(List.of(1L, 2L), read.getStudentIds());
+        verify(request, never()).getReader();
+    }
+
+    private static ServletInputStream input(byte[] body) {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+}